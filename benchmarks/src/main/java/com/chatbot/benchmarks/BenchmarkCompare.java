@@ -0,0 +1,103 @@
+package com.chatbot.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compare two JMH result files written with "-rf csv":
+ *   java -cp benchmarks/target/benchmarks.jar com.chatbot.benchmarks.BenchmarkCompare baseline.csv current.csv
+ * Prints every benchmark found in both files with its change in score. For time-per-operation
+ * modes a positive change is a slowdown.
+ */
+public final class BenchmarkCompare {
+    private BenchmarkCompare() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: BenchmarkCompare <baseline.csv> <current.csv>");
+            return;
+        }
+        Map<String, double[]> baseline = read(args[0]);
+        Map<String, double[]> current = read(args[1]);
+        System.out.printf("%-60s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Map.Entry<String, double[]> entry : current.entrySet()) {
+            double[] before = baseline.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            double after = entry.getValue()[0];
+            double change = (after - before[0]) / before[0] * 100;
+            boolean significant = Math.abs(after - before[0]) > before[1] + entry.getValue()[1];
+            System.out.printf("%-60s %14.3f %14.3f %+8.1f%%%s%n", entry.getKey(), before[0], after, change,
+                    significant ? "" : " (within error)");
+        }
+    }
+
+    /**
+     * Read score and error per benchmark, keyed by name, mode, threads and parameters.
+     */
+    private static Map<String, double[]> read(String file) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+        LinkedHashMap<String, double[]> results = new LinkedHashMap<>();
+        if (lines.isEmpty()) {
+            return results;
+        }
+        List<String> header = parseCsvLine(lines.get(0));
+        int name = header.indexOf("Benchmark");
+        int mode = header.indexOf("Mode");
+        int threads = header.indexOf("Threads");
+        int score = header.indexOf("Score");
+        int error = header.indexOf("Score Error (99.9%)");
+        int unit = header.indexOf("Unit");
+        for (String line : lines.subList(1, lines.size())) {
+            List<String> fields = parseCsvLine(line);
+            if (fields.size() != header.size()) {
+                continue;
+            }
+            String benchmark = fields.get(name).replace("com.chatbot.benchmarks.", "");
+            StringBuilder key = new StringBuilder(benchmark).append(' ').append(fields.get(mode))
+                    .append(" t=").append(fields.get(threads));
+            for (int i = unit + 1; i < header.size(); i++) {
+                if (!fields.get(i).isEmpty()) {
+                    key.append(' ').append(header.get(i).replace("Param: ", "")).append('=').append(fields.get(i));
+                }
+            }
+            key.append(" [").append(fields.get(unit)).append(']');
+            double scoreError = fields.get(error).isEmpty() || fields.get(error).equals("NaN")
+                    ? 0 : Double.parseDouble(fields.get(error));
+            results.put(key.toString(), new double[] {Double.parseDouble(fields.get(score)), scoreError});
+        }
+        return results;
+    }
+
+    private static List<String> parseCsvLine(String line) {
+        ArrayList<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,42 @@
+package com.chatbot.benchmarks;
+
+import com.chatbot.KnowledgeFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Synthetic knowledge bases shared by the benchmarks.
+ * Keys look like taught questions ("question 42 about topic 17") so partial matching
+ * sees realistic overlap between keys.
+ */
+final class Fixtures {
+    static final String MISS = "something nobody ever taught";
+
+    private Fixtures() {
+    }
+
+    static String key(int i) {
+        return "question " + i + " about topic " + (i % 97);
+    }
+
+    static Map<String, String> knowledge(int size) {
+        LinkedHashMap<String, String> pairs = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            pairs.put(key(i), "Answer number " + i + " with a typical amount of explanatory text.");
+        }
+        return pairs;
+    }
+
+    /**
+     * Write a text knowledge file with size entries into a fresh temporary directory.
+     */
+    static File writeKnowledgeFile(int size) throws IOException {
+        File file = new File(Files.createTempDirectory("chatbot-bench").toFile(), "chatbot_data.txt");
+        KnowledgeFormat.write(knowledge(size), file);
+        return file;
+    }
+}
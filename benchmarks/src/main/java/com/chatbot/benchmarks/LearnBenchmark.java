@@ -0,0 +1,50 @@
+package com.chatbot.benchmarks;
+
+import com.chatbot.Bot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bot.learn including persistence to the write-ahead log, per sync policy.
+ * Each trial uses a fresh data file so the log is configured from the parameters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class LearnBenchmark {
+    @Param({"10", "1000", "100000"})
+    int size;
+
+    @Param({"ALWAYS", "GROUP", "NEVER"})
+    String sync;
+
+    private Bot bot;
+    private long counter;
+
+    @Setup
+    public void setup() throws IOException {
+        System.setProperty("chatbot.log.sync", sync);
+        bot = new Bot("ChatBot", Fixtures.writeKnowledgeFile(size).getPath());
+    }
+
+    @Benchmark
+    public String learn() {
+        return bot.learn("taught question " + counter++, "A freshly taught answer.");
+    }
+}
@@ -0,0 +1,58 @@
+package com.chatbot.benchmarks;
+
+import com.chatbot.KnowledgeSnapshot;
+import com.chatbot.KnowledgeStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading the knowledge base the way the first Bot does (read the snapshot, replay the
+ * log, build the partial-match index), from the text format and the binary format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class LoadBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"text", "binary"})
+    String format;
+
+    private File dataFile;
+
+    @Setup
+    public void setup() throws IOException {
+        File textFile = Fixtures.writeKnowledgeFile(size);
+        if (format.equals("text")) {
+            dataFile = textFile;
+        } else {
+            // Only the binary snapshot exists next to this data file name
+            dataFile = new File(Files.createTempDirectory("chatbot-bench").toFile(), "chatbot_data.txt");
+            KnowledgeSnapshot.fromText(textFile, new File(dataFile.getParentFile(), "chatbot_data.bin"));
+        }
+    }
+
+    @Benchmark
+    public KnowledgeStore loadKnowledgeBase() {
+        return KnowledgeStore.open(dataFile.getPath());
+    }
+}
@@ -0,0 +1,111 @@
+package com.chatbot.benchmarks;
+
+import com.chatbot.AdviceBot;
+import com.chatbot.GameBot;
+import com.chatbot.JokeBot;
+import com.chatbot.WordDictionary;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keyword dispatch in the personality bots, GameBot's guess checking, and word picking and
+ * pattern hints over a 300,000-word dictionary.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonalityBenchmark {
+    private JokeBot jokeBot;
+    private AdviceBot adviceBot;
+    private GameBot gameBot;
+    private GameBot largeGameBot;
+
+    @Setup
+    public void setup() {
+        jokeBot = new JokeBot();
+        adviceBot = new AdviceBot();
+        gameBot = new GameBot();
+
+        Random random = new Random(42);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 300_000; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int length = 3 + random.nextInt(12); length > 0; length--) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            words.add(word.toString());
+        }
+        largeGameBot = new GameBot(WordDictionary.of(words));
+    }
+
+    @Benchmark
+    public String jokeKeyword() {
+        return jokeBot.respond("tell me something funny");
+    }
+
+    @Benchmark
+    public String jokeFallThrough() {
+        return jokeBot.respond("what is the weather like today");
+    }
+
+    @Benchmark
+    public String adviceKeyword() {
+        return adviceBot.respond("how should I manage my time");
+    }
+
+    @Benchmark
+    public String adviceFallThrough() {
+        return adviceBot.respond("what is the weather like today");
+    }
+
+    @Benchmark
+    public String gameStart() {
+        return gameBot.respond("play");
+    }
+
+    /**
+     * Start a game and guess a few letters; subtract gameStart for the guess cost.
+     */
+    @Benchmark
+    public void gameGuesses(Blackhole blackhole) {
+        blackhole.consume(gameBot.respond("play"));
+        blackhole.consume(gameBot.respond("a"));
+        blackhole.consume(gameBot.respond("e"));
+        blackhole.consume(gameBot.respond("o"));
+        blackhole.consume(gameBot.respond("t"));
+    }
+
+    @Benchmark
+    public String largeDictionaryGameStart() {
+        return largeGameBot.respond("play hard");
+    }
+
+    /**
+     * Start a game, reveal a letter if one of the guesses hits, and ask for a pattern hint.
+     */
+    @Benchmark
+    public void largeDictionaryHint(Blackhole blackhole) {
+        blackhole.consume(largeGameBot.respond("play medium"));
+        blackhole.consume(largeGameBot.respond("e"));
+        blackhole.consume(largeGameBot.respond("a"));
+        blackhole.consume(largeGameBot.respond("hint"));
+    }
+}
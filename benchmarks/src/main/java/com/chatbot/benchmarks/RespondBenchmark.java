@@ -0,0 +1,77 @@
+package com.chatbot.benchmarks;
+
+import com.chatbot.Bot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bot.respond on an exact hit, a partial hit, a fuzzy hit, a retrieval hit and a miss, across knowledge base sizes,
+ * with the response cache disabled (cacheSize 0) and enabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class RespondBenchmark {
+    @Param({"10", "1000", "100000", "1000000"})
+    int size;
+
+    @Param({"0", "4096"})
+    int cacheSize;
+
+    private Bot bot;
+    private String exact;
+    private String partial;
+    private String typo;
+    private String reworded;
+
+    @Setup
+    public void setup() throws IOException {
+        System.setProperty("chatbot.cache.size", String.valueOf(cacheSize)); // Read when the store is created
+        bot = new Bot("ChatBot", Fixtures.writeKnowledgeFile(size).getPath());
+        exact = Fixtures.key(size / 2);
+        partial = "could you tell me " + Fixtures.key(size / 2) + " please";
+        typo = Fixtures.key(size / 2).replace("question", "qeustion");
+        reworded = "tell me about topic " + (size / 2 % 97) + " and question " + size / 2;
+    }
+
+    @Benchmark
+    public String exactHit() {
+        return bot.respond(exact);
+    }
+
+    @Benchmark
+    public String partialHit() {
+        return bot.respond(partial);
+    }
+
+    @Benchmark
+    public String fuzzyHit() {
+        return bot.respond(typo);
+    }
+
+    @Benchmark
+    public String retrievalHit() {
+        return bot.respond(reworded);
+    }
+
+    @Benchmark
+    public String miss() {
+        return bot.respond(Fixtures.MISS);
+    }
+}
@@ -1,11 +1,20 @@
 package com.chatbot;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * AdviceBot extends Bot and specializes in providing advice.
  */
 public class AdviceBot extends Bot {
+    private enum Intent { PROGRAMMING, STUDY, TIME, CAREER, GENERAL }
+
+    // Either trigger asks for advice; the topic keywords then pick which advice
+    private static final String[][] ASK = {IntentRouter.anyOf("advice", "help", "suggest", "recommend")};
+    private static final String[][] HOW = {IntentRouter.anyOf("how"), IntentRouter.anyOf("should", "can", "do")};
+
+    private static final IntentRouter<Intent> INTENTS = adviceRules(new IntentRouter.Builder<Intent>()).build();
+
     private final ArrayList<String> adviceTopics;
 
     public AdviceBot() {
@@ -20,49 +29,76 @@ public class AdviceBot extends Bot {
         adviceTopics.add("study");
         adviceTopics.add("time");
         adviceTopics.add("career");
-        addTopic("advice");
+        topics.add("advice"); // Not a mention yet, so not counted as trending
     }
 
     @Override
-    public String respond(String userInput) {
-        String lowerInput = userInput.toLowerCase().trim();
+    public String getGreeting() {
+        return "Switched to AdviceBot! Ask me for advice on programming, studying, time management, or career!";
+    }
+
+    @Override
+    protected String generateResponse(NormalizedInput input) {
+        String lowerInput = input.text();
         
         // Check for advice-related keywords
-        if (lowerInput.contains("advice") || lowerInput.contains("help") || 
-            lowerInput.contains("suggest") || lowerInput.contains("recommend")) {
-            return provideAdvice(lowerInput);
-        }
-        
-        if (lowerInput.contains("how") && (lowerInput.contains("should") || 
-            lowerInput.contains("can") || lowerInput.contains("do"))) {
-            return provideAdvice(lowerInput);
+        Intent intent = INTENTS.route(lowerInput);
+        if (intent != null) {
+            return provideAdvice(intent);
         }
 
         // Fall back to parent's response method
-        return super.respond(userInput);
+        return super.generateResponse(input);
+    }
+
+    /**
+     * Declare the advice rules: each topic under either trigger, topics ranked by priority,
+     * and general advice when a trigger matches without a topic.
+     */
+    private static IntentRouter.Builder<Intent> adviceRules(IntentRouter.Builder<Intent> rules) {
+        for (String[][] trigger : new String[][][] {ASK, HOW}) {
+            rules.rule(Intent.PROGRAMMING, 5, withTopic(trigger, "programming", "code"))
+                 .rule(Intent.STUDY, 4, withTopic(trigger, "study", "learn"))
+                 .rule(Intent.TIME, 3, withTopic(trigger, "time", "manage"))
+                 .rule(Intent.CAREER, 2, withTopic(trigger, "career", "job"))
+                 .rule(Intent.GENERAL, 1, trigger);
+        }
+        return rules;
+    }
+
+    private static String[][] withTopic(String[][] trigger, String... topicKeywords) {
+        String[][] clauses = Arrays.copyOf(trigger, trigger.length + 1);
+        clauses[trigger.length] = IntentRouter.anyOf(topicKeywords);
+        return clauses;
     }
 
     /**
-     * Provide advice based on user input.
+     * Provide advice for the intent found in the user input.
      */
-    private String provideAdvice(String userInput) {
+    private String provideAdvice(Intent intent) {
         String advice;
         
-        if (userInput.contains("programming") || userInput.contains("code")) {
-            advice = "My advice for programming: Practice regularly, read code written by others, " +
-                    "and don't be afraid to break things and learn from mistakes!";
-        } else if (userInput.contains("study") || userInput.contains("learn")) {
-            advice = "Study advice: Break topics into smaller chunks, use active recall techniques, " +
-                    "and take regular breaks to let your brain process information.";
-        } else if (userInput.contains("time") || userInput.contains("manage")) {
-            advice = "Time management tip: Prioritize tasks, use the Pomodoro technique (25 min work, 5 min break), " +
-                    "and eliminate distractions during focused work time.";
-        } else if (userInput.contains("career") || userInput.contains("job")) {
-            advice = "Career advice: Build a portfolio, network with others in your field, " +
-                    "and continuously learn new skills to stay relevant.";
-        } else {
-            advice = "Here's some general advice: Take things one step at a time, " +
-                    "ask questions when you're stuck, and remember that progress is more important than perfection!";
+        switch (intent) {
+            case PROGRAMMING:
+                advice = "My advice for programming: Practice regularly, read code written by others, " +
+                        "and don't be afraid to break things and learn from mistakes!";
+                break;
+            case STUDY:
+                advice = "Study advice: Break topics into smaller chunks, use active recall techniques, " +
+                        "and take regular breaks to let your brain process information.";
+                break;
+            case TIME:
+                advice = "Time management tip: Prioritize tasks, use the Pomodoro technique (25 min work, 5 min break), " +
+                        "and eliminate distractions during focused work time.";
+                break;
+            case CAREER:
+                advice = "Career advice: Build a portfolio, network with others in your field, " +
+                        "and continuously learn new skills to stay relevant.";
+                break;
+            default:
+                advice = "Here's some general advice: Take things one step at a time, " +
+                        "ask questions when you're stuck, and remember that progress is more important than perfection!";
+                break;
         }
         
         addTopic("advice");
@@ -0,0 +1,182 @@
+package com.chatbot;
+
+import java.util.Arrays;
+
+/**
+ * Aho-Corasick automaton that finds every pattern contained in a text in a single pass.
+ * Patterns are identified by their index in the array given to the constructor.
+ */
+public class AhoCorasick {
+    private final int[] patternLength;
+    // Flattened, per-node sorted transitions: edges of node n are at [edgeStart[n], edgeStart[n + 1])
+    private final int[] edgeStart;
+    private final char[] edgeLabel;
+    private final int[] edgeTarget;
+    private final int[] fail;
+    private final int[] output; // Pattern ending exactly at this node, or -1
+    private final int[] dictLink; // Nearest node on the fail chain with an output, or -1
+
+    public AhoCorasick(String[] patterns) {
+        this.patternLength = new int[patterns.length];
+
+        // Build the trie as first-child/next-sibling lists kept in label order
+        long totalLength = 16;
+        for (String pattern : patterns) {
+            totalLength += pattern.length();
+        }
+        int capacity = (int) Math.min(totalLength, Integer.MAX_VALUE - 8); // Upper bound on trie nodes
+        int[] firstChild = new int[16];
+        int[] nextSibling = new int[16];
+        char[] label = new char[16];
+        int[] outputs = new int[16];
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(outputs, -1);
+        int nodes = 1;
+        for (int id = 0; id < patterns.length; id++) {
+            String pattern = patterns[id];
+            patternLength[id] = pattern.length();
+            int node = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                int prev = -1;
+                int child = firstChild[node];
+                while (child >= 0 && label[child] < c) {
+                    prev = child;
+                    child = nextSibling[child];
+                }
+                if (child < 0 || label[child] != c) {
+                    if (nodes == firstChild.length) {
+                        int grown = (int) Math.min(Math.max(2L * nodes, 16), capacity);
+                        firstChild = Arrays.copyOf(firstChild, grown);
+                        nextSibling = Arrays.copyOf(nextSibling, grown);
+                        label = Arrays.copyOf(label, grown);
+                        outputs = Arrays.copyOf(outputs, grown);
+                        Arrays.fill(firstChild, nodes, grown, -1);
+                        Arrays.fill(outputs, nodes, grown, -1);
+                    }
+                    int created = nodes++;
+                    label[created] = c;
+                    nextSibling[created] = child;
+                    if (prev < 0) {
+                        firstChild[node] = created;
+                    } else {
+                        nextSibling[prev] = created;
+                    }
+                    child = created;
+                }
+                node = child;
+            }
+            if (outputs[node] < 0) {
+                outputs[node] = id;
+            }
+        }
+
+        // Flatten the sibling lists into sorted edge arrays
+        this.edgeStart = new int[nodes + 1];
+        this.edgeLabel = new char[nodes - 1];
+        this.edgeTarget = new int[nodes - 1];
+        int edges = 0;
+        for (int n = 0; n < nodes; n++) {
+            edgeStart[n] = edges;
+            for (int child = firstChild[n]; child >= 0; child = nextSibling[child]) {
+                edgeLabel[edges] = label[child];
+                edgeTarget[edges] = child;
+                edges++;
+            }
+        }
+        edgeStart[nodes] = edges;
+        this.output = Arrays.copyOf(outputs, nodes);
+
+        // Breadth-first pass to compute failure and dictionary links
+        this.fail = new int[nodes];
+        this.dictLink = new int[nodes];
+        dictLink[0] = -1;
+        int[] queue = new int[nodes];
+        int head = 0;
+        int tail = 0;
+        for (int e = edgeStart[0]; e < edgeStart[1]; e++) {
+            fail[edgeTarget[e]] = 0;
+            dictLink[edgeTarget[e]] = -1;
+            queue[tail++] = edgeTarget[e];
+        }
+        while (head < tail) {
+            int node = queue[head++];
+            for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+                int child = edgeTarget[e];
+                int f = fail[node];
+                int target;
+                while ((target = transition(f, edgeLabel[e])) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[child] = target >= 0 ? target : 0;
+                dictLink[child] = output[fail[child]] >= 0 ? fail[child] : dictLink[fail[child]];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    /**
+     * Follow the trie edge labelled c from node, or return -1 if there is none.
+     */
+    private int transition(int node, char c) {
+        int lo = edgeStart[node];
+        int hi = edgeStart[node + 1] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char label = edgeLabel[mid];
+            if (label < c) {
+                lo = mid + 1;
+            } else if (label > c) {
+                hi = mid - 1;
+            } else {
+                return edgeTarget[mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the longest pattern contained in the text.
+     * Ties are broken by the lowest pattern id.
+     * @return The pattern id, or -1 if no pattern occurs in the text
+     */
+    public int longestMatch(CharSequence text) {
+        int best = -1;
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = transition(node, c)) < 0 && node != 0) {
+                node = fail[node];
+            }
+            node = next >= 0 ? next : 0;
+            for (int n = output[node] >= 0 ? node : dictLink[node]; n >= 0; n = dictLink[n]) {
+                int id = output[n];
+                if (best < 0 || patternLength[id] > patternLength[best]
+                        || (patternLength[id] == patternLength[best] && id < best)) {
+                    best = id;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Set bit id of found (word id / 64) for every pattern contained in the text.
+     * The array must have room for every pattern id.
+     */
+    public void markMatches(CharSequence text, long[] found) {
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = transition(node, c)) < 0 && node != 0) {
+                node = fail[node];
+            }
+            node = next >= 0 ? next : 0;
+            for (int n = output[node] >= 0 ? node : dictLink[node]; n >= 0; n = dictLink[n]) {
+                found[output[n] >>> 6] |= 1L << output[n];
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.chatbot;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Bots that can answer without making the caller wait. The default implementation runs the
+ * synchronous respond on the executor it is given, so every Bot subclass is asynchronous
+ * as it is; bots that wait on something slow themselves can override respondAsync instead.
+ */
+public interface AsyncRespondable extends Respondable {
+    /**
+     * Start generating a response.
+     * @param input The user's message, normalized once for the whole turn
+     * @param executor Where to run work that would otherwise block
+     * @return The bot's response, once it is ready
+     */
+    default CompletableFuture<String> respondAsync(NormalizedInput input, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> respond(input), executor);
+    }
+}
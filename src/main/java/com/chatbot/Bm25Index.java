@@ -0,0 +1,523 @@
+package com.chatbot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Immutable BM25 index over knowledge base keys for ranked retrieval by term overlap.
+ * Each key is a document; postings are primitive int arrays of document ids and term
+ * frequencies. New keys go into a small pending list that becomes a level once full,
+ * merged with smaller levels the same way as KeyIndex, so learning never rebuilds the
+ * whole index. Collection statistics (document count, lengths, document frequencies)
+ * are summed over all levels, so scores do not depend on how keys are split.
+ * Queries skip documents that only contain terms too weak to reach the top k (MaxScore).
+ */
+public final class Bm25Index {
+    /**
+     * Lowest confidence a hit needs, set with -Dchatbot.retrieval.minConfidence.
+     * Confidence is the score divided by the summed idf of the key's own terms, so a query
+     * containing every term of an average-length key scores about 1 however much else it says.
+     */
+    public static final double MIN_CONFIDENCE =
+            Double.parseDouble(System.getProperty("chatbot.retrieval.minConfidence", "0.5"));
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int PENDING_LIMIT = 64;
+    private static final int MAGIC = 0x43424958; // "CBIX"
+    private static final int VERSION = 1;
+
+    public static final Bm25Index EMPTY = new Bm25Index(new Level[0], new String[0], 0, 0);
+
+    private final Level[] levels; // Largest first
+    private final String[] pending;
+    private final int documentCount;
+    private final long totalLength; // Tokens in all documents
+
+    /**
+     * One retrieved key with its BM25 score and confidence (score over the key's summed idf, at most 1).
+     */
+    public static final class Hit {
+        public final String key;
+        public final double score;
+        public final double confidence;
+
+        private Hit(String key, double score, double confidence) {
+            this.key = key;
+            this.score = score;
+            this.confidence = confidence;
+        }
+    }
+
+    /**
+     * Sorted documents with their postings in compressed sparse row form.
+     */
+    private static final class Level {
+        final String[] documents;
+        final int[] documentLengths;
+        final String[] terms; // Sorted
+        final int[] offsets; // Postings of term t are at offsets[t] .. offsets[t + 1] - 1
+        final int[] postingDocuments; // Ascending within each term
+        final int[] postingFrequencies;
+        final long totalLength;
+
+        Level(String[] documents, int[] documentLengths, String[] terms, int[] offsets,
+              int[] postingDocuments, int[] postingFrequencies) {
+            this.documents = documents;
+            this.documentLengths = documentLengths;
+            this.terms = terms;
+            this.offsets = offsets;
+            this.postingDocuments = postingDocuments;
+            this.postingFrequencies = postingFrequencies;
+            long total = 0;
+            for (int length : documentLengths) {
+                total += length;
+            }
+            this.totalLength = total;
+        }
+
+        static Level build(String[] documents) {
+            Arrays.sort(documents);
+            int[] lengths = new int[documents.length];
+            HashMap<String, int[]> postings = new HashMap<>(); // Term to [size, doc, tf, doc, tf, ...]
+            HashMap<String, Integer> frequencies = new HashMap<>();
+            for (int d = 0; d < documents.length; d++) {
+                String[] tokens = tokenize(documents[d]);
+                lengths[d] = tokens.length;
+                frequencies.clear();
+                for (String token : tokens) {
+                    frequencies.merge(token, 1, Integer::sum);
+                }
+                for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                    int[] list = postings.getOrDefault(entry.getKey(), new int[5]);
+                    if (list[0] + 3 > list.length) {
+                        list = Arrays.copyOf(list, list.length * 2 + 1);
+                    }
+                    list[list[0] + 1] = d;
+                    list[list[0] + 2] = entry.getValue();
+                    list[0] += 2;
+                    postings.put(entry.getKey(), list);
+                }
+            }
+
+            String[] terms = postings.keySet().toArray(new String[0]);
+            Arrays.sort(terms);
+            int[] offsets = new int[terms.length + 1];
+            for (int t = 0; t < terms.length; t++) {
+                offsets[t + 1] = offsets[t] + postings.get(terms[t])[0] / 2;
+            }
+            int[] postingDocuments = new int[offsets[terms.length]];
+            int[] postingFrequencies = new int[offsets[terms.length]];
+            for (int t = 0; t < terms.length; t++) {
+                int[] list = postings.get(terms[t]);
+                for (int i = 0; i < list[0] / 2; i++) {
+                    postingDocuments[offsets[t] + i] = list[1 + 2 * i];
+                    postingFrequencies[offsets[t] + i] = list[2 + 2 * i];
+                }
+            }
+            return new Level(documents, lengths, terms, offsets, postingDocuments, postingFrequencies);
+        }
+
+        int termId(String term) {
+            int id = Arrays.binarySearch(terms, term);
+            return id >= 0 ? id : -1;
+        }
+
+        int documentFrequency(int term) {
+            return term < 0 ? 0 : offsets[term + 1] - offsets[term];
+        }
+
+        /**
+         * Term frequency of a term in a document, or 0.
+         */
+        int frequency(int term, int document) {
+            int i = Arrays.binarySearch(postingDocuments, offsets[term], offsets[term + 1], document);
+            return i >= 0 ? postingFrequencies[i] : 0;
+        }
+    }
+
+    private Bm25Index(Level[] levels, String[] pending, int documentCount, long totalLength) {
+        this.levels = levels;
+        this.pending = pending;
+        this.documentCount = documentCount;
+        this.totalLength = totalLength;
+    }
+
+    /**
+     * Build an index over the given distinct keys.
+     */
+    public static Bm25Index build(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return EMPTY;
+        }
+        Level level = Level.build(keys.toArray(new String[0]));
+        return new Bm25Index(new Level[] {level}, new String[0], level.documents.length, level.totalLength);
+    }
+
+    /**
+     * Return an index that also covers a key not yet in this index.
+     */
+    public Bm25Index with(String key) {
+        String[] added = Arrays.copyOf(pending, pending.length + 1);
+        added[pending.length] = key;
+        int count = documentCount + 1;
+        long length = totalLength + tokenize(key).length;
+        if (added.length < PENDING_LIMIT) {
+            return new Bm25Index(levels, added, count, length);
+        }
+
+        // Turn the pending keys into a level, absorbing every level that is not larger
+        ArrayList<String> merged = new ArrayList<>(Arrays.asList(added));
+        int kept = levels.length;
+        while (kept > 0 && levels[kept - 1].documents.length <= merged.size()) {
+            merged.addAll(Arrays.asList(levels[--kept].documents));
+        }
+        Level[] newLevels = Arrays.copyOf(levels, kept + 1);
+        newLevels[kept] = Level.build(merged.toArray(new String[0]));
+        return new Bm25Index(newLevels, new String[0], count, length);
+    }
+
+    public int size() {
+        return documentCount;
+    }
+
+    /**
+     * Check whether a key is indexed.
+     */
+    public boolean contains(String key) {
+        for (Level level : levels) {
+            if (Arrays.binarySearch(level.documents, key) >= 0) {
+                return true;
+            }
+        }
+        return Arrays.asList(pending).contains(key);
+    }
+
+    /**
+     * Check that every indexed key is one of the given keys, so the index can be reused for them.
+     */
+    public boolean indexesOnly(Set<String> keys) {
+        for (Level level : levels) {
+            for (String document : level.documents) {
+                if (!keys.contains(document)) {
+                    return false;
+                }
+            }
+        }
+        for (String key : pending) {
+            if (!keys.contains(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find the k keys with the highest BM25 score for a query, best first, keeping only
+     * those whose confidence reaches MIN_CONFIDENCE. Ties go to the alphabetically first key.
+     */
+    public List<Hit> search(String query, int k) {
+        return search(NormalizedInput.of(query), k);
+    }
+
+    /**
+     * Same as search(String, int), reusing the tokens of an already normalized query.
+     */
+    public List<Hit> search(NormalizedInput query, int k) {
+        String[] queryTerms = distinct(query.tokens());
+        if (queryTerms.length == 0 || documentCount == 0 || k <= 0) {
+            return Collections.emptyList();
+        }
+        double averageLength = Math.max(1, (double) totalLength / documentCount);
+        String[][] pendingTokens = new String[pending.length][];
+        for (int i = 0; i < pending.length; i++) {
+            pendingTokens[i] = tokenize(pending[i]);
+        }
+
+        // Terms in ascending order of their best possible contribution, idf * (k1 + 1)
+        double[] idf = new double[queryTerms.length];
+        for (int q = 0; q < queryTerms.length; q++) {
+            idf[q] = idf(queryTerms[q], pendingTokens);
+        }
+        int[] order = new int[queryTerms.length];
+        for (int q = 0; q < order.length; q++) {
+            // Insertion sort: queries have a handful of terms, and ties keep their query order
+            int i = q;
+            while (i > 0 && idf[order[i - 1]] > idf[q]) {
+                order[i] = order[i - 1];
+                i--;
+            }
+            order[i] = q;
+        }
+        double[] bounds = new double[order.length + 1]; // bounds[i] = summed bound of the i weakest terms
+        for (int i = 0; i < order.length; i++) {
+            bounds[i + 1] = bounds[i] + idf[order[i]] * (K1 + 1);
+        }
+
+        PriorityQueue<Hit> best = new PriorityQueue<>(k + 1, Bm25Index::compareHits);
+        for (Level level : levels) {
+            int[] termIds = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                termIds[i] = level.termId(queryTerms[order[i]]);
+            }
+            searchLevel(level, termIds, order, idf, bounds, averageLength, k, best);
+        }
+        for (int i = 0; i < pending.length; i++) {
+            double score = 0;
+            for (int q = 0; q < queryTerms.length; q++) {
+                int tf = 0;
+                for (String token : pendingTokens[i]) {
+                    tf += token.equals(queryTerms[q]) ? 1 : 0;
+                }
+                score += contribution(idf[q], tf, pendingTokens[i].length, averageLength);
+            }
+            offer(best, pending[i], score, k);
+        }
+
+        // Confidence is how much of the key's own idf weight the query covered
+        ArrayList<Hit> hits = new ArrayList<>();
+        for (Hit hit : best) {
+            double keyWeight = 0;
+            for (String term : distinct(tokenize(hit.key))) {
+                keyWeight += idf(term, pendingTokens);
+            }
+            double confidence = Math.min(1, hit.score / keyWeight);
+            if (confidence >= MIN_CONFIDENCE) {
+                hits.add(new Hit(hit.key, hit.score, confidence));
+            }
+        }
+        hits.sort(Collections.reverseOrder(Bm25Index::compareHits));
+        return hits;
+    }
+
+    /**
+     * Inverse document frequency of a term, from document frequencies summed over every level and the pending keys.
+     */
+    private double idf(String term, String[][] pendingTokens) {
+        int df = 0;
+        for (Level level : levels) {
+            df += level.documentFrequency(level.termId(term));
+        }
+        for (String[] tokens : pendingTokens) {
+            df += Arrays.asList(tokens).contains(term) ? 1 : 0;
+        }
+        return Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+    }
+
+    /**
+     * Score the documents of one level with MaxScore: documents are taken in order from the
+     * postings of the strong terms only, where the weak terms are the longest prefix of
+     * terms whose bounds sum to less than the current k-th best score. Weak terms are then
+     * probed by binary search only while the document can still enter the top k.
+     */
+    private static void searchLevel(Level level, int[] termIds, int[] order, double[] idf, double[] bounds,
+                                    double averageLength, int k, PriorityQueue<Hit> best) {
+        int[] cursors = new int[termIds.length];
+        int[] ends = new int[termIds.length];
+        for (int i = 0; i < termIds.length; i++) {
+            cursors[i] = termIds[i] >= 0 ? level.offsets[termIds[i]] : 0;
+            ends[i] = termIds[i] >= 0 ? level.offsets[termIds[i] + 1] : 0;
+        }
+        int weak = weakTerms(bounds, threshold(best, k));
+        while (true) {
+            int document = Integer.MAX_VALUE;
+            for (int i = weak; i < termIds.length; i++) {
+                if (cursors[i] < ends[i]) {
+                    document = Math.min(document, level.postingDocuments[cursors[i]]);
+                }
+            }
+            if (document == Integer.MAX_VALUE) {
+                return;
+            }
+            int length = level.documentLengths[document];
+            double score = 0;
+            for (int i = weak; i < termIds.length; i++) {
+                if (cursors[i] < ends[i] && level.postingDocuments[cursors[i]] == document) {
+                    score += contribution(idf[order[i]], level.postingFrequencies[cursors[i]], length, averageLength);
+                    cursors[i]++;
+                }
+            }
+            for (int i = weak - 1; i >= 0 && score + bounds[i + 1] >= threshold(best, k); i--) {
+                if (termIds[i] >= 0) {
+                    score += contribution(idf[order[i]], level.frequency(termIds[i], document), length, averageLength);
+                }
+            }
+            if (offer(best, level.documents[document], score, k)) {
+                weak = weakTerms(bounds, threshold(best, k));
+            }
+        }
+    }
+
+    /**
+     * Number of weakest terms whose bounds together stay below the threshold.
+     */
+    private static int weakTerms(double[] bounds, double threshold) {
+        int weak = 0;
+        while (weak + 1 < bounds.length && bounds[weak + 1] < threshold) {
+            weak++;
+        }
+        return weak;
+    }
+
+    /**
+     * Lowest score that can still enter the top k.
+     */
+    private static double threshold(PriorityQueue<Hit> best, int k) {
+        return best.size() < k ? 0 : best.peek().score;
+    }
+
+    /**
+     * Add a scored key to the top k if it beats the worst one kept.
+     * @return Whether the top k changed
+     */
+    private static boolean offer(PriorityQueue<Hit> best, String key, double score, int k) {
+        if (score <= 0) {
+            return false;
+        }
+        Hit hit = new Hit(key, score, 0);
+        if (best.size() < k) {
+            best.add(hit);
+            return true;
+        }
+        if (compareHits(hit, best.peek()) > 0) {
+            best.poll();
+            best.add(hit);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Order hits from worst to best: lower score first, then the alphabetically later key.
+     */
+    private static int compareHits(Hit a, Hit b) {
+        int byScore = Double.compare(a.score, b.score);
+        return byScore != 0 ? byScore : b.key.compareTo(a.key);
+    }
+
+    private static double contribution(double idf, int tf, int length, double averageLength) {
+        if (tf == 0) {
+            return 0;
+        }
+        return idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+    }
+
+    /**
+     * Split text into lowercase runs of letters and digits, the same tokens NormalizedInput finds.
+     */
+    public static String[] tokenize(String text) {
+        return NormalizedInput.of(text).tokens();
+    }
+
+    private static String[] distinct(String[] tokens) {
+        return tokens.length < 2 ? tokens : Arrays.stream(tokens).distinct().toArray(String[]::new);
+    }
+
+    /**
+     * Write the index, with the pending keys as one more level, replacing the file atomically.
+     * Layout (big-endian): int magic, int version, int levelCount, then per level:
+     *   int documentCount, documents, int[documentCount] lengths,
+     *   int termCount, terms, int[termCount + 1] offsets, int[] posting documents, int[] posting frequencies;
+     * strings are an int byte length followed by UTF-8 bytes.
+     */
+    public void write(File file) throws IOException {
+        ArrayList<Level> all = new ArrayList<>(Arrays.asList(levels));
+        if (pending.length > 0) {
+            all.add(Level.build(pending.clone()));
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(all.size());
+            for (Level level : all) {
+                writeStrings(out, level.documents);
+                writeInts(out, level.documentLengths);
+                writeStrings(out, level.terms);
+                writeInts(out, level.offsets);
+                writeInts(out, level.postingDocuments);
+                writeInts(out, level.postingFrequencies);
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read an index written by write.
+     */
+    public static Bm25Index read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a retrieval index");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported retrieval index version " + version);
+            }
+            Level[] levels = new Level[in.readInt()];
+            int documents = 0;
+            long length = 0;
+            for (int l = 0; l < levels.length; l++) {
+                levels[l] = new Level(readStrings(in), readInts(in), readStrings(in), readInts(in),
+                                      readInts(in), readInts(in));
+                documents += levels[l].documents.length;
+                length += levels[l].totalLength;
+            }
+            Arrays.sort(levels, (a, b) -> Integer.compare(b.documents.length, a.documents.length));
+            return new Bm25Index(levels, new String[0], documents, length);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+        out.writeInt(strings.length);
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    private static int[] readInts(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[4 * in.readInt()];
+        in.readFully(bytes);
+        int[] values = new int[bytes.length / 4];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(values); // Big-endian, as DataOutputStream wrote them
+        return values;
+    }
+}
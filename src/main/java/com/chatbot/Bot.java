@@ -1,29 +1,50 @@
 package com.chatbot;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Scanner;
-import java.util.TreeSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 /**
  * Base Bot class that provides core chatbot functionality.
- * Uses HashMap for Q&A storage, ArrayList for chat history, and TreeSet for topics.
+ * Uses a shared KnowledgeStore for Q&A storage, a ChatHistory ring for chat history, and a sorted set for topics.
  */
-public class Bot implements Respondable {
+public class Bot implements AsyncRespondable {
+    private static final String NAME_KEY = "what is your name";
+
     protected String name;
-    protected HashMap<String, String> knowledgeBase; // Stores question-answer pairs
-    protected ArrayList<Message> chatHistory; // Stores conversation history
-    protected TreeSet<String> topics; // Tracks different conversation topics
-    protected String dataFile = "chatbot_data.txt"; // File for persisting learned responses
+    private String type; // The registry name this bot was created under, or null if created directly
+    protected KnowledgeStore knowledgeStore; // Question-answer pairs shared by all bots
+    protected ConcurrentHashMap<String, String> personalKnowledge; // Answers specific to this bot, override the store
+    protected ChatHistory chatHistory; // Recent conversation in memory, the rest streamed to disk
+    protected ConcurrentSkipListSet<String> topics; // Tracks different conversation topics, in order
+    protected String dataFile; // File for persisting learned responses
+    protected final BotMetrics metrics; // Shared by every bot with this name
+    private MatchPath lastMatchPath = MatchPath.DEFAULT;
+    private MatchPath currentMatchPath; // Set by generateResponse, null while a personality answers
 
     public Bot(String name) {
+        this(name, "chatbot_data.txt");
+    }
+
+    /**
+     * Create a bot that shares the knowledge base stored in the given file.
+     */
+    public Bot(String name, String dataFile) {
         this.name = name;
-        this.knowledgeBase = new HashMap<>();
-        this.chatHistory = new ArrayList<>();
-        this.topics = new TreeSet<>();
+        this.dataFile = dataFile;
+        this.personalKnowledge = new ConcurrentHashMap<>();
+        this.chatHistory = new ChatHistory(name);
+        this.topics = new ConcurrentSkipListSet<>();
+        this.metrics = BotMetrics.forBot(name);
         loadKnowledgeBase(); // Load previously learned responses
     }
 
@@ -31,12 +52,18 @@ public class Bot implements Respondable {
      * Initialize the knowledge base with default responses.
      */
     protected void initializeDefaultKnowledge() {
-        knowledgeBase.put("hello", "Hello! How can I help you today?");
-        knowledgeBase.put("hi", "Hi there! What would you like to talk about?");
-        knowledgeBase.put("how are you", "I'm doing great, thanks for asking! How about you?");
-        knowledgeBase.put("what is your name", "My name is " + name + ". Nice to meet you!");
-        knowledgeBase.put("bye", "Goodbye! It was nice chatting with you!");
-        knowledgeBase.put("goodbye", "See you later! Have a great day!");
+        LinkedHashMap<String, String> defaults = new LinkedHashMap<>();
+        defaults.put("hello", "Hello! How can I help you today?");
+        defaults.put("hi", "Hi there! What would you like to talk about?");
+        defaults.put("how are you", "I'm doing great, thanks for asking! How about you?");
+        defaults.put("bye", "Goodbye! It was nice chatting with you!");
+        defaults.put("goodbye", "See you later! Have a great day!");
+        knowledgeStore.putDefaults(defaults);
+
+        // The name answer differs per bot, so only the key goes into the shared store
+        String nameAnswer = "My name is " + name + ". Nice to meet you!";
+        knowledgeStore.putDefaultIfAbsent(NAME_KEY, nameAnswer);
+        personalKnowledge.put(NAME_KEY, nameAnswer);
         
         topics.add("greetings");
         topics.add("introduction");
@@ -45,73 +72,162 @@ public class Bot implements Respondable {
 
     /**
      * Main response method that processes user input.
+     * Times the reply and records which path produced it; subclasses override generateResponse.
+     */
+    @Override
+    public final String respond(String userInput) {
+        return respond(NormalizedInput.of(userInput));
+    }
+
+    /**
+     * Respond to input that was normalized once for the whole turn.
      */
     @Override
-    public String respond(String userInput) {
-        if (userInput == null || userInput.trim().isEmpty()) {
+    public final String respond(NormalizedInput input) {
+        long start = System.nanoTime();
+        currentMatchPath = null;
+        String response = generateResponse(input);
+        lastMatchPath = currentMatchPath != null ? currentMatchPath : MatchPath.PERSONALITY;
+        metrics.recordRespond(lastMatchPath, System.nanoTime() - start);
+        return response;
+    }
+
+    /**
+     * Produce the reply from the knowledge base. Personalities override this to answer
+     * their own keywords first and call super for everything else.
+     */
+    protected String generateResponse(NormalizedInput input) {
+        if (input.isEmpty()) {
+            currentMatchPath = MatchPath.DEFAULT;
             return "I didn't catch that. Could you please say something?";
         }
 
-        String lowerInput = userInput.toLowerCase().trim();
-        
+        String lowerInput = input.text();
+
         // Check if we know the answer
-        String response = knowledgeBase.get(lowerInput);
-        
+        String response = personalKnowledge.get(lowerInput);
         if (response != null) {
+            currentMatchPath = MatchPath.EXACT;
+            TopicTracker.get().record(lowerInput);
             return response;
         }
 
-        // Check for partial matches (only if input is at least 3 characters to avoid false matches)
-        if (lowerInput.length() >= 3) {
-            for (String key : knowledgeBase.keySet()) {
-                // Only match if key is at least 3 characters and there's meaningful overlap
-                if (key.length() >= 3 && (lowerInput.contains(key) || key.contains(lowerInput))) {
-                    return knowledgeBase.get(key);
-                }
-            }
+        // Exact, partial, fuzzy or retrieval match in the shared knowledge base, cached per normalized input
+        KnowledgeStore.Match match = knowledgeStore.match(input);
+        if (match.key != null) {
+            currentMatchPath = match.path;
+            TopicTracker.get().record(match.key); // Trending topics count the questions people ask
+            return lookup(knowledgeStore.snapshot(), match.key);
         }
 
         // Default response if no match found
+        currentMatchPath = MatchPath.DEFAULT;
         return "That's interesting! Could you tell me more about that, or teach me by saying 'teach me: [your question] -> [my answer]'?";
     }
 
+    /**
+     * Make this bot's random choices repeatable, so a replay can be compared with a golden
+     * file. Bots that make no random choices ignore it.
+     */
+    public void seed(long seed) {
+    }
+
+    /**
+     * Whether replies depend on earlier turns, such as a game in progress or the jokes
+     * already told. A replay answers such a bot's turns in order, with a single bot.
+     */
+    public boolean remembersTurns() {
+        return false;
+    }
+
+    /**
+     * Which path produced the most recent reply of this bot.
+     */
+    public MatchPath lastMatchPath() {
+        return lastMatchPath;
+    }
+
+    /**
+     * Get the metrics shared by every bot with this bot's name.
+     */
+    public BotMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Look up the answer for an exact key, preferring this bot's personal answers.
+     */
+    private String lookup(KnowledgeStore.Snapshot knowledge, String key) {
+        String answer = personalKnowledge.get(key);
+        return answer != null ? answer : knowledge.get(key);
+    }
+
     /**
      * Learn a new question-answer pair from the user.
      */
     public String learn(String question, String answer) {
+        long start = System.nanoTime();
         String key = question.toLowerCase().trim();
-        knowledgeBase.put(key, answer);
-        saveKnowledgeBase(); // Persist to file
+        personalKnowledge.remove(key); // What the user taught wins over the built-in answer
+        try {
+            knowledgeStore.learn(key, answer); // Persisted to the log; compaction updates the file
+        } catch (IOException e) {
+            System.err.println("Warning: Could not save learned response: " + e.getMessage());
+        }
+        metrics.recordLearn(System.nanoTime() - start);
         return "Thanks! I've learned that. I'll remember: '" + question + "' -> '" + answer + "'";
     }
 
+    /**
+     * Teach every valid pair in a CSV, JSON Lines or knowledge base file at once.
+     */
+    public KnowledgeImporter.Result importKnowledge(File file) throws IOException {
+        KnowledgeStore.Snapshot before = knowledgeStore.snapshot();
+        KnowledgeImporter.Result result = new KnowledgeImporter().importFile(file, knowledgeStore);
+        KnowledgeStore.Snapshot after = knowledgeStore.snapshot();
+        // As with learn, imported answers win over this bot's built-in ones
+        personalKnowledge.keySet().removeIf(key -> !Objects.equals(before.get(key), after.get(key)));
+        return result;
+    }
+
     /**
      * Add a message to chat history.
      */
     public void addToHistory(String userInput, String botResponse) {
-        Message message = new Message(userInput, botResponse);
-        chatHistory.add(message);
+        chatHistory.add(userInput, botResponse);
+    }
+
+    /**
+     * Continue the history logged under a fixed id in earlier runs, so history pages and
+     * search include it. Does nothing once this bot has a history of its own.
+     */
+    public void continueHistory(String historyId) {
+        if (chatHistory.isEmpty()) {
+            chatHistory = ChatHistory.continued(historyId);
+        }
     }
 
     /**
      * Get the chat history.
      */
-    public ArrayList<Message> getChatHistory() {
+    public ChatHistory getChatHistory() {
         return chatHistory;
     }
 
     /**
      * Get all tracked topics.
      */
-    public TreeSet<String> getTopics() {
+    public NavigableSet<String> getTopics() {
         return topics;
     }
 
     /**
-     * Add a topic to tracking.
+     * Add a topic to tracking, and count the mention in the trending topics of all bots.
      */
     public void addTopic(String topic) {
-        topics.add(topic.toLowerCase());
+        String lower = topic.toLowerCase();
+        topics.add(lower);
+        TopicTracker.get().record(lower);
     }
 
     @Override
@@ -120,65 +236,93 @@ public class Bot implements Respondable {
     }
 
     /**
-     * Save the knowledge base to a file.
+     * The personality type this bot was created as, which Bot.create takes. Bots created
+     * directly rather than through the PersonalityRegistry use their lowercase name.
+     */
+    public String getType() {
+        return type != null ? type : name.toLowerCase();
+    }
+
+    void setType(String type) {
+        this.type = type;
+    }
+
+    /**
+     * Create a new bot by personality type, such as chatbot, jokebot, gamebot or advicebot.
+     * @throws IllegalArgumentException if the type is unknown or is not a Bot
+     */
+    public static Bot create(String type) {
+        Respondable personality = PersonalityRegistry.shared().create(type);
+        if (!(personality instanceof Bot)) {
+            throw new IllegalArgumentException(type + " is not a Bot");
+        }
+        return (Bot) personality;
+    }
+
+    /**
+     * Write this bot's conversation state, so an idle session can be evicted and restored.
+     * The knowledge base is shared and saved on its own; chat history messages are already
+     * in the history log, so only the history's position is written.
+     * Subclasses with state of their own call super first.
+     */
+    protected void writeState(DataOutputStream out) throws IOException {
+        chatHistory.writeState(out);
+        out.writeInt(personalKnowledge.size());
+        for (Map.Entry<String, String> entry : personalKnowledge.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeUTF(entry.getValue());
+        }
+        out.writeInt(topics.size());
+        for (String topic : topics) {
+            out.writeUTF(topic);
+        }
+        out.writeByte(lastMatchPath.ordinal());
+    }
+
+    /**
+     * Restore state written by writeState into a freshly created bot of the same type.
+     */
+    protected void readState(DataInputStream in) throws IOException {
+        chatHistory = ChatHistory.readState(in);
+        personalKnowledge.clear();
+        for (int i = in.readInt(); i > 0; i--) {
+            personalKnowledge.put(in.readUTF(), in.readUTF());
+        }
+        topics.clear();
+        for (int i = in.readInt(); i > 0; i--) {
+            topics.add(in.readUTF());
+        }
+        lastMatchPath = MatchPath.values()[in.readByte()];
+    }
+
+    /**
+     * Save the whole knowledge base to a file.
      * Uses a custom delimiter (|||) to avoid conflicts with user data containing pipes.
      */
     protected void saveKnowledgeBase() {
-        try (PrintWriter writer = new PrintWriter(dataFile)) {
-            for (String key : knowledgeBase.keySet()) {
-                // Use ||| as delimiter to avoid conflicts with user data containing pipes
-                String escapedKey = key.replace("\n", "\\n").replace("|||", "|");
-                String escapedValue = knowledgeBase.get(key).replace("\n", "\\n").replace("|||", "|");
-                writer.println(escapedKey + "|||" + escapedValue);
-            }
-        } catch (FileNotFoundException e) {
+        long start = System.nanoTime();
+        try {
+            knowledgeStore.save();
+        } catch (IOException e) {
             System.err.println("Warning: Could not save knowledge base: " + e.getMessage());
         } catch (Exception e) {
             System.err.println("Error saving knowledge base: " + e.getMessage());
         }
+        metrics.recordSave(System.nanoTime() - start);
     }
 
     /**
-     * Load the knowledge base from a file.
+     * Attach to the shared knowledge base, which is loaded from the file (and the learn
+     * log replayed on top of it) by the first bot that uses it.
      */
     protected final void loadKnowledgeBase() {
-        File file = new File(dataFile);
-        if (!file.exists()) {
-            initializeDefaultKnowledge();
-            return;
-        }
-
-        try (Scanner scanner = new Scanner(file)) {
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine().trim();
-                if (!line.isEmpty() && line.contains("|||")) {
-                    String[] parts = line.split("\\|\\|\\|", 2);
-                    if (parts.length == 2) {
-                        // Unescape newlines and restore pipes
-                        String key = parts[0].replace("\\n", "\n").replace("|", "|||");
-                        String value = parts[1].replace("\\n", "\n").replace("|", "|||");
-                        knowledgeBase.put(key, value);
-                    }
-                } else if (!line.isEmpty() && line.contains("|")) {
-                    // Backward compatibility with old format
-                    String[] parts = line.split("\\|", 2);
-                    if (parts.length == 2) {
-                        knowledgeBase.put(parts[0], parts[1]);
-                    }
-                }
-            }
-            // If file was empty or had no valid entries, initialize defaults
-            if (knowledgeBase.isEmpty()) {
-                initializeDefaultKnowledge();
-            }
-        } catch (FileNotFoundException e) {
-            // File doesn't exist yet, that's fine - use defaults
-            initializeDefaultKnowledge();
-        } catch (Exception e) {
-            System.err.println("Warning: Error loading knowledge base: " + e.getMessage());
-            System.err.println("Initializing with default knowledge...");
+        long start = System.nanoTime();
+        knowledgeStore = KnowledgeStore.forFile(dataFile);
+        // If file was missing, empty or had no valid entries, initialize defaults
+        if (knowledgeStore.snapshot().size() == 0) {
             initializeDefaultKnowledge();
         }
+        metrics.recordLoad(System.nanoTime() - start);
     }
 
     /**
@@ -191,9 +335,9 @@ public class Bot implements Respondable {
                 return;
             }
             writer.println("Chat History - " + java.time.LocalDateTime.now());
-            writer.println("Total messages: " + chatHistory.size());
+            writer.println("Total messages: " + chatHistory.totalCount());
             writer.println("===========================================");
-            for (Message message : chatHistory) {
+            for (Message message : chatHistory.range(0, chatHistory.totalCount())) {
                 writer.println(message.toString());
                 writer.println("---");
             }
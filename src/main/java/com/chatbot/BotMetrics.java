@@ -0,0 +1,166 @@
+package com.chatbot;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms for every bot with the same name, shared by all of
+ * its instances and exported over JMX. Recording only touches LongAdders and atomic
+ * arrays, so it never allocates on the response path.
+ */
+public class BotMetrics implements BotMetricsMXBean {
+    private static final ConcurrentHashMap<String, BotMetrics> METRICS = new ConcurrentHashMap<>();
+
+    private final String botName;
+    private final LongAdder[] pathCounts = new LongAdder[MatchPath.values().length];
+    private final LatencyHistogram respondLatency = new LatencyHistogram();
+    private final LatencyHistogram learnLatency = new LatencyHistogram();
+    private final LatencyHistogram saveLatency = new LatencyHistogram();
+    private final LatencyHistogram loadLatency = new LatencyHistogram();
+
+    private BotMetrics(String botName) {
+        this.botName = botName;
+        for (int i = 0; i < pathCounts.length; i++) {
+            pathCounts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Get the metrics for a bot name, creating and registering them on first use.
+     */
+    public static BotMetrics forBot(String botName) {
+        return METRICS.computeIfAbsent(botName, BotMetrics::create);
+    }
+
+    private static BotMetrics create(String botName) {
+        BotMetrics metrics = new BotMetrics(botName);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics,
+                    new ObjectName("com.chatbot:type=BotMetrics,name=" + ObjectName.quote(botName)));
+        } catch (JMException e) {
+            System.err.println("Warning: Could not register metrics for " + botName + ": " + e.getMessage());
+        }
+        return metrics;
+    }
+
+    public void recordRespond(MatchPath path, long nanos) {
+        pathCounts[path.ordinal()].increment();
+        respondLatency.record(nanos);
+    }
+
+    public void recordLearn(long nanos) {
+        learnLatency.record(nanos);
+    }
+
+    public void recordSave(long nanos) {
+        saveLatency.record(nanos);
+    }
+
+    public void recordLoad(long nanos) {
+        loadLatency.record(nanos);
+    }
+
+    @Override
+    public long getResponses() {
+        return respondLatency.getCount();
+    }
+
+    @Override
+    public Map<String, Long> getMatchPathCounts() {
+        TreeMap<String, Long> counts = new TreeMap<>();
+        for (MatchPath path : MatchPath.values()) {
+            counts.put(path.name(), pathCounts[path.ordinal()].sum());
+        }
+        return counts;
+    }
+
+    @Override
+    public double getRespondMeanNanos() {
+        return respondLatency.getMean();
+    }
+
+    @Override
+    public long getRespondP50Nanos() {
+        return respondLatency.getPercentile(0.50);
+    }
+
+    @Override
+    public long getRespondP99Nanos() {
+        return respondLatency.getPercentile(0.99);
+    }
+
+    @Override
+    public long getRespondMaxNanos() {
+        return respondLatency.getMax();
+    }
+
+    @Override
+    public long getLearns() {
+        return learnLatency.getCount();
+    }
+
+    @Override
+    public long getLearnP99Nanos() {
+        return learnLatency.getPercentile(0.99);
+    }
+
+    @Override
+    public long getSaves() {
+        return saveLatency.getCount();
+    }
+
+    @Override
+    public long getSaveP99Nanos() {
+        return saveLatency.getPercentile(0.99);
+    }
+
+    @Override
+    public long getLoads() {
+        return loadLatency.getCount();
+    }
+
+    @Override
+    public long getLoadP99Nanos() {
+        return loadLatency.getPercentile(0.99);
+    }
+
+    /**
+     * Format the metrics of every bot that has been used, for the 'stats' command.
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        for (BotMetrics metrics : new TreeMap<>(METRICS).values()) {
+            report.append(metrics.botName).append(":\n");
+            report.append("  responses: ").append(metrics.getResponses());
+            for (MatchPath path : MatchPath.values()) {
+                report.append(", ").append(path.name().toLowerCase()).append(' ')
+                      .append(metrics.pathCounts[path.ordinal()].sum());
+            }
+            report.append('\n');
+            report.append("  respond: ").append(describe(metrics.respondLatency)).append('\n');
+            report.append("  learn:   ").append(describe(metrics.learnLatency)).append('\n');
+            report.append("  save:    ").append(describe(metrics.saveLatency)).append('\n');
+            report.append("  load:    ").append(describe(metrics.loadLatency)).append('\n');
+        }
+        return report.toString();
+    }
+
+    private static String describe(LatencyHistogram histogram) {
+        if (histogram.getCount() == 0) {
+            return "no calls";
+        }
+        return histogram.getCount() + " calls, mean " + micros(histogram.getMean()) +
+               ", p50 " + micros(histogram.getPercentile(0.50)) +
+               ", p99 " + micros(histogram.getPercentile(0.99)) +
+               ", max " + micros(histogram.getMax());
+    }
+
+    private static String micros(double nanos) {
+        return String.format("%.1fus", nanos / 1000);
+    }
+}
@@ -0,0 +1,36 @@
+package com.chatbot;
+
+import java.util.Map;
+
+/**
+ * JMX view of one bot's metrics, registered as com.chatbot:type=BotMetrics,name=[bot name].
+ * Latencies are in nanoseconds.
+ */
+public interface BotMetricsMXBean {
+    long getResponses();
+
+    /**
+     * Number of replies produced by each match path, keyed by MatchPath name.
+     */
+    Map<String, Long> getMatchPathCounts();
+
+    double getRespondMeanNanos();
+
+    long getRespondP50Nanos();
+
+    long getRespondP99Nanos();
+
+    long getRespondMaxNanos();
+
+    long getLearns();
+
+    long getLearnP99Nanos();
+
+    long getSaves();
+
+    long getSaveP99Nanos();
+
+    long getLoads();
+
+    long getLoadP99Nanos();
+}
@@ -1,22 +1,80 @@
 package com.chatbot;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Main ChatBot application that coordinates different bot personalities.
  * Demonstrates core Java concepts: variables, conditionals, loops, functions, classes, and Collections.
  */
 public class ChatBot {
+    private static final int HISTORY_PAGE_SIZE = 10;
+    private static final int TRENDING_TOPICS = 10;
+    static final int MAX_QUESTION_LENGTH = 200;
+    static final int MAX_ANSWER_LENGTH = 500;
+    private static final String CONSOLE_HISTORY = "console-"; // Plus the bot name: the log id of its history across runs
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private final PersonalityRegistry personalities;
     private Bot currentBot;
+    private EnsembleRouter router; // Null unless router mode is on
     private final Scanner scanner;
     private final boolean running;
+    private final ExecutorService workers; // Bots answer here, so the input loop never waits for them
+    private final long turnDeadlineMillis;
+    private CompletableFuture<Void> pending = DONE; // The last queued step; steps run one after another
+    private CompletableFuture<Void> lastAnswer = DONE; // The bot's last turn, which may outlive its deadline
+
+    /**
+     * A reply ready to print.
+     */
+    private static final class Reply {
+        final String botName;
+        final String response;
+
+        Reply(String botName, String response) {
+            this.botName = botName;
+            this.response = response;
+        }
+    }
 
     public ChatBot() {
-        this.scanner = new Scanner(System.in);
+        this(System.in, null, Long.getLong("chatbot.turn.deadlineMillis", 5000L));
+    }
+
+    /**
+     * Create a chatbot reading from in, starting with bot (or the base ChatBot when null).
+     */
+    ChatBot(InputStream in, Bot bot, long turnDeadlineMillis) {
+        this.scanner = new Scanner(in);
         this.running = true;
+        this.workers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "chatbot-turn");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.turnDeadlineMillis = turnDeadlineMillis;
+        this.personalities = PersonalityRegistry.shared();
+        if (Boolean.getBoolean("chatbot.personalities.warmUp")) {
+            Thread warmUp = new Thread(personalities::warmUp, "personality-warm-up");
+            warmUp.setDaemon(true);
+            warmUp.start();
+        }
         // Start with base Bot, but allow switching between personalities
-        this.currentBot = new Bot("ChatBot");
-        this.currentBot.initializeDefaultKnowledge();
+        if (bot == null) {
+            bot = (Bot) personalities.get("chatbot");
+            bot.continueHistory(CONSOLE_HISTORY + bot.getName());
+        }
+        this.currentBot = bot;
     }
 
     /**
@@ -38,82 +96,180 @@ public class ChatBot {
         System.out.println("\nI'm " + currentBot.getName() + ", your friendly chatbot!");
         System.out.println("\nAvailable commands:");
         System.out.println("  - Type 'help' to see all commands");
-        System.out.println("  - Type 'history' to view chat history");
+        System.out.println("  - Type 'history' to view chat history, or 'history search [words]' to search it");
         System.out.println("  - Type 'topics' to see tracked topics");
+        System.out.println("  - Type 'stats' to see response times and match paths");
         System.out.println("  - Type 'jokebot' to switch to JokeBot");
         System.out.println("  - Type 'gamebot' to switch to GameBot");
         System.out.println("  - Type 'advicebot' to switch to AdviceBot");
+        System.out.println("  - Type 'chatbot' to switch back to ChatBot");
+        System.out.println("  - Type 'router' to let every personality answer and keep the best reply");
         System.out.println("  - Type 'teach me: [question] -> [answer]' to teach me something");
+        System.out.println("  - Type 'import [file]' to teach me a whole file of questions and answers");
         System.out.println("  - Type 'exit' or 'quit' to end the conversation");
         System.out.println("\nLet's start chatting!\n");
     }
 
     /**
-     * Main conversation loop.
+     * Main conversation loop. This thread only reads input; each line becomes a step that runs
+     * after the previous one, so replies and command output come out in the order they were
+     * typed while the bot may still be working on an earlier message.
      */
     public void run() {
+        System.out.print("You: ");
         while (running) {
+            if (!scanner.hasNextLine()) {
+                // Handle EOF (Ctrl+D / Ctrl+Z)
+                pending.join();
+                System.out.println("\nDetected end of input. Exiting...");
+                break;
+            }
+            NormalizedInput input = NormalizedInput.of(scanner.nextLine()); // The only normalization this turn
+            String userInput = input.trimmed();
+            if (input.isEmpty()) {
+                continue;
+            }
+            if (input.text().equals("exit") || input.text().equals("quit")) {
+                break;
+            }
+            enqueue(() -> handle(userInput, input));
+        }
+
+        pending.join();
+        // Give a late reply one more deadline to reach the history before it is saved
+        lastAnswer.copy().completeOnTimeout(null, turnDeadlineMillis, TimeUnit.MILLISECONDS).join();
+        handleExit();
+        workers.shutdown();
+        if (scanner != null) {
+            scanner.close();
+        }
+    }
+
+    /**
+     * Queue a step to run after every step queued before it, then prompt for more input.
+     */
+    private void enqueue(Supplier<CompletableFuture<Void>> step) {
+        pending = pending.thenCompose(ignored -> {
             try {
-                System.out.print("You: ");
-                String userInput = scanner.nextLine();
-                
-                if (userInput == null) {
-                    // Handle EOF (Ctrl+D / Ctrl+Z)
-                    System.out.println("\nDetected end of input. Exiting...");
-                    handleExit();
-                    break;
-                }
-                
-                userInput = userInput.trim();
+                return step.get();
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }).exceptionally(e -> {
+            System.out.println("\nAn error occurred: " + cause(e).getMessage());
+            System.out.println("Please try again or type 'exit' to quit.\n");
+            return null;
+        }).thenRun(() -> System.out.print("You: "));
+    }
 
-                if (userInput.isEmpty()) {
-                    continue;
-                }
+    /**
+     * Handle one line of input: run a command, or ask the bot.
+     * @return When the line has been dealt with
+     */
+    private CompletableFuture<Void> handle(String userInput, NormalizedInput input) {
+        // Process commands
+        String command = input.text();
+
+        if (command.equals("help")) {
+            displayHelp();
+        } else if (command.equals("history") || command.startsWith("history ")) {
+            return afterLastAnswer(() -> displayHistory(command.substring("history".length()).trim()));
+        } else if (command.equals("topics")) {
+            displayTopics();
+        } else if (command.equals("stats")) {
+            displayStats();
+        } else if (command.equals("router")) {
+            toggleRouter();
+        } else if (command.startsWith("teach me:")) {
+            return afterLastAnswer(() -> handleTeaching(userInput));
+        } else if (command.startsWith("import ")) {
+            return afterLastAnswer(() -> handleImport(userInput.substring("import ".length()).trim()));
+        } else if (personalities.contains(command)) {
+            return afterLastAnswer(() -> switchTo(command)); // May continue the new bot's history
+        } else {
+            return reply(userInput, input);
+        }
+        return DONE;
+    }
+
+    /**
+     * Run a command that reads or changes the bot's history or knowledge once the bot's last
+     * turn has finished, even if it missed its deadline, so a late reply is recorded first.
+     */
+    private CompletableFuture<Void> afterLastAnswer(Runnable command) {
+        return lastAnswer.thenRun(command);
+    }
 
-                // Process commands
-                String command = userInput.toLowerCase();
-                
-                if (command.equals("exit") || command.equals("quit")) {
-                    handleExit();
-                    break;
-                } else if (command.equals("help")) {
-                    displayHelp();
-                    continue;
-                } else if (command.equals("history")) {
-                    displayHistory();
-                    continue;
-                } else if (command.equals("topics")) {
-                    displayTopics();
-                    continue;
-                } else if (command.equals("jokebot")) {
-                    switchToJokeBot();
-                    continue;
-                } else if (command.equals("gamebot")) {
-                    switchToGameBot();
-                    continue;
-                } else if (command.equals("advicebot")) {
-                    switchToAdviceBot();
-                    continue;
-                } else if (command.startsWith("teach me:")) {
-                    handleTeaching(userInput);
-                    continue;
+    /**
+     * Ask the bot, or every personality in router mode, without blocking the input loop.
+     * The turn deadline starts when the bot takes the turn; the bot's next turn waits for this
+     * one to finish, so a bot never answers two messages at once. A reply that misses the
+     * deadline is preceded by an apology and printed when it arrives, or its failure is. Only
+     * the real reply is recorded in history, never the apology.
+     */
+    private CompletableFuture<Void> reply(String userInput, NormalizedInput input) {
+        Bot bot = currentBot;
+        EnsembleRouter activeRouter = router;
+        CompletableFuture<Void> previous = lastAnswer;
+        CompletableFuture<Void> finished = new CompletableFuture<>();
+        lastAnswer = finished;
+        return previous.thenCompose(ignored -> {
+            CompletableFuture<Reply> answer = answer(bot, activeRouter, input);
+            CompletableFuture<Boolean> onTime = answer.thenApply(reply -> true)
+                    .completeOnTimeout(false, turnDeadlineMillis, TimeUnit.MILLISECONDS);
+            // Apologize before the turn counts as done, so the apology comes before the next prompt
+            CompletableFuture<Boolean> announced = onTime.thenApply(inTime -> {
+                if (!inTime) {
+                    System.out.println(bot.getName() + ": Sorry, I'm taking too long to answer that. I'll reply here when I'm done.");
                 }
+                return inTime;
+            });
+            CompletableFuture<Void> recorded = announced.thenCompose(inTime -> {
+                if (inTime) {
+                    return answer.thenAccept(reply -> record(bot, userInput, reply, false));
+                }
+                return answer.thenAccept(reply -> record(bot, userInput, reply, true)).exceptionally(error -> {
+                    // The turn has already moved on, so nothing else would report it
+                    System.out.println("\n" + bot.getName() + " couldn't answer \"" + userInput + "\": " + cause(error).getMessage());
+                    return null;
+                });
+            });
+            recorded.whenComplete((done, error) -> finished.complete(null));
+            return announced.thenCompose(inTime -> inTime ? recorded : DONE);
+        });
+    }
 
-                // Get bot response
-                String botResponse = currentBot.respond(userInput);
-                System.out.println(currentBot.getName() + ": " + botResponse);
-                
-                // Add to history
-                currentBot.addToHistory(userInput, botResponse);
-            } catch (Exception e) {
-                System.out.println("\nAn error occurred: " + e.getMessage());
-                System.out.println("Please try again or type 'exit' to quit.\n");
-            }
+    /**
+     * Print a reply and add it to the bot's history; the only place a turn is recorded.
+     */
+    private static void record(Bot bot, String userInput, Reply reply, boolean late) {
+        if (late) {
+            // The prompt for the next message may already be showing
+            System.out.println("\n" + reply.botName + " (late reply to \"" + userInput + "\"): " + reply.response);
+        } else {
+            System.out.println(reply.botName + ": " + reply.response);
         }
-        
-        if (scanner != null) {
-            scanner.close();
+
+        // Add to history
+        bot.addToHistory(userInput, reply.response);
+    }
+
+    private static Throwable cause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * Start the bot's answer, or the router's best one.
+     */
+    private CompletableFuture<Reply> answer(Bot bot, EnsembleRouter activeRouter, NormalizedInput input) {
+        if (activeRouter == null) {
+            return bot.respondAsync(input, workers).thenApply(response -> new Reply(bot.getName(), response));
         }
+        return CompletableFuture.supplyAsync(() -> {
+            EnsembleRouter.Candidate best = activeRouter.route(input);
+            return best != null ? new Reply(best.name, best.response)
+                    : new Reply(bot.getName(), "Sorry, none of us came up with an answer in time. Please try again.");
+        }, workers);
     }
 
     /**
@@ -123,36 +279,118 @@ public class ChatBot {
         System.out.println("\n═══════════════ HELP ═══════════════");
         System.out.println("Commands:");
         System.out.println("  help          - Show this help message");
-        System.out.println("  history       - View conversation history");
-        System.out.println("  topics        - See all tracked conversation topics");
+        System.out.println("  history [n]   - View conversation history, page n (1 = most recent)");
+        System.out.println("  history search <words> [since:WHEN] [until:WHEN] [page:N]");
+        System.out.println("                - Find messages with all the words; WHEN is 2024-05-01, 2024-05-01T14:30, 30m, 2h or 7d");
+        System.out.println("  topics        - See trending topics and all tracked conversation topics");
+        System.out.println("  stats         - See response times and which path answered, per bot");
         System.out.println("  jokebot       - Switch to JokeBot (tells jokes)");
         System.out.println("  gamebot       - Switch to GameBot (word games)");
         System.out.println("  advicebot     - Switch to AdviceBot (gives advice)");
+        System.out.println("  chatbot       - Switch back to ChatBot");
+        System.out.println("  router        - Toggle router mode (every personality answers, best reply wins)");
         System.out.println("  teach me: ... -> ... - Teach me a new Q&A pair");
+        System.out.println("  import <file> - Teach me every Q&A pair in a .csv, .jsonl or ||| file");
         System.out.println("  exit/quit     - End the conversation");
         System.out.println("═════════════════════════════════════\n");
     }
 
     /**
-     * Display chat history.
+     * Display one page of chat history, most recent page first.
      */
-    private void displayHistory() {
+    private void displayHistory(String pageArgument) {
+        if (pageArgument.equals("search") || pageArgument.startsWith("search ")) {
+            searchHistory(pageArgument.substring("search".length()).trim());
+            return;
+        }
         var history = currentBot.getChatHistory();
         if (history.isEmpty()) {
             System.out.println("No chat history yet. Start a conversation!");
-        } else {
-            System.out.println("\n═══════════════ CHAT HISTORY ═══════════════");
-            for (int i = 0; i < history.size(); i++) {
-                System.out.println("[" + (i + 1) + "] " + history.get(i).toString());
+            return;
+        }
+        long pages = (history.totalCount() + HISTORY_PAGE_SIZE - 1) / HISTORY_PAGE_SIZE;
+        long page = 1;
+        if (!pageArgument.isEmpty()) {
+            try {
+                page = Long.parseLong(pageArgument);
+            } catch (NumberFormatException e) {
+                System.out.println("Usage: history [page number]");
+                return;
             }
-            System.out.println("═══════════════════════════════════════════════\n");
         }
+        if (page < 1 || page > pages) {
+            System.out.println("There are only " + pages + " page(s) of history.");
+            return;
+        }
+
+        long to = history.totalCount() - (page - 1) * HISTORY_PAGE_SIZE;
+        long from = Math.max(0, to - HISTORY_PAGE_SIZE);
+        System.out.println("\n═══════════════ CHAT HISTORY (page " + page + " of " + pages + ") ═══════════════");
+        List<Message> messages = history.range(from, to);
+        long number = to - messages.size();
+        for (Message message : messages) {
+            System.out.println("[" + (++number) + "] " + message.toString());
+        }
+        if (page < pages) {
+            System.out.println("Type 'history " + (page + 1) + "' to see older messages.");
+        }
+        System.out.println("═══════════════════════════════════════════════\n");
+    }
+
+    /**
+     * Display one page of history search results, newest first.
+     */
+    private void searchHistory(String queryText) {
+        if (queryText.isEmpty()) {
+            System.out.println("Usage: history search <words> [since:WHEN] [until:WHEN] [page:N]");
+            return;
+        }
+        HistoryIndex.Query query;
+        try {
+            query = HistoryIndex.Query.parse(queryText);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Sorry, " + e.getMessage() + ".");
+            return;
+        }
+        var history = currentBot.getChatHistory();
+        HistoryIndex.Result result = history.search(query, HISTORY_PAGE_SIZE);
+        if (result.matches == 0) {
+            System.out.println("No messages match '" + queryText + "'.");
+            return;
+        }
+        long pages = (result.matches + HISTORY_PAGE_SIZE - 1) / HISTORY_PAGE_SIZE;
+        if (query.page > pages) {
+            System.out.println("There are only " + pages + " page(s) of results.");
+            return;
+        }
+        System.out.println("\n═══════════════ SEARCH RESULTS (" + result.matches + " match(es), page " +
+                           query.page + " of " + pages + ") ═══════════════");
+        List<Message> messages = history.messages(result.numbers);
+        for (int i = 0; i < messages.size(); i++) {
+            Message message = messages.get(i);
+            System.out.println("[" + (result.numbers[i] + 1) + "] " +
+                               (message != null ? message.toString() : "(no longer in the log)"));
+        }
+        if (query.page < pages) {
+            System.out.println("Add 'page:" + (query.page + 1) + "' to see older matches.");
+        }
+        System.out.println("═══════════════════════════════════════════════\n");
     }
 
     /**
-     * Display tracked topics.
+     * Display the trending topics of all bots, then the current bot's tracked topics.
      */
     private void displayTopics() {
+        List<TopicTracker.Trend> trends = TopicTracker.get().top(TRENDING_TOPICS);
+        if (!trends.isEmpty()) {
+            System.out.println("\n═══════════════ TRENDING TOPICS ═══════════════");
+            for (TopicTracker.Trend trend : trends) {
+                if (trend.count < 0.05) {
+                    break; // Faded away; sorted, so the rest have too
+                }
+                System.out.printf("  - %s (~%.1f recent mentions)%n", trend.topic, trend.count);
+            }
+        }
         var topics = currentBot.getTopics();
         if (topics.isEmpty()) {
             System.out.println("No topics tracked yet.");
@@ -165,10 +403,55 @@ public class ChatBot {
         }
     }
 
+    /**
+     * Display per-bot latency and match-path metrics.
+     */
+    private void displayStats() {
+        System.out.println("\n═══════════════ STATS ═══════════════");
+        System.out.print(BotMetrics.report());
+        ResponseCache cache = currentBot.knowledgeStore.responseCache();
+        System.out.printf("Response cache: %d entries, %d hits, %d misses (%.1f%% hit ratio)%n",
+                          cache.size(), cache.getHits(), cache.getMisses(), cache.getHitRatio() * 100);
+        System.out.println("Last reply of " + currentBot.getName() + ": " +
+                           currentBot.lastMatchPath().name().toLowerCase());
+        if (router != null) {
+            System.out.println("Router wins: " + router.getWins());
+        }
+        System.out.println("═════════════════════════════════════\n");
+    }
+
     /**
      * Handle teaching the bot new information.
      */
     private void handleTeaching(String userInput) {
+        System.out.println(currentBot.getName() + ": " + teach(currentBot, userInput));
+    }
+
+    /**
+     * Handle importing a file of Q&A pairs.
+     */
+    private void handleImport(String path) {
+        File file = new File(path);
+        if (!file.isFile()) {
+            System.out.println(currentBot.getName() + ": I couldn't find the file '" + path + "'.");
+            return;
+        }
+        System.out.println(currentBot.getName() + ": Importing " + file.getName() + "...");
+        try {
+            long start = System.nanoTime();
+            KnowledgeImporter.Result result = currentBot.importKnowledge(file);
+            System.out.printf("%s: %s (%.1f s)%n", currentBot.getName(), result, (System.nanoTime() - start) / 1e9);
+        } catch (IOException e) {
+            System.out.println(currentBot.getName() + ": Sorry, I couldn't import that file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Validate a "teach me: [question] -> [answer]" command and teach the bot.
+     * Successful lessons are added to the bot's history.
+     * @return The bot's reply
+     */
+    static String teach(Bot bot, String userInput) {
         try {
             // Format: "teach me: [question] -> [answer]"
             if (userInput.contains("->")) {
@@ -179,60 +462,61 @@ public class ChatBot {
                     
                     // Validate input
                     if (question.isEmpty()) {
-                        System.out.println(currentBot.getName() + ": Please provide a question to teach me.");
-                        return;
+                        return "Please provide a question to teach me.";
                     }
                     if (answer.isEmpty()) {
-                        System.out.println(currentBot.getName() + ": Please provide an answer to teach me.");
-                        return;
+                        return "Please provide an answer to teach me.";
                     }
                     
                     // Limit length to prevent abuse
-                    if (question.length() > 200) {
-                        System.out.println(currentBot.getName() + ": Question is too long (max 200 characters).");
-                        return;
+                    if (question.length() > MAX_QUESTION_LENGTH) {
+                        return "Question is too long (max " + MAX_QUESTION_LENGTH + " characters).";
                     }
-                    if (answer.length() > 500) {
-                        System.out.println(currentBot.getName() + ": Answer is too long (max 500 characters).");
-                        return;
+                    if (answer.length() > MAX_ANSWER_LENGTH) {
+                        return "Answer is too long (max " + MAX_ANSWER_LENGTH + " characters).";
                     }
                     
-                    String response = currentBot.learn(question, answer);
-                    System.out.println(currentBot.getName() + ": " + response);
-                    currentBot.addToHistory(userInput, response);
-                    return;
+                    String response = bot.learn(question, answer);
+                    bot.addToHistory(userInput, response);
+                    return response;
                 }
             }
-            System.out.println(currentBot.getName() + ": I didn't understand that format. " +
-                             "Please use: teach me: [your question] -> [my answer]");
+            return "I didn't understand that format. " +
+                   "Please use: teach me: [your question] -> [my answer]";
         } catch (Exception e) {
-            System.out.println(currentBot.getName() + ": Sorry, I had trouble learning that: " + 
-                             e.getMessage() + ". Please try again.");
+            return "Sorry, I had trouble learning that: " + e.getMessage() + ". Please try again.";
         }
     }
 
     /**
-     * Switch to JokeBot personality.
-     */
-    private void switchToJokeBot() {
-        currentBot = new JokeBot();
-        System.out.println("\nSwitched to JokeBot! Want to hear a joke? Just ask!\n");
-    }
-
-    /**
-     * Switch to GameBot personality.
+     * Switch to a registered personality. Each personality is created the first time and
+     * reused after that, so its history and any game in progress are still there.
      */
-    private void switchToGameBot() {
-        currentBot = new GameBot();
-        System.out.println("\nSwitched to GameBot! Say 'game' or 'play' to start a word game!\n");
+    private void switchTo(String name) {
+        Respondable personality = personalities.get(name);
+        if (!(personality instanceof Bot)) {
+            System.out.println("\n" + personality.getName() + " can only answer in router mode.\n");
+            return;
+        }
+        currentBot = (Bot) personality;
+        currentBot.continueHistory(CONSOLE_HISTORY + currentBot.getName());
+        System.out.println("\n" + personality.getGreeting() + "\n");
     }
 
     /**
-     * Switch to AdviceBot personality.
+     * Turn router mode on or off. In router mode every personality answers each message
+     * in parallel and the best-scored reply is shown.
      */
-    private void switchToAdviceBot() {
-        currentBot = new AdviceBot();
-        System.out.println("\nSwitched to AdviceBot! Ask me for advice on programming, studying, time management, or career!\n");
+    private void toggleRouter() {
+        if (router != null) {
+            router.close();
+            router = null;
+            System.out.println("\nRouter mode off. Back to talking with " + currentBot.getName() + ".\n");
+            return;
+        }
+        // Fresh instances, so router threads never share a bot with the conversation
+        router = new EnsembleRouter(personalities.names().stream().map(personalities::create).toList());
+        System.out.println("\nRouter mode on! Every personality will answer and the best reply wins.\n");
     }
 
     /**
@@ -240,6 +524,9 @@ public class ChatBot {
      */
     private void handleExit() {
         System.out.println("\nSaving chat history...");
+        if (router != null) {
+            router.close();
+        }
         currentBot.saveChatHistory("chat_history.txt");
         System.out.println("Chat history saved to chat_history.txt");
         System.out.println("\nThanks for chatting! Goodbye!\n");
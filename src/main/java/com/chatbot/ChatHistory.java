@@ -0,0 +1,300 @@
+package com.chatbot;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chat history of one bot, keeping only the most recent messages in a ring. The ring starts
+ * small and grows with the conversation up to its capacity, so idle bots cost little. It is stored column by column: timestamps in a long[], repeated bot responses as
+ * ResponseInterner ids, and user inputs (plus any response that is not interned) as UTF-8
+ * in a circular byte arena. Message objects are created only when read.
+ * Every message is also streamed to the shared HistoryLog, so older pages are read back
+ * from disk. Messages are numbered from 0 in the order they were added. A HistoryIndex
+ * over the newest messages answers searches, and older ones are searched in the log.
+ * Methods are synchronized, since a late reply may be recorded while the history is read.
+ */
+public class ChatHistory {
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+    private static final byte[] NO_BYTES = new byte[0];
+    private static final int INITIAL_SLOTS = 16;
+
+    private final String id; // Identifies this history's lines in the log
+    private final HistoryLog log;
+    private final int capacity;
+    private long total; // Messages ever added
+    private long restored; // Messages added before the history was restored; they are only on disk
+    private HistoryIndex index; // Covers one to two capacities of the newest messages
+
+    // One slot per message in memory; message n lives in slot n % slots, and slots grows up to capacity
+    private long[] epochNanos;
+    private int[] responseIds; // ResponseInterner id, or NOT_INTERNED if the text is in the arena
+    private long[] entryStart; // Arena position of the user input, followed by the response text
+    private int[] inputLength;
+    private int[] responseLength; // Bytes of response text in the arena, 0 when interned
+
+    // Circular byte arena addressed by ever-increasing positions; position p lives at p % arena.length
+    private byte[] arena;
+    private long arenaEnd;
+
+    public ChatHistory(String owner) {
+        this(owner, Integer.getInteger("chatbot.history.capacity", 1000), HistoryLog.get());
+    }
+
+    public ChatHistory(String owner, int capacity, HistoryLog log) {
+        this(owner + "-" + ProcessHandle.current().pid() + "-" + NEXT_ID.incrementAndGet(), log, capacity);
+    }
+
+    private ChatHistory(String id, HistoryLog log, int capacity) {
+        this.id = id;
+        this.log = log;
+        this.capacity = capacity;
+        this.index = new HistoryIndex(capacity);
+        int slots = Math.min(capacity, INITIAL_SLOTS);
+        this.epochNanos = new long[slots];
+        this.responseIds = new int[slots];
+        this.entryStart = new long[slots];
+        this.inputLength = new int[slots];
+        this.responseLength = new int[slots];
+        this.arena = new byte[slots * 32];
+    }
+
+    public synchronized void add(String userInput, String botResponse) {
+        long now = Message.nowEpochNanos();
+        int responseId = ResponseInterner.intern(botResponse);
+        byte[] input = userInput.getBytes(StandardCharsets.UTF_8);
+        byte[] response = responseId == ResponseInterner.NOT_INTERNED
+                ? botResponse.getBytes(StandardCharsets.UTF_8) : NO_BYTES;
+
+        ensureSlots();
+        ensureArenaSpace(input.length + response.length);
+        int slot = slot(total);
+        epochNanos[slot] = now;
+        responseIds[slot] = responseId;
+        entryStart[slot] = arenaEnd;
+        inputLength[slot] = input.length;
+        responseLength[slot] = response.length;
+        writeArena(input);
+        writeArena(response);
+
+        log.append(id, total, now, userInput, botResponse);
+        index.add(total, now, userInput, botResponse);
+        total++;
+    }
+
+    private int slot(long number) {
+        return (int) (number % epochNanos.length);
+    }
+
+    /**
+     * Double the slot columns, up to capacity, when the next message would otherwise
+     * overwrite one that should stay in the ring.
+     */
+    private void ensureSlots() {
+        int slots = epochNanos.length;
+        if (slots == capacity || total - restored < slots) {
+            return;
+        }
+        int grownSlots = (int) Math.min(capacity, 2L * slots);
+        long[] grownEpochNanos = new long[grownSlots];
+        int[] grownResponseIds = new int[grownSlots];
+        long[] grownEntryStart = new long[grownSlots];
+        int[] grownInputLength = new int[grownSlots];
+        int[] grownResponseLength = new int[grownSlots];
+        for (long n = total - size(); n < total; n++) {
+            int from = slot(n);
+            int to = (int) (n % grownSlots);
+            grownEpochNanos[to] = epochNanos[from];
+            grownResponseIds[to] = responseIds[from];
+            grownEntryStart[to] = entryStart[from];
+            grownInputLength[to] = inputLength[from];
+            grownResponseLength[to] = responseLength[from];
+        }
+        epochNanos = grownEpochNanos;
+        responseIds = grownResponseIds;
+        entryStart = grownEntryStart;
+        inputLength = grownInputLength;
+        responseLength = grownResponseLength;
+    }
+
+    /**
+     * Grow the arena if writing length more bytes would overwrite a message still in the ring.
+     */
+    private void ensureArenaSpace(int length) {
+        // Messages that survive this add: all of them, or all but the one being overwritten
+        long retained = Math.min(total - restored, capacity - 1);
+        long liveStart = retained == 0 ? arenaEnd : entryStart[slot(total - retained)];
+        long needed = arenaEnd + length - liveStart;
+        if (needed <= arena.length) {
+            return;
+        }
+        byte[] grown = new byte[(int) Math.max(needed, 2L * arena.length)];
+        for (long p = liveStart; p < arenaEnd; p++) {
+            grown[(int) (p % grown.length)] = arena[(int) (p % arena.length)];
+        }
+        arena = grown;
+    }
+
+    private void writeArena(byte[] bytes) {
+        for (byte b : bytes) {
+            arena[(int) (arenaEnd++ % arena.length)] = b;
+        }
+    }
+
+    private String readArena(long start, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = arena[(int) ((start + i) % arena.length)];
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Build a Message from the columns of one slot.
+     */
+    private Message messageAt(int slot) {
+        String userInput = readArena(entryStart[slot], inputLength[slot]);
+        String botResponse = responseIds[slot] == ResponseInterner.NOT_INTERNED
+                ? readArena(entryStart[slot] + inputLength[slot], responseLength[slot])
+                : ResponseInterner.get(responseIds[slot]);
+        return new Message(userInput, botResponse, epochNanos[slot]);
+    }
+
+    /**
+     * Number of messages ever added, including those only on disk.
+     */
+    public synchronized long totalCount() {
+        return total;
+    }
+
+    /**
+     * Number of messages held in memory.
+     */
+    public synchronized int size() {
+        return (int) Math.min(total - restored, capacity);
+    }
+
+    public synchronized boolean isEmpty() {
+        return total == 0;
+    }
+
+    /**
+     * Get a message held in memory; index 0 is the oldest one still in memory.
+     */
+    public synchronized Message get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("History index " + index + " out of range");
+        }
+        return messageAt(slot(total - size() + index));
+    }
+
+    /**
+     * Write where this history is in the log. Its messages are already there, so that is all
+     * readState needs to continue the same history.
+     */
+    public synchronized void writeState(DataOutputStream out) throws IOException {
+        out.writeUTF(id);
+        out.writeLong(total);
+    }
+
+    /**
+     * Continue a history written by writeState. Its earlier messages are read from the log.
+     */
+    public static ChatHistory readState(DataInputStream in) throws IOException {
+        ChatHistory history = new ChatHistory(in.readUTF(), HistoryLog.get(),
+                Integer.getInteger("chatbot.history.capacity", 1000));
+        history.restore(in.readLong());
+        return history;
+    }
+
+    /**
+     * Continue the history logged under a fixed id, such as one personality's console
+     * conversation across runs. Its earlier messages are read from the log.
+     */
+    public static ChatHistory continued(String id) {
+        return continued(id, Integer.getInteger("chatbot.history.capacity", 1000), HistoryLog.get());
+    }
+
+    public static ChatHistory continued(String id, int capacity, HistoryLog log) {
+        ChatHistory history = new ChatHistory(id, log, capacity);
+        history.restore(log.next(id));
+        return history;
+    }
+
+    /**
+     * Start numbering after the given number of messages, which are only in the log.
+     */
+    private void restore(long messages) {
+        total = messages;
+        restored = messages;
+        index = new HistoryIndex(capacity, messages);
+    }
+
+    /**
+     * Search every message of this history, including those only on disk.
+     * @return One page of matching message numbers, newest first; read them with messages
+     */
+    public synchronized HistoryIndex.Result search(HistoryIndex.Query query, int pageSize) {
+        HistoryIndex.Pager pager = new HistoryIndex.Pager(query, pageSize);
+        index.search(query, pager);
+        long first = index.first();
+        if (first > 0) {
+            // Older messages, including those from before a restore, are only checked in the log
+            ArrayList<Long> older = new ArrayList<>();
+            log.scan(id, number -> number < first, (number, message) -> {
+                if (HistoryIndex.matches(query, message)) {
+                    older.add(number);
+                }
+            });
+            for (int i = older.size() - 1; i >= 0; i--) {
+                pager.offer(older.get(i));
+            }
+        }
+        return pager.result();
+    }
+
+    /**
+     * Get the messages with the given numbers, in the same order, reading from disk in one
+     * pass what is no longer in memory. Messages rotated out of the log are null.
+     */
+    public synchronized List<Message> messages(long[] numbers) {
+        long firstInMemory = total - size();
+        HashMap<Long, Message> fromDisk = new HashMap<>();
+        for (long number : numbers) {
+            if (number < firstInMemory) {
+                fromDisk.put(number, null);
+            }
+        }
+        if (!fromDisk.isEmpty()) {
+            log.scan(id, fromDisk::containsKey, fromDisk::put);
+        }
+        ArrayList<Message> messages = new ArrayList<>(numbers.length);
+        for (long number : numbers) {
+            messages.add(number < firstInMemory ? fromDisk.get(number) : messageAt(slot(number)));
+        }
+        return messages;
+    }
+
+    /**
+     * Get the messages numbered [from, to), oldest first, reading from disk what is
+     * no longer in memory.
+     */
+    public synchronized List<Message> range(long from, long to) {
+        from = Math.max(0, from);
+        to = Math.min(total, to);
+        ArrayList<Message> messages = new ArrayList<>();
+        long firstInMemory = total - size();
+        if (from < firstInMemory) {
+            messages.addAll(log.read(id, from, Math.min(to, firstInMemory)));
+        }
+        for (long n = Math.max(from, firstInMemory); n < to; n++) {
+            messages.add(messageAt(slot(n)));
+        }
+        return messages;
+    }
+}
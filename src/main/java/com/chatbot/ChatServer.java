@@ -0,0 +1,197 @@
+package com.chatbot;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Multi-session chat server speaking a line-based protocol over TCP on localhost.
+ * Every connection gets its own bots, so conversations and games never mix, while the
+ * knowledge base is shared through the KnowledgeStore. Each request line gets exactly one
+ * response line of the form "[BotName]: [response]", with newlines inside the response
+ * sent as "\n". Sessions that go quiet are hibernated to disk by a SessionManager, so only
+ * active conversations hold their bots in memory.
+ */
+public class ChatServer {
+    private final int port;
+    private final int maxSessions;
+    private final int idleTimeoutMillis;
+    private final Semaphore sessions;
+
+    public ChatServer(int port, int maxSessions, int idleTimeoutMillis) {
+        this.port = port;
+        this.maxSessions = maxSessions;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.sessions = new Semaphore(maxSessions);
+    }
+
+    /**
+     * Start the server: java com.chatbot.ChatServer [port]
+     * Limits come from chatbot.server.maxSessions and chatbot.server.idleTimeoutSeconds;
+     * hibernation settings are described in SessionManager.fromSystemProperties.
+     */
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        ChatServer server = new ChatServer(port,
+                Integer.getInteger("chatbot.server.maxSessions", 10000),
+                Integer.getInteger("chatbot.server.idleTimeoutSeconds", 300) * 1000);
+        try {
+            server.serve();
+        } catch (IOException e) {
+            System.err.println("Error running chat server: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Accept connections until the process exits.
+     */
+    public void serve() throws IOException {
+        ExecutorService executor = newPerConnectionExecutor();
+        try (SessionManager manager = SessionManager.fromSystemProperties();
+             ServerSocket serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress())) {
+            System.out.println("ChatServer listening on " + serverSocket.getLocalSocketAddress() +
+                               " (max " + maxSessions + " sessions)");
+            while (true) {
+                Socket socket = serverSocket.accept();
+                if (!sessions.tryAcquire()) {
+                    reject(socket);
+                    continue;
+                }
+                executor.execute(() -> {
+                    try {
+                        handle(socket, manager);
+                    } finally {
+                        sessions.release();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Use one virtual thread per connection when the runtime supports them (Java 21+),
+     * otherwise fall back to a cached pool of platform threads.
+     */
+    private static ExecutorService newPerConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private void reject(Socket socket) {
+        try (Socket s = socket;
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            out.println("ChatServer: Sorry, the server is busy. Please try again later.");
+        } catch (IOException e) {
+            // Client already gone
+        }
+    }
+
+    /**
+     * Run one conversation until the client quits, disconnects or goes idle.
+     */
+    private void handle(Socket socket, SessionManager manager) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            s.setSoTimeout(idleTimeoutMillis);
+            Session session = new Session(manager);
+            try {
+                out.println(session.botName + ": Hello! Type 'help' to see what I can do.");
+                String line;
+                while ((line = in.readLine()) != null) {
+                    String reply = session.handle(line.trim());
+                    if (reply == null) {
+                        out.println(session.botName + ": Goodbye!");
+                        break;
+                    }
+                    out.println(session.botName + ": " + reply.replace("\n", "\\n"));
+                }
+            } catch (SocketTimeoutException e) {
+                out.println(session.botName + ": Closing this session after being idle for too long.");
+            } finally {
+                manager.close(session.id);
+            }
+        } catch (IOException e) {
+            // Connection dropped; nothing to clean up beyond the socket
+        }
+    }
+
+    /**
+     * Per-connection conversation state. The bots themselves are kept by the SessionManager and
+     * only borrowed while a line is handled, so an idle session's bots can be hibernated.
+     */
+    private static class Session {
+        private final SessionManager manager;
+        private final long id;
+        private String botName;
+        private Bot bot; // Only set while a line is being handled
+
+        Session(SessionManager manager) {
+            Bot bot = Bot.create("chatbot");
+            this.manager = manager;
+            this.id = manager.open(bot);
+            this.botName = bot.getName();
+        }
+
+        /**
+         * Handle one line of input.
+         * @return The reply, or null if the client wants to end the session
+         */
+        String handle(String userInput) throws IOException {
+            bot = manager.acquire(id);
+            try {
+                return respond(userInput);
+            } finally {
+                botName = bot.getName();
+                manager.release(id, bot);
+                bot = null;
+            }
+        }
+
+        private String respond(String userInput) {
+            NormalizedInput input = NormalizedInput.of(userInput);
+            String command = input.text();
+            if (input.isEmpty()) {
+                return "I didn't catch that. Could you please say something?";
+            } else if (command.equals("exit") || command.equals("quit")) {
+                return null;
+            } else if (command.equals("help")) {
+                return "Commands: " + String.join(", ", PersonalityRegistry.shared().names()) + ", teach me: [question] -> [answer], exit/quit";
+            } else if (PersonalityRegistry.shared().contains(command)) {
+                // Switching back resumes that personality's conversation, history and game included
+                Bot kept = manager.personality(id, command);
+                if (kept != null) {
+                    bot = kept;
+                    return kept.getGreeting();
+                }
+                Respondable personality = PersonalityRegistry.shared().create(command);
+                if (!(personality instanceof Bot)) {
+                    return personality.getName() + " is not available here.";
+                }
+                bot = (Bot) personality;
+                return personality.getGreeting();
+            } else if (command.startsWith("teach me:")) {
+                return ChatBot.teach(bot, userInput);
+            }
+
+            String response = bot.respond(input);
+            bot.addToHistory(userInput, response);
+            return response;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.chatbot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends each input to every registered personality at once and keeps the best-scored reply.
+ * Personalities run on a bounded pool and the turn waits at most the latency budget;
+ * replies still missing then are cancelled, and a personality still busy with an earlier
+ * turn sits the next one out instead of being used by two threads. Equal scores go to the
+ * personality that has won most often, which is also the one submitted first.
+ */
+public class EnsembleRouter implements AutoCloseable {
+    private static final double BEST_SCORE = 1.0;
+    private static final double UNSCORED = 0.5; // For personalities that cannot say how they matched
+
+    private final Slot[] slots;
+    private final ThreadPoolExecutor executor;
+    private final long budgetNanos;
+
+    /**
+     * One personality's reply to a turn.
+     */
+    public static final class Candidate {
+        public final String name;
+        public final String response;
+        public final MatchPath path; // Null for personalities that are not Bots
+        public final double score;
+
+        Candidate(String name, String response, MatchPath path, double score) {
+            this.name = name;
+            this.response = response;
+            this.path = path;
+            this.score = score;
+        }
+    }
+
+    private static final class Slot {
+        final Respondable respondent;
+        final int order; // Registration order, the last tie-breaker
+        final AtomicBoolean busy = new AtomicBoolean();
+        final LongAdder wins = new LongAdder();
+
+        Slot(Respondable respondent, int order) {
+            this.respondent = respondent;
+            this.order = order;
+        }
+    }
+
+    /**
+     * Create a router over the given personalities, with the pool size and budget
+     * from -Dchatbot.router.threads and -Dchatbot.router.budgetMillis.
+     */
+    public EnsembleRouter(List<? extends Respondable> personalities) {
+        this(personalities,
+             Integer.getInteger("chatbot.router.threads",
+                     Math.min(personalities.size(), Runtime.getRuntime().availableProcessors())),
+             Long.getLong("chatbot.router.budgetMillis", 200L));
+    }
+
+    public EnsembleRouter(List<? extends Respondable> personalities, int threads, long budgetMillis) {
+        this.slots = new Slot[personalities.size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot(personalities.get(i), i);
+        }
+        int poolSize = Math.max(1, threads);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, slots.length)), runnable -> {
+                    Thread thread = new Thread(runnable, "router-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    }
+
+    /**
+     * Score a Bot's reply by the path that produced it: a personality's own handler is the
+     * most specific answer, then the knowledge base stages from exact to retrieval.
+     */
+    public static double score(MatchPath path) {
+        switch (path) {
+            case PERSONALITY:
+                return BEST_SCORE;
+            case EXACT:
+                return 0.9;
+            case PARTIAL:
+                return 0.7;
+            case FUZZY:
+                return 0.6;
+            case RETRIEVAL:
+                return 0.5;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Get the best reply available within the budget.
+     * @return The winning candidate, or null if no personality answered in time
+     */
+    public Candidate route(NormalizedInput input) {
+        long deadline = System.nanoTime() + budgetNanos;
+        Slot[] ranked = slots.clone();
+        Arrays.sort(ranked, Comparator.comparingLong((Slot slot) -> -slot.wins.sum()).thenComparingInt(slot -> slot.order));
+
+        CompletionService<Candidate> completion = new ExecutorCompletionService<>(executor);
+        Map<Future<Candidate>, Integer> rankOf = new LinkedHashMap<>();
+        boolean[] done = new boolean[ranked.length];
+        for (int rank = 0; rank < ranked.length; rank++) {
+            Slot slot = ranked[rank];
+            if (slot.busy.get()) {
+                done[rank] = true; // Still working on an earlier turn
+                continue;
+            }
+            try {
+                rankOf.put(completion.submit(() -> ask(slot, input)), rank);
+            } catch (RejectedExecutionException e) {
+                done[rank] = true;
+            }
+        }
+
+        Candidate best = null;
+        int bestRank = Integer.MAX_VALUE;
+        int pending = rankOf.size();
+        try {
+            while (pending > 0 && !isSettled(best, bestRank, done)) {
+                long remaining = deadline - System.nanoTime();
+                Future<Candidate> future = remaining > 0 ? completion.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                if (future == null) {
+                    break; // Budget spent
+                }
+                pending--;
+                int rank = rankOf.remove(future);
+                done[rank] = true;
+                Candidate candidate = result(future);
+                if (candidate != null && (best == null || candidate.score > best.score
+                        || (candidate.score == best.score && rank < bestRank))) {
+                    best = candidate;
+                    bestRank = rank;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Future<Candidate> straggler : rankOf.keySet()) {
+            straggler.cancel(true);
+        }
+        executor.purge(); // Cancelled tasks would otherwise hold their queue places
+        if (best != null) {
+            ranked[bestRank].wins.increment();
+        }
+        return best;
+    }
+
+    /**
+     * The best possible score is in and nothing ranked ahead of it can still tie with it.
+     */
+    private static boolean isSettled(Candidate best, int bestRank, boolean[] done) {
+        if (best == null || best.score < BEST_SCORE) {
+            return false;
+        }
+        for (int rank = 0; rank < bestRank; rank++) {
+            if (!done[rank]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Candidate ask(Slot slot, NormalizedInput input) {
+        // Claimed here rather than at submit, so a task cancelled while queued leaves no claim behind
+        if (!slot.busy.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            Respondable respondent = slot.respondent;
+            String response = respondent.respond(input);
+            if (response == null) {
+                return null;
+            }
+            if (respondent instanceof Bot) {
+                MatchPath path = ((Bot) respondent).lastMatchPath();
+                return new Candidate(respondent.getName(), response, path, score(path));
+            }
+            return new Candidate(respondent.getName(), response, null, UNSCORED);
+        } finally {
+            slot.busy.set(false);
+        }
+    }
+
+    private static Candidate result(Future<Candidate> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            System.err.println("Warning: A personality failed to respond: " + e.getCause());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * How many turns each personality has won, most frequent first.
+     */
+    public Map<String, Long> getWins() {
+        ArrayList<Slot> ranked = new ArrayList<>(Arrays.asList(slots));
+        ranked.sort(Comparator.comparingLong((Slot slot) -> -slot.wins.sum()).thenComparingInt(slot -> slot.order));
+        LinkedHashMap<String, Long> wins = new LinkedHashMap<>();
+        for (Slot slot : ranked) {
+            wins.put(slot.respondent.getName(), slot.wins.sum());
+        }
+        return wins;
+    }
+
+    /**
+     * Stop the worker threads. Replies still being computed are abandoned.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -1,41 +1,66 @@
 package com.chatbot;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.Random;
 
 /**
- * GameBot extends Bot and specializes in word games.
+ * GameBot extends Bot and specializes in word games. Words come from the shared
+ * WordDictionary, and guessed letters are kept as a 26-bit mask (bit 0 = 'a').
  */
 public class GameBot extends Bot {
+    private enum Intent { START_GAME, HINT }
+
+    private static final IntentRouter<Intent> INTENTS = new IntentRouter.Builder<Intent>()
+            .rule(Intent.START_GAME, 2, IntentRouter.anyOf("game", "play"))
+            .rule(Intent.HINT, 1, IntentRouter.anyOf("guess", "hint"))
+            .build();
+
+    private final WordDictionary dictionary;
     private final Random random;
     private String currentWord;
     private int wordLength;
-    private final StringBuilder guessedLetters;
+    private int wordMask;     // Letters in the current word
+    private int guessedMask;  // Letters guessed so far
     private int guessCount;
 
     public GameBot() {
+        this(WordDictionary.get());
+    }
+
+    /**
+     * Create a GameBot that picks its words from the given dictionary.
+     * @throws IllegalArgumentException if the dictionary has no words
+     */
+    public GameBot(WordDictionary dictionary) {
         super("GameBot");
+        if (dictionary.size() == 0) {
+            throw new IllegalArgumentException("GameBot needs a dictionary with at least one word");
+        }
+        this.dictionary = dictionary;
         this.random = new Random();
-        this.guessedLetters = new StringBuilder();
         this.guessCount = 0;
         initializeDefaultKnowledge();
     }
 
     @Override
-    public String respond(String userInput) {
-        String lowerInput = userInput.toLowerCase().trim();
+    public String getGreeting() {
+        return "Switched to GameBot! Say 'game' or 'play' to start a word game!";
+    }
+
+    @Override
+    protected String generateResponse(NormalizedInput input) {
+        String lowerInput = input.text();
         
         // Check for game-related keywords
-        if (lowerInput.contains("game") || lowerInput.contains("play")) {
-            return startWordGame();
+        Intent intent = INTENTS.route(lowerInput);
+        if (intent == Intent.START_GAME) {
+            return startWordGame(WordDictionary.Difficulty.of(input));
         }
-        
-        if (lowerInput.contains("guess") || lowerInput.contains("hint")) {
+        if (intent == Intent.HINT) {
             return provideHint();
         }
-        
-        if (lowerInput.contains("word") && lowerInput.contains("game")) {
-            return startWordGame();
-        }
 
         // If we have an active game, check if user is guessing
         if (currentWord != null && lowerInput.length() == 1) {
@@ -47,18 +72,51 @@ public class GameBot extends Bot {
         }
 
         // Fall back to parent's response method
-        return super.respond(userInput);
+        return super.generateResponse(input);
+    }
+
+    @Override
+    public void seed(long seed) {
+        random.setSeed(seed);
+    }
+
+    @Override
+    public boolean remembersTurns() {
+        return true;
+    }
+
+    @Override
+    protected void writeState(DataOutputStream out) throws IOException {
+        super.writeState(out);
+        out.writeBoolean(currentWord != null);
+        if (currentWord != null) {
+            out.writeUTF(currentWord);
+            out.writeInt(guessedMask);
+            out.writeInt(guessCount);
+        }
+    }
+
+    @Override
+    protected void readState(DataInputStream in) throws IOException {
+        super.readState(in);
+        if (in.readBoolean()) {
+            currentWord = in.readUTF();
+            wordLength = currentWord.length();
+            wordMask = WordDictionary.maskOf(currentWord);
+            guessedMask = in.readInt();
+            guessCount = in.readInt();
+        }
     }
 
     /**
      * Start a word guessing game.
+     * @param difficulty How long a word to pick, or null for any word
      */
-    private String startWordGame() {
-        String[] words = {"java", "chatbot", "programming", "computer", "algorithm", 
-                          "function", "variable", "class", "object", "interface"};
-        currentWord = words[random.nextInt(words.length)];
+    private String startWordGame(WordDictionary.Difficulty difficulty) {
+        currentWord = dictionary.word(dictionary.randomIndex(difficulty, random));
         wordLength = currentWord.length();
-        guessedLetters.setLength(0);
+        wordMask = WordDictionary.maskOf(currentWord);
+        guessedMask = 0;
         guessCount = 0;
         
         StringBuilder display = new StringBuilder();
@@ -79,8 +137,25 @@ public class GameBot extends Bot {
         if (currentWord == null) {
             return "No active game! Say 'game' or 'play' to start a word game.";
         }
-        return "Here's a hint: The word has " + wordLength + " letters and starts with '" + 
-               currentWord.charAt(0) + "'";
+        if ((guessedMask & wordMask) == 0) {
+            return "Here's a hint: The word has " + wordLength + " letters and starts with '" +
+                   currentWord.charAt(0) + "'";
+        }
+        WordDictionary.PatternHint hint = dictionary.hint(currentWord, guessedMask);
+        return "Here's a hint: " + hint.matches + " word(s) I know fit " + progress() +
+               "and one of the letters you still need is '" + hint.letter + "'";
+    }
+
+    /**
+     * The word with unguessed letters shown as underscores, such as "_ a _ a ".
+     */
+    private String progress() {
+        StringBuilder display = new StringBuilder(wordLength * 2);
+        for (int i = 0; i < wordLength; i++) {
+            char c = currentWord.charAt(i);
+            display.append((guessedMask & WordDictionary.bit(c)) != 0 ? c : '_').append(' ');
+        }
+        return display.toString();
     }
 
     /**
@@ -91,29 +166,19 @@ public class GameBot extends Bot {
             return "No active game! Say 'game' or 'play' to start a word game.";
         }
         
-        char lowerLetter = Character.toLowerCase(letter);
-        if (guessedLetters.indexOf(String.valueOf(lowerLetter)) >= 0) {
+        int bit = WordDictionary.bit(Character.toLowerCase(letter));
+        if (bit == 0) {
+            return "Please guess a letter from a to z.";
+        }
+        if ((guessedMask & bit) != 0) {
             return "You've already guessed '" + letter + "'! Try a different letter.";
         }
         
-        guessedLetters.append(lowerLetter);
+        guessedMask |= bit;
         guessCount++;
         
-        if (currentWord.indexOf(lowerLetter) >= 0) {
-            // Show progress
-            StringBuilder display = new StringBuilder();
-            boolean allFound = true;
-            for (int i = 0; i < wordLength; i++) {
-                char c = currentWord.charAt(i);
-                if (guessedLetters.indexOf(String.valueOf(c)) >= 0) {
-                    display.append(c).append(" ");
-                } else {
-                    display.append("_ ");
-                    allFound = false;
-                }
-            }
-            
-            if (allFound) {
+        if ((wordMask & bit) != 0) {
+            if ((wordMask & ~guessedMask) == 0) {
                 String result = "Excellent! You've guessed all the letters! The word was '" + currentWord + 
                               "' (in " + guessCount + " guesses). Well done!";
                 currentWord = null;
@@ -121,7 +186,7 @@ public class GameBot extends Bot {
             }
             
             return "Good guess! The letter '" + letter + "' is in the word!\nProgress: " + 
-                   display.toString() + "\nKeep guessing!";
+                   progress() + "\nKeep guessing!";
         } else {
             return "Sorry, the letter '" + letter + "' is not in the word. " +
                    "You've made " + guessCount + " guess(es). Try again!";
@@ -142,7 +207,7 @@ public class GameBot extends Bot {
             String result = "Congratulations! You guessed it! The word was '" + currentWord + 
                           "' (in " + guessCount + " guess(es)). Well done!";
             currentWord = null; // Reset game
-            guessedLetters.setLength(0);
+            guessedMask = 0;
             guessCount = 0;
             return result;
         } else {
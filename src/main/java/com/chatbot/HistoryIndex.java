@@ -0,0 +1,303 @@
+package com.chatbot;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Inverted index over the recent messages of one chat history, updated as each message is
+ * added. For every word it keeps the ascending numbers of the messages whose user input or
+ * bot response contains it, and it keeps every message's timestamp, so a search intersects
+ * the word lists newest first and checks the time range without reading any message text.
+ * Only the page of matches asked for is then read from the history.
+ * The index covers a window of the newest messages in two blocks: when the newer block is
+ * full, the older one is dropped, so it holds between one and two windows of messages
+ * however long the conversation runs. Older messages are searched in the log.
+ */
+public class HistoryIndex {
+    private final int window;
+    private Block current;
+    private Block previous; // Null until the first block fills up
+
+    /**
+     * The index of up to one window of consecutive messages, numbered from base.
+     */
+    private static final class Block {
+        final long base;
+        final HashMap<String, Postings> postings = new HashMap<>();
+        long[] times = new long[16]; // Epoch nanos by message number - base, 0 where not indexed
+        int end; // One past the highest message offset indexed
+
+        Block(long base) {
+            this.base = base;
+        }
+
+        void add(int offset, long epochNanos, String userInput, String botResponse) {
+            if (offset >= times.length) {
+                times = Arrays.copyOf(times, Math.max(offset + 1, times.length * 2));
+            }
+            times[offset] = epochNanos;
+            end = Math.max(end, offset + 1);
+            Consumer<String> index = word -> postings.computeIfAbsent(word, w -> new Postings()).add(offset);
+            words(userInput, index);
+            words(botResponse, index);
+        }
+
+        /**
+         * Offer the matching messages of this block to the pager, newest first.
+         */
+        void search(Query query, Pager pager) {
+            ArrayList<Postings> lists = new ArrayList<>();
+            for (String term : query.terms) {
+                Postings list = postings.get(term);
+                if (list == null) {
+                    return;
+                }
+                lists.add(list);
+            }
+            lists.sort((a, b) -> Integer.compare(a.size, b.size));
+            Postings shortest = lists.isEmpty() ? null : lists.get(0);
+            for (int i = shortest == null ? end - 1 : shortest.size - 1; i >= 0; i--) {
+                int offset = shortest == null ? i : shortest.numbers[i];
+                long time = times[offset];
+                if (time == 0 || time < query.fromNanos || time >= query.toNanos || !inAll(lists, offset)) {
+                    continue;
+                }
+                pager.offer(base + offset);
+            }
+        }
+    }
+
+    /**
+     * Ascending message offsets of one word.
+     */
+    private static final class Postings {
+        int[] numbers = new int[2];
+        int size;
+
+        void add(int number) {
+            if (size > 0 && numbers[size - 1] == number) {
+                return; // Word repeated within the message
+            }
+            if (size == numbers.length) {
+                numbers = Arrays.copyOf(numbers, size * 2);
+            }
+            numbers[size++] = number;
+        }
+
+        boolean contains(int number) {
+            return Arrays.binarySearch(numbers, 0, size, number) >= 0;
+        }
+    }
+
+    /**
+     * What to search for: every word must appear in the message, which must fall in [fromNanos, toNanos).
+     */
+    public static final class Query {
+        public final List<String> terms;
+        public final long fromNanos;
+        public final long toNanos;
+        public final int page; // 1 = the newest matches
+
+        public Query(List<String> terms, long fromNanos, long toNanos, int page) {
+            this.terms = terms;
+            this.fromNanos = fromNanos;
+            this.toNanos = toNanos;
+            this.page = page;
+        }
+
+        /**
+         * Parse search words mixed with the options since:WHEN, until:WHEN and page:N.
+         * WHEN is a date (2024-05-01), a date and time (2024-05-01T14:30) or how long ago (30m, 2h, 7d).
+         * @throws IllegalArgumentException if an option cannot be parsed
+         */
+        public static Query parse(String text) {
+            ArrayList<String> terms = new ArrayList<>();
+            long from = Long.MIN_VALUE;
+            long to = Long.MAX_VALUE;
+            int page = 1;
+            for (String word : text.trim().split("\\s+")) {
+                String lower = word.toLowerCase();
+                if (lower.startsWith("since:")) {
+                    from = parseTime(word.substring("since:".length()), false);
+                } else if (lower.startsWith("until:")) {
+                    to = parseTime(word.substring("until:".length()), true);
+                } else if (lower.startsWith("page:")) {
+                    try {
+                        page = Integer.parseInt(word.substring("page:".length()));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("page must be a number");
+                    }
+                    if (page < 1) {
+                        throw new IllegalArgumentException("page must be 1 or more");
+                    }
+                } else {
+                    words(word, terms::add);
+                }
+            }
+            return new Query(terms, from, to, page);
+        }
+
+        /**
+         * Epoch nanos of a time option. A bare date until a day means the end of that day.
+         */
+        private static long parseTime(String value, boolean endOfDay) {
+            String upper = value.toUpperCase();
+            try {
+                if (upper.matches("\\d+[MHD]")) {
+                    long amount = Long.parseLong(upper.substring(0, upper.length() - 1));
+                    Duration ago = upper.endsWith("M") ? Duration.ofMinutes(amount)
+                            : upper.endsWith("H") ? Duration.ofHours(amount) : Duration.ofDays(amount);
+                    return Message.nowEpochNanos() - ago.toNanos();
+                }
+                LocalDateTime time = upper.contains("T") ? LocalDateTime.parse(upper)
+                        : LocalDate.parse(upper).plusDays(endOfDay ? 1 : 0).atStartOfDay();
+                var instant = time.atZone(ZoneId.systemDefault()).toInstant();
+                return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+            } catch (DateTimeParseException | ArithmeticException e) {
+                throw new IllegalArgumentException("can't read the time '" + value +
+                                                   "' (use 2024-05-01, 2024-05-01T14:30, 30m, 2h or 7d)");
+            }
+        }
+    }
+
+    /**
+     * One page of matches.
+     */
+    public static final class Result {
+        public final long matches;   // On every page
+        public final long[] numbers; // Message numbers on this page, newest first
+
+        Result(long matches, long[] numbers) {
+            this.matches = matches;
+            this.numbers = numbers;
+        }
+    }
+
+    /**
+     * Collects one page of matches offered newest first, counting them all.
+     */
+    public static final class Pager {
+        private final long skip;
+        private final long[] page;
+        private int onPage;
+        private long matches;
+
+        public Pager(Query query, int pageSize) {
+            this.skip = (long) (query.page - 1) * pageSize;
+            this.page = new long[pageSize];
+        }
+
+        public void offer(long number) {
+            if (matches >= skip && onPage < page.length) {
+                page[onPage++] = number;
+            }
+            matches++;
+        }
+
+        public Result result() {
+            return new Result(matches, Arrays.copyOf(page, onPage));
+        }
+    }
+
+    /**
+     * Create an index covering at least the newest window messages, and at most twice that.
+     */
+    public HistoryIndex(int window) {
+        this(window, 0);
+    }
+
+    /**
+     * Create an index whose first message will be numbered first, such as for a history
+     * restored with its earlier messages only in the log.
+     */
+    public HistoryIndex(int window, long first) {
+        this.window = Math.max(1, window);
+        this.current = new Block(first);
+    }
+
+    /**
+     * Index a message. Messages are expected in increasing number order.
+     */
+    public void add(long number, long epochNanos, String userInput, String botResponse) {
+        if (number - current.base >= window) {
+            previous = current;
+            current = new Block(number);
+        }
+        current.add((int) (number - current.base), epochNanos, userInput, botResponse);
+    }
+
+    /**
+     * The number of the oldest message covered; older ones are not in the index.
+     */
+    public long first() {
+        return previous != null ? previous.base : current.base;
+    }
+
+    /**
+     * Find the indexed messages containing every term within the time range, newest first.
+     * With no terms, every message in the time range matches.
+     */
+    public Result search(Query query, int pageSize) {
+        Pager pager = new Pager(query, pageSize);
+        search(query, pager);
+        return pager.result();
+    }
+
+    /**
+     * Offer the matching indexed messages to a pager, newest first.
+     */
+    public void search(Query query, Pager pager) {
+        current.search(query, pager);
+        if (previous != null) {
+            previous.search(query, pager);
+        }
+    }
+
+    /**
+     * Check a message that is not in the index, such as one read back from the log.
+     */
+    public static boolean matches(Query query, Message message) {
+        long time = message.getEpochNanos();
+        if (time < query.fromNanos || time >= query.toNanos) {
+            return false;
+        }
+        HashSet<String> words = new HashSet<>();
+        words(message.getUserInput(), words::add);
+        words(message.getBotResponse(), words::add);
+        return words.containsAll(query.terms);
+    }
+
+    private static boolean inAll(List<Postings> lists, int number) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(number)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Split text into lowercase words of letters and digits.
+     */
+    static void words(String text, Consumer<String> consumer) {
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                consumer.accept(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.chatbot;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.LongPredicate;
+
+/**
+ * Process-wide, rotating chat history log written by a background thread.
+ * Bots hand messages to append, which only queues them; the writer thread drains the
+ * queue in batches so the response path never waits for the disk. Each line holds
+ * "historyId, sequence, epoch nanos, user input, bot response" separated by tabs, with
+ * tabs and newlines escaped. When the log passes a size limit it is rotated to
+ * "[file].1", "[file].2" and so on, keeping a fixed number of old files.
+ */
+public class HistoryLog {
+    private static HistoryLog instance;
+
+    private final File file;
+    private final long maxBytes;
+    private final int maxFiles;
+    private final LinkedBlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private long queued; // Entries handed to append so far
+    private long written; // Entries written so far
+
+    private static final class Entry {
+        final String historyId;
+        final long sequence;
+        final long epochNanos;
+        final String userInput;
+        final String botResponse;
+
+        Entry(String historyId, long sequence, long epochNanos, String userInput, String botResponse) {
+            this.historyId = historyId;
+            this.sequence = sequence;
+            this.epochNanos = epochNanos;
+            this.userInput = userInput;
+            this.botResponse = botResponse;
+        }
+    }
+
+    /**
+     * Get the shared log, configured from chatbot.history.log, chatbot.history.logBytes
+     * and chatbot.history.logFiles on first use.
+     */
+    public static synchronized HistoryLog get() {
+        if (instance == null) {
+            instance = new HistoryLog(new File(System.getProperty("chatbot.history.log", "chat_history.log")),
+                    Long.getLong("chatbot.history.logBytes", 10L << 20),
+                    Integer.getInteger("chatbot.history.logFiles", 5));
+        }
+        return instance;
+    }
+
+    public HistoryLog(File file, long maxBytes, int maxFiles) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+
+        Thread writer = new Thread(this::writeLoop, "history-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "history-log-flush"));
+    }
+
+    /**
+     * Queue a message for writing. Never blocks on disk.
+     */
+    public void append(String historyId, long sequence, long epochNanos, String userInput, String botResponse) {
+        synchronized (this) {
+            queued++;
+        }
+        queue.add(new Entry(historyId, sequence, epochNanos, userInput, botResponse));
+    }
+
+    /**
+     * Wait until every message queued so far has been written.
+     */
+    public synchronized void flush() {
+        long target = queued;
+        while (written < target) {
+            try {
+                wait(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void writeLoop() {
+        ArrayList<Entry> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, 4096);
+            try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (Entry entry : batch) {
+                    writer.write(format(entry));
+                    writer.newLine();
+                }
+            } catch (IOException e) {
+                System.err.println("Warning: Could not write chat history log: " + e.getMessage());
+            }
+            synchronized (this) {
+                written += batch.size();
+                notifyAll();
+            }
+            batch.clear();
+            if (file.length() >= maxBytes) {
+                rotate();
+            }
+        }
+    }
+
+    /**
+     * Shift file.1 to file.2 and so on, dropping the oldest, then move the log to file.1.
+     */
+    private void rotate() {
+        try {
+            Files.deleteIfExists(rotatedFile(maxFiles).toPath());
+            for (int n = maxFiles - 1; n >= 1; n--) {
+                File from = rotatedFile(n);
+                if (from.exists()) {
+                    Files.move(from.toPath(), rotatedFile(n + 1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file.toPath(), rotatedFile(1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not rotate chat history log: " + e.getMessage());
+        }
+    }
+
+    private File rotatedFile(int n) {
+        return new File(file.getPath() + "." + n);
+    }
+
+    /**
+     * Receives logged messages with their sequence numbers.
+     */
+    public interface Visitor {
+        void visit(long sequence, Message message);
+    }
+
+    /**
+     * Read the logged messages of one history with sequence numbers in [from, to), oldest first.
+     * Messages that were rotated out of the last file are gone.
+     */
+    public List<Message> read(String historyId, long from, long to) {
+        ArrayList<Message> messages = new ArrayList<>();
+        scan(historyId, sequence -> sequence >= from && sequence < to, (sequence, message) -> messages.add(message));
+        return messages;
+    }
+
+    /**
+     * One past the highest sequence number logged for a history, or 0 if it has none.
+     */
+    public long next(String historyId) {
+        long[] highest = {-1};
+        scan(historyId, sequence -> {
+            highest[0] = Math.max(highest[0], sequence);
+            return false; // Only the numbers are needed
+        }, (sequence, message) -> { });
+        return highest[0] + 1;
+    }
+
+    /**
+     * Pass the logged messages of one history whose sequence numbers are wanted to the
+     * visitor, oldest first, in a single pass over the log files.
+     */
+    public void scan(String historyId, LongPredicate wanted, Visitor visitor) {
+        flush();
+        String prefix = escape(historyId) + "\t";
+        for (int n = maxFiles; n >= 0; n--) {
+            File source = n == 0 ? file : rotatedFile(n);
+            if (!source.exists()) {
+                continue;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(source.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.startsWith(prefix)) {
+                        continue;
+                    }
+                    String[] fields = line.split("\t", -1);
+                    if (fields.length != 5) {
+                        continue;
+                    }
+                    long sequence = Long.parseLong(fields[1]);
+                    if (wanted.test(sequence)) {
+                        visitor.visit(sequence, new Message(unescape(fields[3]), unescape(fields[4]),
+                                                            Long.parseLong(fields[2])));
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                System.err.println("Warning: Could not read chat history log: " + e.getMessage());
+            }
+        }
+    }
+
+    private static String format(Entry entry) {
+        return escape(entry.historyId) + "\t" + entry.sequence + "\t" + entry.epochNanos + "\t" +
+               escape(entry.userInput) + "\t" + escape(entry.botResponse);
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+    }
+
+    private static String unescape(String s) {
+        StringBuilder result = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char next = s.charAt(++i);
+                result.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+}
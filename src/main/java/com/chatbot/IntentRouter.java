@@ -0,0 +1,145 @@
+package com.chatbot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Declarative keyword intent table compiled into a single Aho-Corasick pass.
+ * A rule names an intent, a priority and one or more clauses; each clause lists keywords
+ * of which at least one must occur in the input (as a substring, like String.contains),
+ * and every clause of a rule must be satisfied. The input is scanned once for all keywords,
+ * then only rules sharing a keyword with the input are checked, so the cost does not grow
+ * with the number of intents. The satisfied rule with the highest priority wins, and among
+ * equal priorities the one declared first.
+ */
+public final class IntentRouter<T> {
+    private final AhoCorasick keywords;
+    private final int words; // Longs needed for one bit per keyword
+    private final List<T> intents; // Per rule, in rank order (best first)
+    private final long[][][] clauses; // Per rule, a keyword mask per clause
+    private final int[][] keywordRules; // Per keyword, the ranks of the rules that use it
+
+    private IntentRouter(Builder<T> builder) {
+        String[] patterns = builder.keywordIds.keySet().toArray(new String[0]);
+        this.keywords = new AhoCorasick(patterns);
+        this.words = Math.max(1, (patterns.length + 63) / 64);
+
+        // Rank rules by descending priority; the sort is stable, so declaration order breaks ties
+        ArrayList<Rule<T>> ranked = new ArrayList<>(builder.rules);
+        ranked.sort((a, b) -> Integer.compare(b.priority, a.priority));
+        this.intents = new ArrayList<>();
+        this.clauses = new long[ranked.size()][][];
+        ArrayList<ArrayList<Integer>> rulesByKeyword = new ArrayList<>();
+        for (int k = 0; k < patterns.length; k++) {
+            rulesByKeyword.add(new ArrayList<>());
+        }
+        for (int rank = 0; rank < ranked.size(); rank++) {
+            Rule<T> rule = ranked.get(rank);
+            intents.add(rule.intent);
+            clauses[rank] = new long[rule.clauses.length][words];
+            for (int c = 0; c < rule.clauses.length; c++) {
+                for (String keyword : rule.clauses[c]) {
+                    int id = builder.keywordIds.get(keyword);
+                    clauses[rank][c][id >>> 6] |= 1L << id;
+                    ArrayList<Integer> rules = rulesByKeyword.get(id);
+                    if (rules.isEmpty() || rules.get(rules.size() - 1) != rank) {
+                        rules.add(rank);
+                    }
+                }
+            }
+        }
+        this.keywordRules = new int[patterns.length][];
+        for (int k = 0; k < patterns.length; k++) {
+            keywordRules[k] = rulesByKeyword.get(k).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Find the winning intent for an input, which should already be lowercase.
+     * @return The intent, or null if no rule is satisfied
+     */
+    public T route(String input) {
+        long[] found = new long[words];
+        keywords.markMatches(input, found);
+        int best = Integer.MAX_VALUE;
+        for (int w = 0; w < words; w++) {
+            for (long bits = found[w]; bits != 0; bits &= bits - 1) {
+                int keyword = w * 64 + Long.numberOfTrailingZeros(bits);
+                for (int rank : keywordRules[keyword]) {
+                    if (rank < best && isSatisfied(rank, found)) {
+                        best = rank;
+                    }
+                }
+            }
+        }
+        return best == Integer.MAX_VALUE ? null : intents.get(best);
+    }
+
+    private boolean isSatisfied(int rank, long[] found) {
+        for (long[] clause : clauses[rank]) {
+            boolean any = false;
+            for (int w = 0; w < words && !any; w++) {
+                any = (clause[w] & found[w]) != 0;
+            }
+            if (!any) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A clause: the input must contain at least one of the keywords.
+     */
+    public static String[] anyOf(String... keywords) {
+        return keywords;
+    }
+
+    private static final class Rule<T> {
+        final T intent;
+        final int priority;
+        final String[][] clauses;
+
+        Rule(T intent, int priority, String[][] clauses) {
+            this.intent = intent;
+            this.priority = priority;
+            this.clauses = clauses;
+        }
+    }
+
+    /**
+     * Collects rules and compiles them into a router.
+     */
+    public static final class Builder<T> {
+        private final ArrayList<Rule<T>> rules = new ArrayList<>();
+        private final LinkedHashMap<String, Integer> keywordIds = new LinkedHashMap<>();
+
+        /**
+         * Add a rule that matches when every clause is satisfied.
+         */
+        public Builder<T> rule(T intent, int priority, String[]... clauses) {
+            if (clauses.length == 0) {
+                throw new IllegalArgumentException("A rule needs at least one clause");
+            }
+            for (String[] clause : clauses) {
+                if (clause.length == 0) {
+                    throw new IllegalArgumentException("A clause needs at least one keyword");
+                }
+                for (String keyword : clause) {
+                    if (keyword.isEmpty()) {
+                        throw new IllegalArgumentException("Keywords must not be empty");
+                    }
+                    keywordIds.putIfAbsent(keyword, keywordIds.size());
+                }
+            }
+            rules.add(new Rule<>(intent, priority, Arrays.copyOf(clauses, clauses.length)));
+            return this;
+        }
+
+        public IntentRouter<T> build() {
+            return new IntentRouter<>(this);
+        }
+    }
+}
@@ -1,68 +1,155 @@
 package com.chatbot;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Random;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * JokeBot extends Bot and specializes in telling jokes.
+ * JokeBot extends Bot and specializes in telling jokes. Jokes come from the shared JokeCorpus
+ * plus any added to this bot, in a shuffled order that does not repeat a joke until every
+ * one has been told; asking for a joke about something picks from the jokes about it.
  */
 public class JokeBot extends Bot {
-    private final ArrayList<String> jokes;
-    private final Random random;
+    private enum Intent { JOKE }
+
+    private static final IntentRouter<Intent> INTENTS = new IntentRouter.Builder<Intent>()
+            .rule(Intent.JOKE, 1, IntentRouter.anyOf("joke", "funny", "humor", "laugh"))
+            .build();
+
+    private static final int MAX_TOPIC_BAGS = 16;
+
+    private final JokeCorpus corpus;
+    private final ArrayList<String> addedJokes; // Told after the corpus's jokes in the shuffled order
+    private final JokeCorpus.ShuffleBag bag;
+    private final LinkedHashMap<String, JokeCorpus.ShuffleBag> topicBags; // Most recently asked topics
 
     public JokeBot() {
+        this(JokeCorpus.get());
+    }
+
+    /**
+     * Create a JokeBot that tells jokes from the given corpus.
+     */
+    public JokeBot(JokeCorpus corpus) {
         super("JokeBot");
-        this.random = new Random();
-        this.jokes = new ArrayList<>();
-        initializeJokes();
+        this.corpus = corpus;
+        this.addedJokes = new ArrayList<>();
+        this.bag = new JokeCorpus.ShuffleBag(ThreadLocalRandom.current().nextLong());
+        this.topicBags = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, JokeCorpus.ShuffleBag> eldest) {
+                return size() > MAX_TOPIC_BAGS;
+            }
+        };
         initializeDefaultKnowledge();
     }
 
-    private void initializeJokes() {
-        jokes.add("Why don't scientists trust atoms? Because they make up everything!");
-        jokes.add("Why did the scarecrow win an award? He was outstanding in his field!");
-        jokes.add("Why don't eggs tell jokes? They'd crack each other up!");
-        jokes.add("What do you call a fake noodle? An impasta!");
-        jokes.add("Why did the math book look so sad? Because it had too many problems!");
-        jokes.add("What do you call a bear with no teeth? A gummy bear!");
-        jokes.add("Why don't programmers like nature? It has too many bugs!");
-        jokes.add("How do you comfort a JavaScript bug? You console it!");
+    @Override
+    public String getGreeting() {
+        return "Switched to JokeBot! Want to hear a joke? Just ask!";
     }
 
     @Override
-    public String respond(String userInput) {
-        String lowerInput = userInput.toLowerCase().trim();
+    protected String generateResponse(NormalizedInput input) {
+        String lowerInput = input.text();
         
         // Check for joke-related keywords
-        if (lowerInput.contains("joke") || lowerInput.contains("funny") || 
-            lowerInput.contains("humor") || lowerInput.contains("laugh")) {
-            return tellJoke();
-        }
-        
-        if (lowerInput.contains("another") && lowerInput.contains("joke")) {
-            return tellJoke();
+        if (INTENTS.route(lowerInput) == Intent.JOKE) {
+            String topic = corpus.topicOf(input);
+            return topic != null ? tellJokeAbout(topic) : tellJoke();
         }
 
         // Fall back to parent's response method
-        return super.respond(userInput);
+        return super.generateResponse(input);
     }
 
     /**
-     * Tell a random joke.
+     * Tell the next joke in this bot's shuffled order.
      */
     public String tellJoke() {
-        if (jokes.isEmpty()) {
+        int total = corpus.size() + addedJokes.size();
+        if (total == 0) {
             return "I'm all out of jokes! But here's a thought: Why did the chatbot go to therapy? Because it had too many unresolved conversations!";
         }
-        int index = random.nextInt(jokes.size());
-        return jokes.get(index);
+        int index = bag.next(total);
+        return index < corpus.size() ? corpus.joke(index) : addedJokes.get(index - corpus.size());
+    }
+
+    /**
+     * Tell the next joke about a topic, in a shuffled order of its own.
+     * @param topic A word as returned by JokeCorpus.topicOf
+     */
+    private String tellJokeAbout(String topic) {
+        int[] jokes = corpus.jokesAbout(topic);
+        JokeCorpus.ShuffleBag topicBag = topicBags.computeIfAbsent(topic,
+                t -> new JokeCorpus.ShuffleBag(bag.getSeed() ^ t.hashCode()));
+        return corpus.joke(jokes[topicBag.next(jokes.length)]);
+    }
+
+    /**
+     * Start the shuffled orders over from a seed.
+     */
+    @Override
+    public void seed(long seed) {
+        bag.restore(seed, 0, 0);
+        topicBags.clear();
+    }
+
+    @Override
+    public boolean remembersTurns() {
+        return true;
     }
 
     /**
-     * Add a new joke to the collection.
+     * Add a new joke to the collection. It joins the shuffled order from the next round.
      */
     public void addJoke(String joke) {
-        jokes.add(joke);
+        addedJokes.add(joke);
+    }
+
+    @Override
+    protected void writeState(DataOutputStream out) throws IOException {
+        super.writeState(out);
+        out.writeInt(addedJokes.size());
+        for (String joke : addedJokes) {
+            out.writeUTF(joke);
+        }
+        writeBag(out, bag);
+        out.writeInt(topicBags.size());
+        for (Map.Entry<String, JokeCorpus.ShuffleBag> entry : topicBags.entrySet()) {
+            out.writeUTF(entry.getKey());
+            writeBag(out, entry.getValue());
+        }
+    }
+
+    @Override
+    protected void readState(DataInputStream in) throws IOException {
+        super.readState(in);
+        for (int i = in.readInt(); i > 0; i--) {
+            addedJokes.add(in.readUTF());
+        }
+        readBag(in, bag);
+        topicBags.clear();
+        for (int i = in.readInt(); i > 0; i--) {
+            String topic = in.readUTF();
+            JokeCorpus.ShuffleBag topicBag = new JokeCorpus.ShuffleBag(0);
+            readBag(in, topicBag);
+            topicBags.put(topic, topicBag);
+        }
+    }
+
+    private static void writeBag(DataOutputStream out, JokeCorpus.ShuffleBag bag) throws IOException {
+        out.writeLong(bag.getSeed());
+        out.writeInt(bag.getDrawn());
+        out.writeInt(bag.getCycleSize());
+    }
+
+    private static void readBag(DataInputStream in, JokeCorpus.ShuffleBag bag) throws IOException {
+        bag.restore(in.readLong(), in.readInt(), in.readInt());
     }
 }
 
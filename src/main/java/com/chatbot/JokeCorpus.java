@@ -0,0 +1,298 @@
+package com.chatbot;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * Jokes for JokeBot, loaded once and shared by every session. The jokes are stored as UTF-8
+ * back to back in one byte array, with an offset per joke, and indexed by the words in them
+ * so jokes about a topic can be found without scanning. Sessions never copy the corpus: each
+ * walks it in its own shuffled order through a ShuffleBag, which is a few numbers of state.
+ */
+public final class JokeCorpus {
+    private static final String[] BUILT_IN = {
+        "Why don't scientists trust atoms? Because they make up everything!",
+        "Why did the scarecrow win an award? He was outstanding in his field!",
+        "Why don't eggs tell jokes? They'd crack each other up!",
+        "What do you call a fake noodle? An impasta!",
+        "Why did the math book look so sad? Because it had too many problems!",
+        "What do you call a bear with no teeth? A gummy bear!",
+        "Why don't programmers like nature? It has too many bugs!",
+        "How do you comfort a JavaScript bug? You console it!"
+    };
+
+    // Words that say nothing about a joke's topic, including the ones people use to ask for a joke
+    private static final Set<String> STOP_WORDS = Set.of(
+            "the", "and", "you", "your", "for", "with", "that", "this", "what", "why", "how", "who",
+            "did", "does", "don", "didn", "can", "are", "was", "were", "has", "have", "had", "its",
+            "they", "them", "their", "there", "too", "many", "because", "call", "from", "into", "out",
+            "about", "tell", "give", "another", "some", "something", "know", "any", "please", "one",
+            "more", "say", "joke", "funny", "humor", "laugh", "want", "hear", "like", "get", "got");
+    private static final int MIN_WORD_LENGTH = 3;
+
+    private static JokeCorpus instance;
+
+    private final byte[] arena;          // Every joke as UTF-8, back to back
+    private final int[] offsets;         // Joke i is arena[offsets[i] .. offsets[i + 1])
+    private final HashMap<String, int[]> jokesByWord; // Ascending joke indexes per topic word
+
+    private JokeCorpus(byte[] arena, int[] offsets, HashMap<String, int[]> jokesByWord) {
+        this.arena = arena;
+        this.offsets = offsets;
+        this.jokesByWord = jokesByWord;
+    }
+
+    /**
+     * Get the shared corpus: the file named by chatbot.jokes.file (one joke per line) if set
+     * and readable, otherwise the built-in jokes. Loaded on first use.
+     */
+    public static synchronized JokeCorpus get() {
+        if (instance == null) {
+            String path = System.getProperty("chatbot.jokes.file");
+            if (path != null) {
+                try {
+                    instance = load(new File(path));
+                } catch (IOException e) {
+                    System.err.println("Warning: Could not load jokes: " + e.getMessage());
+                }
+            }
+            if (instance == null || instance.size() == 0) {
+                instance = of(Arrays.asList(BUILT_IN));
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Load jokes from a file, one per line; blank lines are skipped.
+     */
+    public static JokeCorpus load(File file) throws IOException {
+        Builder builder = new Builder();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                builder.add(line);
+            }
+        }
+        return builder.build();
+    }
+
+    public static JokeCorpus of(Collection<String> jokes) {
+        Builder builder = new Builder();
+        for (String joke : jokes) {
+            builder.add(joke);
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    public String joke(int index) {
+        return new String(arena, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Jokes containing a word, in ascending order; do not modify.
+     * @param word A lowercase word
+     * @return The joke indexes, empty if there are none or the word is a stop word
+     */
+    public int[] jokesAbout(String word) {
+        String key = indexWord(word);
+        int[] jokes = key != null ? jokesByWord.get(key) : null;
+        return jokes != null ? jokes : new int[0];
+    }
+
+    /**
+     * The word of the input that names the most specific topic the corpus has jokes about.
+     * @return The word as indexed, or null if the input names no topic
+     */
+    public String topicOf(NormalizedInput input) {
+        String best = null;
+        int fewest = Integer.MAX_VALUE;
+        for (String token : input.tokens()) {
+            String key = indexWord(token);
+            int[] jokes = key != null ? jokesByWord.get(key) : null;
+            if (jokes != null && jokes.length < fewest) {
+                best = key;
+                fewest = jokes.length;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The form a word is indexed under: a plural "s" dropped, or null for short words and stop words.
+     */
+    private static String indexWord(String word) {
+        if (word.length() < MIN_WORD_LENGTH || STOP_WORDS.contains(word)) {
+            return null;
+        }
+        if (word.length() > MIN_WORD_LENGTH && word.endsWith("s") && !word.endsWith("ss")) {
+            word = word.substring(0, word.length() - 1);
+            if (STOP_WORDS.contains(word)) {
+                return null;
+            }
+        }
+        return word;
+    }
+
+    /**
+     * Collects jokes into the arena and index while loading.
+     */
+    private static final class Builder {
+        private byte[] arena = new byte[1024];
+        private int[] offsets = new int[64];
+        private int count;
+        private int used;
+        private final HashMap<String, int[]> postings = new HashMap<>(); // Growing lists; slot 0 is the length
+
+        void add(String joke) {
+            joke = joke.trim();
+            if (joke.isEmpty()) {
+                return;
+            }
+            byte[] bytes = joke.getBytes(StandardCharsets.UTF_8);
+            if (used + bytes.length > arena.length) {
+                arena = Arrays.copyOf(arena, Math.max(arena.length * 2, used + bytes.length));
+            }
+            System.arraycopy(bytes, 0, arena, used, bytes.length);
+            if (count + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[count] = used;
+            used += bytes.length;
+
+            String lower = joke.toLowerCase();
+            int start = -1;
+            for (int i = 0; i <= lower.length(); i++) {
+                boolean letter = i < lower.length() && Character.isLetter(lower.charAt(i));
+                if (letter && start < 0) {
+                    start = i;
+                } else if (!letter && start >= 0) {
+                    String word = indexWord(lower.substring(start, i));
+                    if (word != null) {
+                        addPosting(word, count);
+                    }
+                    start = -1;
+                }
+            }
+            count++;
+        }
+
+        private void addPosting(String word, int joke) {
+            int[] list = postings.get(word);
+            if (list == null) {
+                list = new int[4];
+            } else if (list[list[0]] == joke) {
+                return; // Word repeated within the same joke
+            } else if (list[0] + 1 == list.length) {
+                list = Arrays.copyOf(list, list.length * 2);
+            }
+            list[++list[0]] = joke;
+            postings.put(word, list);
+        }
+
+        JokeCorpus build() {
+            offsets[count] = used;
+            HashMap<String, int[]> index = new HashMap<>(postings.size() * 4 / 3 + 1);
+            for (var entry : postings.entrySet()) {
+                int[] list = entry.getValue();
+                index.put(entry.getKey(), Arrays.copyOfRange(list, 1, list[0] + 1));
+            }
+            return new JokeCorpus(Arrays.copyOf(arena, used), Arrays.copyOf(offsets, count + 1), index);
+        }
+    }
+
+    /**
+     * A session's walk through a set of jokes in shuffled order: every joke once before any
+     * repeats, then a new order. The order is a keyed permutation of the indexes computed on
+     * the fly, so the state is just a seed and a position however many jokes there are.
+     * Jokes added during a walk join from the next one.
+     */
+    public static final class ShuffleBag {
+        private long seed;
+        private int drawn;
+        private int cycleSize; // Jokes in the current walk; 0 before the first draw
+
+        public ShuffleBag(long seed) {
+            this.seed = seed;
+        }
+
+        /**
+         * Draw the next index.
+         * @param size How many jokes there are now, at least 1
+         */
+        public int next(int size) {
+            if (drawn >= cycleSize) {
+                seed = mix(seed + 0x9E3779B97F4A7C15L);
+                drawn = 0;
+                cycleSize = size;
+            }
+            return permute(drawn++, cycleSize, seed);
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public int getDrawn() {
+            return drawn;
+        }
+
+        public int getCycleSize() {
+            return cycleSize;
+        }
+
+        /**
+         * Restore a position saved with the getters.
+         */
+        public void restore(long seed, int drawn, int cycleSize) {
+            this.seed = seed;
+            this.drawn = drawn;
+            this.cycleSize = cycleSize;
+        }
+
+        /**
+         * Map an index to its place in a permutation of [0, size): a four-round Feistel network
+         * over the smallest even number of bits that covers size, retried until it lands inside
+         * the range (on average fewer than four tries).
+         */
+        static int permute(int index, int size, long seed) {
+            if (size <= 1) {
+                return 0;
+            }
+            int bits = 32 - Integer.numberOfLeadingZeros(size - 1);
+            int half = (bits + 1) / 2;
+            int mask = (1 << half) - 1;
+            int x = index;
+            do {
+                int left = x >>> half;
+                int right = x & mask;
+                for (int round = 0; round < 4; round++) {
+                    int next = left ^ ((int) mix(seed + round * 0xBF58476D1CE4E5B9L + right) & mask);
+                    left = right;
+                    right = next;
+                }
+                x = (left << half) | right;
+            } while (x >= size);
+            return x;
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
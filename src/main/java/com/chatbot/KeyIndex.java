@@ -0,0 +1,187 @@
+package com.chatbot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Immutable index over knowledge base keys for partial matching.
+ * Finds keys contained in the input with Aho-Corasick automata and keys that contain
+ * the input with suffix arrays. Keys added since the last build are kept in a small
+ * pending list; once it fills up it becomes a new level, merged with any smaller levels
+ * so level sizes stay geometric. Adding a key therefore never rebuilds the whole index,
+ * and a query checks only a logarithmic number of levels.
+ * Typo-tolerant matching uses a trigram index per level, built on the first fuzzy query.
+ */
+public final class KeyIndex {
+    public static final int MIN_KEY_LENGTH = 3; // Shorter keys cause too many false matches
+    private static final int PENDING_LIMIT = 64;
+    private static final int PARALLEL_BUILD_SIZE = 16384; // Levels at least this large build their two structures at once
+
+    public static final KeyIndex EMPTY = build(new ArrayList<>());
+
+    private final Level[] levels; // Largest first
+    private final String[] pending;
+
+    /**
+     * Sorted keys with their automaton and suffix array, so pattern ids follow key order.
+     */
+    private static final class Level {
+        final String[] keys;
+        final AhoCorasick automaton;
+        final KeySuffixArray suffixArray;
+        private volatile TrigramIndex trigrams; // Only needed once an input matches no key at all
+
+        Level(String[] keys) {
+            Arrays.sort(keys);
+            this.keys = keys;
+            if (keys.length < PARALLEL_BUILD_SIZE) {
+                this.automaton = new AhoCorasick(keys);
+                this.suffixArray = new KeySuffixArray(keys);
+            } else {
+                CompletableFuture<KeySuffixArray> suffixes = CompletableFuture.supplyAsync(() -> new KeySuffixArray(keys));
+                this.automaton = new AhoCorasick(keys);
+                this.suffixArray = suffixes.join();
+            }
+        }
+
+        TrigramIndex trigrams() {
+            TrigramIndex index = trigrams;
+            if (index == null) {
+                synchronized (this) {
+                    index = trigrams;
+                    if (index == null) {
+                        index = new TrigramIndex(keys);
+                        trigrams = index;
+                    }
+                }
+            }
+            return index;
+        }
+    }
+
+    private KeyIndex(Level[] levels, String[] pending) {
+        this.levels = levels;
+        this.pending = pending;
+    }
+
+    /**
+     * Build an index over the given distinct keys. Keys shorter than MIN_KEY_LENGTH are ignored.
+     */
+    public static KeyIndex build(Collection<String> keys) {
+        ArrayList<String> indexed = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            if (key.length() >= MIN_KEY_LENGTH) {
+                indexed.add(key);
+            }
+        }
+        Level[] levels = indexed.isEmpty() ? new Level[0] : new Level[] {new Level(indexed.toArray(new String[0]))};
+        return new KeyIndex(levels, new String[0]);
+    }
+
+    /**
+     * Return an index that also covers a key not yet in this index.
+     */
+    public KeyIndex with(String key) {
+        if (key.length() < MIN_KEY_LENGTH) {
+            return this;
+        }
+        String[] added = Arrays.copyOf(pending, pending.length + 1);
+        added[pending.length] = key;
+        if (added.length < PENDING_LIMIT) {
+            return new KeyIndex(levels, added);
+        }
+
+        // Turn the pending keys into a level, absorbing every level that is not larger
+        ArrayList<String> merged = new ArrayList<>(Arrays.asList(added));
+        int kept = levels.length;
+        while (kept > 0 && levels[kept - 1].keys.length <= merged.size()) {
+            merged.addAll(Arrays.asList(levels[--kept].keys));
+        }
+        Level[] newLevels = Arrays.copyOf(levels, kept + 1);
+        newLevels[kept] = new Level(merged.toArray(new String[0]));
+        return new KeyIndex(newLevels, new String[0]);
+    }
+
+    /**
+     * Find the best partial match for the input.
+     * A key contained in the input wins over a key containing the input; among keys
+     * contained in the input the longest wins, among keys containing the input the
+     * shortest wins, and remaining ties go to the alphabetically first key.
+     * @return The matching key, or null if there is none
+     */
+    public String findBestMatch(String input) {
+        String best = null;
+        for (Level level : levels) {
+            int id = level.automaton.longestMatch(input);
+            if (id >= 0 && isLongerOrFirst(level.keys[id], best)) {
+                best = level.keys[id];
+            }
+        }
+        for (String key : pending) {
+            if (input.contains(key) && isLongerOrFirst(key, best)) {
+                best = key;
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+
+        for (Level level : levels) {
+            int id = level.suffixArray.shortestKeyContaining(input);
+            if (id >= 0 && isShorterOrFirst(level.keys[id], best)) {
+                best = level.keys[id];
+            }
+        }
+        for (String key : pending) {
+            if (key.contains(input) && isShorterOrFirst(key, best)) {
+                best = key;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Find the key closest to the input by edit distance, allowing TrigramIndex.maxEdits
+     * edits for the input's length. Ties go to the alphabetically first key.
+     * Meant as a fallback when findBestMatch finds nothing.
+     * @return The matching key, or null if no key is close enough
+     */
+    public String findFuzzyMatch(String input) {
+        int maxEdits = TrigramIndex.maxEdits(input.length());
+        if (maxEdits == 0) {
+            return null;
+        }
+        String best = null;
+        int bestDistance = maxEdits + 1;
+        for (Level level : levels) {
+            int id = level.trigrams().closest(input, Math.min(maxEdits, bestDistance)); // Ties still count
+            if (id >= 0) {
+                int distance = TrigramIndex.boundedDistance(input, level.keys[id], maxEdits);
+                if (distance < bestDistance || (distance == bestDistance && level.keys[id].compareTo(best) < 0)) {
+                    best = level.keys[id];
+                    bestDistance = distance;
+                }
+            }
+        }
+        for (String key : pending) {
+            int distance = TrigramIndex.boundedDistance(input, key, maxEdits);
+            if (distance < bestDistance || (distance == bestDistance && distance <= maxEdits && key.compareTo(best) < 0)) {
+                best = key;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private static boolean isLongerOrFirst(String key, String best) {
+        return best == null || key.length() > best.length()
+                || (key.length() == best.length() && key.compareTo(best) < 0);
+    }
+
+    private static boolean isShorterOrFirst(String key, String best) {
+        return best == null || key.length() < best.length()
+                || (key.length() == best.length() && key.compareTo(best) < 0);
+    }
+}
@@ -0,0 +1,201 @@
+package com.chatbot;
+
+import java.util.Arrays;
+
+/**
+ * Suffix array over a set of keys, used to find the keys that contain a given string.
+ * The keys are concatenated with a '\0' separator and every suffix start is sorted once
+ * with a multikey quicksort that never compares past the end of a key.
+ * The suffixes starting with a string form one range of that order, so a segment tree
+ * holding the shortest key over every range of suffixes answers shortestKeyContaining
+ * with two binary searches and one O(log n) query, however often the string occurs.
+ */
+public class KeySuffixArray {
+    private static final char SEPARATOR = '\0';
+    private static final int INSERTION_SORT_SIZE = 16;
+
+    private final char[] text;
+    private final int[] keyStart; // Offset of each key in text
+    private final int[] suffixes; // Suffix start offsets in sorted order
+    private final int[] shortest; // Segment tree: node i covers its children 2i and 2i+1; leaf n+i is suffix i's key
+
+    public KeySuffixArray(String[] keys) {
+        int total = 0;
+        for (String key : keys) {
+            total += key.length() + 1;
+        }
+        this.text = new char[total];
+        this.keyStart = new int[keys.length];
+        int pos = 0;
+        for (int k = 0; k < keys.length; k++) {
+            keyStart[k] = pos;
+            keys[k].getChars(0, keys[k].length(), text, pos);
+            pos += keys[k].length();
+            text[pos++] = SEPARATOR;
+        }
+
+        this.suffixes = new int[total - keys.length];
+        int n = 0;
+        for (int i = 0; i < total; i++) {
+            if (text[i] != SEPARATOR) {
+                suffixes[n++] = i;
+            }
+        }
+        sort(0, suffixes.length, 0);
+
+        this.shortest = new int[2 * n];
+        for (int i = 0; i < n; i++) {
+            shortest[n + i] = keyAt(suffixes[i]);
+        }
+        for (int i = n - 1; i > 0; i--) {
+            shortest[i] = shorter(shortest[2 * i], shortest[2 * i + 1]);
+        }
+    }
+
+    /**
+     * Sort suffixes[lo, hi), all of which share their first depth characters.
+     */
+    private void sort(int lo, int hi, int depth) {
+        while (hi - lo > 1) {
+            if (hi - lo < INSERTION_SORT_SIZE) {
+                insertionSort(lo, hi, depth);
+                return;
+            }
+            char pivot = text[suffixes[(lo + hi) >>> 1] + depth];
+            int lt = lo;
+            int gt = hi - 1;
+            int i = lo;
+            while (i <= gt) {
+                char c = text[suffixes[i] + depth];
+                if (c < pivot) {
+                    swap(lt++, i++);
+                } else if (c > pivot) {
+                    swap(i, gt--);
+                } else {
+                    i++;
+                }
+            }
+            sort(lo, lt, depth);
+            sort(gt + 1, hi, depth);
+            if (pivot == SEPARATOR) {
+                return; // The middle partition holds suffixes that all ended here
+            }
+            lo = lt;
+            hi = gt + 1;
+            depth++;
+        }
+    }
+
+    private void insertionSort(int lo, int hi, int depth) {
+        for (int i = lo + 1; i < hi; i++) {
+            int suffix = suffixes[i];
+            int j = i;
+            while (j > lo && compareSuffixes(suffixes[j - 1] + depth, suffix + depth) > 0) {
+                suffixes[j] = suffixes[j - 1];
+                j--;
+            }
+            suffixes[j] = suffix;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int t = suffixes[a];
+        suffixes[a] = suffixes[b];
+        suffixes[b] = t;
+    }
+
+    /**
+     * Compare two suffixes up to the end of their keys.
+     */
+    private int compareSuffixes(int a, int b) {
+        while (true) {
+            char ca = text[a++];
+            char cb = text[b++];
+            if (ca != cb) {
+                return ca - cb;
+            }
+            if (ca == SEPARATOR) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Compare the suffix at pos with s, looking only at the first s.length() characters.
+     */
+    private int comparePrefix(int pos, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = text[pos + i];
+            if (c != s.charAt(i)) {
+                return c - s.charAt(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Find the shortest key containing s. Ties are broken by the lowest key index.
+     * @return The key index, or -1 if no key contains s
+     */
+    public int shortestKeyContaining(String s) {
+        if (s.isEmpty() || s.indexOf(SEPARATOR) >= 0) {
+            return -1;
+        }
+        // The suffixes that start with s are [lo, hi)
+        int lo = bound(s, false);
+        int hi = bound(s, true);
+
+        int n = suffixes.length;
+        int best = -1;
+        for (lo += n, hi += n; lo < hi; lo >>>= 1, hi >>>= 1) {
+            if ((lo & 1) == 1) {
+                best = shorter(best, shortest[lo++]);
+            }
+            if ((hi & 1) == 1) {
+                best = shorter(best, shortest[--hi]);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * The first suffix that starts with s or sorts after it, or with upper set, the first
+     * that sorts after every suffix starting with s.
+     */
+    private int bound(String s, boolean upper) {
+        int lo = 0;
+        int hi = suffixes.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = comparePrefix(suffixes[mid], s);
+            if (cmp < 0 || (upper && cmp == 0)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * The shorter of two keys, or the lower index if they are the same length; -1 is no key.
+     */
+    private int shorter(int a, int b) {
+        if (a < 0 || b < 0) {
+            return Math.max(a, b);
+        }
+        int lengthA = keyLength(a);
+        int lengthB = keyLength(b);
+        return lengthA < lengthB || (lengthA == lengthB && a < b) ? a : b;
+    }
+
+    private int keyAt(int pos) {
+        int index = Arrays.binarySearch(keyStart, pos);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private int keyLength(int key) {
+        int end = key + 1 < keyStart.length ? keyStart[key + 1] : text.length;
+        return end - keyStart[key] - 1;
+    }
+}
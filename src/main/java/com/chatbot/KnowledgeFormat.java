@@ -0,0 +1,86 @@
+package com.chatbot;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Text format shared by the knowledge base file and its write-ahead log.
+ * Each line holds one pair as "question|||answer", with newlines escaped.
+ */
+public final class KnowledgeFormat {
+    private KnowledgeFormat() {
+    }
+
+    /**
+     * Encode a question-answer pair as a single line (without the line terminator).
+     */
+    public static String encode(String key, String value) {
+        // Use ||| as delimiter to avoid conflicts with user data containing pipes
+        String escapedKey = key.replace("\n", "\\n").replace("|||", "|");
+        String escapedValue = value.replace("\n", "\\n").replace("|||", "|");
+        return escapedKey + "|||" + escapedValue;
+    }
+
+    /**
+     * Decode a single line into a question-answer pair.
+     * @return The key and value, or null if the line holds no pair
+     */
+    public static String[] decode(String line) {
+        line = line.trim();
+        if (!line.isEmpty() && line.contains("|||")) {
+            String[] parts = line.split("\\|\\|\\|", 2);
+            if (parts.length == 2) {
+                // Unescape newlines and restore pipes
+                parts[0] = parts[0].replace("\\n", "\n").replace("|", "|||");
+                parts[1] = parts[1].replace("\\n", "\n").replace("|", "|||");
+                return parts;
+            }
+        } else if (!line.isEmpty() && line.contains("|")) {
+            // Backward compatibility with old format
+            String[] parts = line.split("\\|", 2);
+            if (parts.length == 2) {
+                return parts;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Read every pair from a knowledge file.
+     */
+    public static void read(File file, BiConsumer<String, String> consumer) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] pair = decode(line);
+                if (pair != null) {
+                    consumer.accept(pair[0], pair[1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write all pairs to a knowledge file, replacing it atomically.
+     */
+    public static void write(Map<String, String> pairs, File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (PrintWriter writer = new PrintWriter(temp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> entry : pairs.entrySet()) {
+                writer.println(encode(entry.getKey(), entry.getValue()));
+            }
+            if (writer.checkError()) {
+                throw new IOException("Could not write " + temp);
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+}
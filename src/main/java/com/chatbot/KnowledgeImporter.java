@@ -0,0 +1,500 @@
+package com.chatbot;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Bulk import of question-answer pairs from CSV (question,answer), JSON Lines
+ * ({"question": ..., "answer": ...}, where numbers and true/false are taken as their text
+ * and null as empty) or knowledge base ("question|||answer") files, picked by
+ * file extension. The file is streamed in chunks of records that are parsed and validated in
+ * parallel, with the same rules as teaching one pair: questions are lowercased and trimmed,
+ * and must be 1 to 200 characters, answers 1 to 500. When a question appears more than once
+ * the last answer wins. Everything is committed to the store at the end in one step.
+ */
+public class KnowledgeImporter {
+    private static final int CHUNK_SIZE = 8192;
+
+    private final int threads;
+
+    /**
+     * What an import did.
+     */
+    public static final class Result {
+        public long records;    // Records read from the file
+        public long added;      // New questions
+        public long updated;    // Known questions with a new answer
+        public long unchanged;  // Known questions with the same answer
+        public long duplicates; // Records overridden by a later record for the same question
+        public long invalid;    // Empty or too long questions or answers
+        public long malformed;  // Records that could not be parsed
+
+        @Override
+        public String toString() {
+            return "Imported " + (added + updated) + " of " + records + " records: " + added + " new, " +
+                   updated + " updated, " + unchanged + " unchanged, " + duplicates + " duplicates, " +
+                   invalid + " invalid, " + malformed + " malformed.";
+        }
+    }
+
+    /**
+     * Records of one chunk after parsing: the valid pairs in file order and the rejection counts.
+     */
+    private static final class ParsedChunk {
+        final ArrayList<String[]> pairs = new ArrayList<>();
+        long invalid;
+        long malformed;
+    }
+
+    private enum Format {
+        CSV, JSONL, KNOWLEDGE;
+
+        static Format of(File file) {
+            String name = file.getName().toLowerCase();
+            if (name.endsWith(".csv")) {
+                return CSV;
+            } else if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+                return JSONL;
+            }
+            return KNOWLEDGE;
+        }
+    }
+
+    /**
+     * Create an importer that parses with the given number of threads.
+     */
+    public KnowledgeImporter(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public KnowledgeImporter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Import a file: java com.chatbot.KnowledgeImporter pairs.csv [chatbot_data.txt]
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: java com.chatbot.KnowledgeImporter pairs.(csv|jsonl|txt) [data file]");
+            return;
+        }
+        String dataFile = args.length > 1 ? args[1] : "chatbot_data.txt";
+        try {
+            System.out.println(new KnowledgeImporter().importFile(new File(args[0]), KnowledgeStore.forFile(dataFile)));
+        } catch (IOException e) {
+            System.err.println("Error importing " + args[0] + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Import every valid pair of a file into a store.
+     */
+    public Result importFile(File file, KnowledgeStore store) throws IOException {
+        Format format = Format.of(file);
+        Result result = new Result();
+        LinkedHashMap<String, String> pairs = new LinkedHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "knowledge-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Parsed chunks are merged in file order; only a few are in flight to bound memory
+        ArrayDeque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            boolean first = true;
+            ArrayList<String> records = new ArrayList<>(CHUNK_SIZE);
+            String record;
+            while ((record = readRecord(reader, format)) != null) {
+                if (first && format == Format.CSV && isCsvHeader(record)) {
+                    first = false;
+                    continue;
+                }
+                first = false;
+                if (record.trim().isEmpty()) {
+                    continue;
+                }
+                result.records++;
+                records.add(record);
+                if (records.size() == CHUNK_SIZE) {
+                    List<String> chunk = records;
+                    inFlight.add(executor.submit(() -> parse(chunk, format)));
+                    records = new ArrayList<>(CHUNK_SIZE);
+                    if (inFlight.size() >= threads * 2) {
+                        merge(inFlight.poll(), pairs, result);
+                    }
+                }
+            }
+            if (!records.isEmpty()) {
+                List<String> chunk = records;
+                inFlight.add(executor.submit(() -> parse(chunk, format)));
+            }
+            while (!inFlight.isEmpty()) {
+                merge(inFlight.poll(), pairs, result);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        KnowledgeStore.Snapshot current = store.snapshot();
+        LinkedHashMap<String, String> changes = new LinkedHashMap<>();
+        for (var pair : pairs.entrySet()) {
+            String known = current.get(pair.getKey());
+            if (known == null) {
+                result.added++;
+                changes.put(pair.getKey(), pair.getValue());
+            } else if (!known.equals(pair.getValue())) {
+                result.updated++;
+                changes.put(pair.getKey(), pair.getValue());
+            } else {
+                result.unchanged++;
+            }
+        }
+        store.learnAll(changes);
+        return result;
+    }
+
+    private static void merge(Future<ParsedChunk> future, LinkedHashMap<String, String> pairs, Result result)
+            throws IOException {
+        ParsedChunk chunk;
+        try {
+            chunk = future.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Could not parse import file: " + e.getCause(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while importing", e);
+        }
+        result.invalid += chunk.invalid;
+        result.malformed += chunk.malformed;
+        for (String[] pair : chunk.pairs) {
+            if (pairs.put(pair[0], pair[1]) != null) {
+                result.duplicates++;
+            }
+        }
+    }
+
+    /**
+     * Read one record: a line, or for CSV as many lines as a quoted field spans.
+     */
+    private static String readRecord(BufferedReader reader, Format format) throws IOException {
+        String line = reader.readLine();
+        if (line == null || format != Format.CSV) {
+            return line;
+        }
+        StringBuilder record = null;
+        while (countQuotes(record != null ? record : line) % 2 != 0) {
+            String next = reader.readLine();
+            if (next == null) {
+                break; // Unterminated quote; left for the parser to reject
+            }
+            if (record == null) {
+                record = new StringBuilder(line);
+            }
+            record.append('\n').append(next);
+        }
+        return record != null ? record.toString() : line;
+    }
+
+    private static int countQuotes(CharSequence text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isCsvHeader(String record) {
+        String[] fields = parseCsv(record);
+        return fields != null && fields[0].trim().equalsIgnoreCase("question")
+               && fields[1].trim().equalsIgnoreCase("answer");
+    }
+
+    /**
+     * Parse and validate one chunk. Runs on the import threads.
+     */
+    private static ParsedChunk parse(List<String> records, Format format) {
+        ParsedChunk chunk = new ParsedChunk();
+        for (String record : records) {
+            String[] pair;
+            switch (format) {
+                case CSV:
+                    pair = parseCsv(record);
+                    break;
+                case JSONL:
+                    pair = parseJson(record);
+                    break;
+                default:
+                    pair = KnowledgeFormat.decode(record);
+            }
+            if (pair == null) {
+                chunk.malformed++;
+                continue;
+            }
+            String question = pair[0].trim();
+            String answer = pair[1].trim();
+            if (question.isEmpty() || answer.isEmpty()
+                    || question.length() > ChatBot.MAX_QUESTION_LENGTH || answer.length() > ChatBot.MAX_ANSWER_LENGTH) {
+                chunk.invalid++;
+                continue;
+            }
+            chunk.pairs.add(new String[] {question.toLowerCase(), answer}); // Normalized as Bot.learn does
+        }
+        return chunk;
+    }
+
+    /**
+     * Parse a CSV record of exactly two fields, which may be quoted with "" as an escaped quote.
+     * @return The two fields, or null if the record is not valid
+     */
+    static String[] parseCsv(String record) {
+        ArrayList<String> fields = new ArrayList<>(2);
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            field.setLength(0);
+            if (i < record.length() && record.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= record.length()) {
+                        return null; // Unterminated quote
+                    }
+                    char c = record.charAt(i++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (i < record.length() && record.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < record.length() && record.charAt(i) != ',') {
+                    return null; // Text after a closing quote
+                }
+            } else {
+                while (i < record.length() && record.charAt(i) != ',') {
+                    field.append(record.charAt(i++));
+                }
+            }
+            fields.add(field.toString());
+            if (i >= record.length()) {
+                break;
+            }
+            i++; // Skip the comma
+        }
+        return fields.size() == 2 ? fields.toArray(new String[0]) : null;
+    }
+
+    /**
+     * Parse a JSON object with fields "question" and "answer". Fields may be strings, numbers,
+     * true, false or null; numbers and booleans become their text as written, and null becomes
+     * empty, so the record is counted as invalid rather than malformed.
+     * @return The question and answer, or null if the line is not such an object
+     */
+    static String[] parseJson(String line) {
+        String question = null;
+        String answer = null;
+        int[] position = {skipSpace(line, 0)};
+        if (position[0] >= line.length() || line.charAt(position[0]++) != '{') {
+            return null;
+        }
+        position[0] = skipSpace(line, position[0]);
+        if (position[0] < line.length() && line.charAt(position[0]) == '}') {
+            return null;
+        }
+        while (true) {
+            String name = parseJsonString(line, position);
+            if (name == null) {
+                return null;
+            }
+            position[0] = skipSpace(line, position[0]);
+            if (position[0] >= line.length() || line.charAt(position[0]++) != ':') {
+                return null;
+            }
+            position[0] = skipSpace(line, position[0]);
+            String value = parseJsonValue(line, position);
+            if (value == null) {
+                return null;
+            }
+            if (name.equals("question")) {
+                question = value;
+            } else if (name.equals("answer")) {
+                answer = value;
+            }
+            position[0] = skipSpace(line, position[0]);
+            if (position[0] >= line.length()) {
+                return null;
+            }
+            char c = line.charAt(position[0]++);
+            if (c == '}') {
+                break;
+            } else if (c != ',') {
+                return null;
+            }
+            position[0] = skipSpace(line, position[0]);
+        }
+        if (skipSpace(line, position[0]) != line.length() || question == null || answer == null) {
+            return null;
+        }
+        return new String[] {question, answer};
+    }
+
+    /**
+     * Parse a JSON string, number, true, false or null starting at position[0], advancing
+     * it past the value.
+     * @return The value as text, empty for null, or null if there is no such value
+     */
+    private static String parseJsonValue(String line, int[] position) {
+        int start = position[0];
+        if (start >= line.length()) {
+            return null;
+        }
+        char c = line.charAt(start);
+        if (c == '"') {
+            return parseJsonString(line, position);
+        }
+        for (String literal : new String[] {"true", "false", "null"}) {
+            if (line.startsWith(literal, start)) {
+                position[0] = start + literal.length();
+                return literal.equals("null") ? "" : literal;
+            }
+        }
+        int end = skipNumber(line, start);
+        if (end < 0) {
+            return null;
+        }
+        position[0] = end;
+        return line.substring(start, end);
+    }
+
+    /**
+     * Find the end of a JSON number: an optional minus, integer digits without a leading
+     * zero, then an optional fraction and exponent.
+     * @return The index after the number, or -1 if there is no valid number at start
+     */
+    private static int skipNumber(String line, int start) {
+        int i = start;
+        if (i < line.length() && line.charAt(i) == '-') {
+            i++;
+        }
+        if (i < line.length() && line.charAt(i) == '0') {
+            i++;
+        } else {
+            int digits = skipDigits(line, i);
+            if (digits == i) {
+                return -1;
+            }
+            i = digits;
+        }
+        if (i < line.length() && line.charAt(i) == '.') {
+            int digits = skipDigits(line, i + 1);
+            if (digits == i + 1) {
+                return -1;
+            }
+            i = digits;
+        }
+        if (i < line.length() && (line.charAt(i) == 'e' || line.charAt(i) == 'E')) {
+            i++;
+            if (i < line.length() && (line.charAt(i) == '+' || line.charAt(i) == '-')) {
+                i++;
+            }
+            int digits = skipDigits(line, i);
+            if (digits == i) {
+                return -1;
+            }
+            i = digits;
+        }
+        return i;
+    }
+
+    private static int skipDigits(String line, int i) {
+        while (i < line.length() && line.charAt(i) >= '0' && line.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Parse a JSON string starting at position[0], advancing it past the closing quote.
+     */
+    private static String parseJsonString(String line, int[] position) {
+        int i = position[0];
+        if (i >= line.length() || line.charAt(i++) != '"') {
+            return null;
+        }
+        StringBuilder value = new StringBuilder();
+        while (i < line.length()) {
+            char c = line.charAt(i++);
+            if (c == '"') {
+                position[0] = i;
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (i >= line.length()) {
+                return null;
+            }
+            char escape = line.charAt(i++);
+            switch (escape) {
+                case '"':
+                case '\\':
+                case '/':
+                    value.append(escape);
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'u':
+                    if (i + 4 > line.length()) {
+                        return null;
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(line.substring(i, i + 4), 16));
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                    i += 4;
+                    break;
+                default:
+                    return null;
+            }
+        }
+        return null; // Unterminated string
+    }
+
+    private static int skipSpace(String line, int i) {
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
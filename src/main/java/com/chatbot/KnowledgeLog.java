@@ -0,0 +1,484 @@
+package com.chatbot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Append-only write-ahead log for learned question-answer pairs.
+ * Appends are written by a single committer thread that batches every pending entry
+ * into one write and one fsync (group commit). A batch that cannot be written fails only
+ * the appends in it; the committer backs off, starts a fresh segment and carries on, so
+ * later appends succeed once the disk problem clears. Once the active log segment grows past
+ * a threshold it is sealed and compacted into the main knowledge file in the background.
+ * Segments are named "[dataFile].log.[n]" and replayed in order on top of the snapshot.
+ * The snapshot is either the text data file or a binary KnowledgeSnapshot next to it;
+ * compaction and saves write the binary one when chatbot.snapshot=binary, and delete the
+ * other format in the same step, so only one kind exists. Each binary snapshot is written
+ * under a new generation name ("[name].bin", then "[name].1.bin", ...) rather than over the
+ * previous one, which a store may still have mapped; older generations are deleted once
+ * the operating system allows it, and the highest one is loaded.
+ */
+public class KnowledgeLog {
+    /**
+     * When appended entries are forced to disk before being acknowledged.
+     */
+    public enum SyncPolicy {
+        ALWAYS, // One fsync per entry
+        GROUP,  // One fsync per batch of entries committed together
+        NEVER   // Leave flushing to the operating system
+    }
+
+    private static final HashMap<String, KnowledgeLog> LOGS = new HashMap<>();
+    private static final long MIN_BACKOFF_MILLIS = 50;
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+
+    private final File dataFile;
+    private final String binaryPrefix; // Binary snapshot files are binaryPrefix [. generation] .bin
+    private final boolean binarySnapshot; // Compact into the binary format instead of text
+    private final SyncPolicy syncPolicy;
+    private final int groupCommitSize;
+    private final long groupCommitMillis;
+    private final long compactBytes;
+
+    private final ArrayList<byte[]> queue = new ArrayList<>();
+    private long appended; // Entries handed to append so far
+    private long committed; // Entries the committer is done with, written or failed
+    private final HashMap<Long, IOException> failures = new HashMap<>(); // Failed tickets not yet awaited
+    private int segment;
+    private FileChannel channel;
+    private Thread committer; // Started on first append, so read-only users never start it
+    private volatile boolean compacting;
+    private final Object compactionLock = new Object(); // Keeps loads from seeing a half-compacted state
+
+    /**
+     * Get the log for a data file, creating it with settings from system properties
+     * (chatbot.log.sync, chatbot.log.groupCommitSize, chatbot.log.groupCommitMillis,
+     * chatbot.log.compactBytes, chatbot.snapshot=text|binary) on first use.
+     * One log is shared per data file.
+     */
+    public static synchronized KnowledgeLog forFile(String dataFile) {
+        String path = new File(dataFile).getAbsolutePath();
+        KnowledgeLog log = LOGS.get(path);
+        if (log == null) {
+            log = new KnowledgeLog(new File(path),
+                    SyncPolicy.valueOf(System.getProperty("chatbot.log.sync", "GROUP").toUpperCase()),
+                    Integer.getInteger("chatbot.log.groupCommitSize", 256),
+                    Long.getLong("chatbot.log.groupCommitMillis", 0L),
+                    Long.getLong("chatbot.log.compactBytes", 1L << 20),
+                    System.getProperty("chatbot.snapshot", "text").equalsIgnoreCase("binary"));
+            LOGS.put(path, log);
+        }
+        return log;
+    }
+
+    public KnowledgeLog(File dataFile, SyncPolicy syncPolicy, int groupCommitSize,
+                        long groupCommitMillis, long compactBytes, boolean binarySnapshot) {
+        this.dataFile = dataFile;
+        String path = dataFile.getPath();
+        this.binaryPrefix = path.endsWith(".txt") ? path.substring(0, path.length() - 4) : path;
+        this.binarySnapshot = binarySnapshot;
+        this.syncPolicy = syncPolicy;
+        this.groupCommitSize = syncPolicy == SyncPolicy.ALWAYS ? 1 : Math.max(1, groupCommitSize);
+        this.groupCommitMillis = groupCommitMillis;
+        this.compactBytes = compactBytes;
+        // Always start a fresh segment so a torn line left by a crash is never appended to
+        List<Integer> segments = segments();
+        this.segment = segments.isEmpty() ? 0 : segments.get(segments.size() - 1) + 1;
+    }
+
+    /**
+     * Append a pair to the log, returning once it has been written according to the sync policy.
+     */
+    public void append(String key, String value) throws IOException {
+        awaitCommit(enqueue(key, value));
+    }
+
+    /**
+     * Queue a pair for the committer without waiting for it to be written.
+     * Entries are written in the order they are queued.
+     * @return A ticket to pass to awaitCommit
+     */
+    public synchronized long enqueue(String key, String value) {
+        startCommitter();
+        queue.add((KnowledgeFormat.encode(key, value) + "\n").getBytes(StandardCharsets.UTF_8));
+        notifyAll();
+        return ++appended;
+    }
+
+    /**
+     * Start the committer on first use, so read-only users never start it. Caller must hold the lock.
+     */
+    private void startCommitter() {
+        if (committer == null) {
+            committer = new Thread(this::commitLoop, "knowledge-log-committer");
+            committer.setDaemon(true);
+            committer.start();
+        }
+    }
+
+    /**
+     * Queue many pairs as a single entry, so they are written with one write and one sync.
+     * @return A ticket to pass to awaitCommit
+     */
+    public long enqueueAll(Map<String, String> pairs) {
+        StringBuilder lines = new StringBuilder();
+        for (Map.Entry<String, String> pair : pairs.entrySet()) {
+            lines.append(KnowledgeFormat.encode(pair.getKey(), pair.getValue())).append('\n');
+        }
+        byte[] entry = lines.toString().getBytes(StandardCharsets.UTF_8); // Encoded before locking
+        synchronized (this) {
+            startCommitter();
+            queue.add(entry);
+            notifyAll();
+            return ++appended;
+        }
+    }
+
+    /**
+     * Wait until the entry with the given ticket has been written.
+     * Each ticket should be awaited once.
+     * @throws IOException if the batch holding the entry could not be written
+     */
+    public synchronized void awaitCommit(long ticket) throws IOException {
+        while (committed < ticket) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for log commit", e);
+            }
+        }
+        IOException failure = failures.remove(ticket);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Load the snapshot followed by every logged pair, oldest first.
+     */
+    public void load(BiConsumer<String, String> consumer) throws IOException {
+        synchronized (compactionLock) {
+            readSnapshot(consumer);
+            for (int n : segments()) {
+                readSegment(n, consumer);
+            }
+        }
+    }
+
+    /**
+     * Map the binary snapshot if that is the one to load, and load everything else: the text
+     * snapshot if that is the one instead, then every logged pair.
+     * Lookups can then be served from the mapping without loading it.
+     * @param consumer Receives every pair that is not in the returned snapshot, oldest first
+     * @return The mapped snapshot, or null if the snapshot is the text one
+     */
+    public KnowledgeSnapshot loadMapped(BiConsumer<String, String> consumer) throws IOException {
+        synchronized (compactionLock) {
+            KnowledgeSnapshot mapped = null;
+            File binary = binarySnapshot();
+            if (binary != null) {
+                mapped = KnowledgeSnapshot.open(binary);
+            } else if (dataFile.exists()) {
+                KnowledgeFormat.read(dataFile, consumer);
+            }
+            for (int n : segments()) {
+                readSegment(n, consumer);
+            }
+            return mapped;
+        }
+    }
+
+    /**
+     * Read the snapshot, binary or text.
+     */
+    private void readSnapshot(BiConsumer<String, String> consumer) throws IOException {
+        File binary = binarySnapshot();
+        if (binary != null) {
+            KnowledgeSnapshot.open(binary).forEach(consumer);
+        } else if (dataFile.exists()) {
+            KnowledgeFormat.read(dataFile, consumer);
+        }
+    }
+
+    /**
+     * The binary snapshot to load, or null to load the text one. Only one format exists unless
+     * a crash interrupted a write or a file was copied in; then the configured format wins.
+     */
+    private File binarySnapshot() {
+        List<Integer> generations = binaryGenerations();
+        if (generations.isEmpty()) {
+            return null;
+        }
+        File binary = binaryFile(generations.get(generations.size() - 1));
+        if (dataFile.exists()) {
+            System.err.println("Warning: Both " + dataFile.getName() + " and " + binary.getName() +
+                               " exist; loading the " + (binarySnapshot ? "binary" : "text") + " one");
+            return binarySnapshot ? binary : null;
+        }
+        return binary;
+    }
+
+    /**
+     * Replace the snapshot with pairs, in the configured format, and delete every other
+     * snapshot file. Caller must hold compactionLock.
+     */
+    private void replaceSnapshot(Map<String, String> pairs) throws IOException {
+        List<Integer> generations = binaryGenerations();
+        if (binarySnapshot) {
+            int next = generations.isEmpty() ? 0 : generations.get(generations.size() - 1) + 1;
+            KnowledgeSnapshot.write(pairs, binaryFile(next));
+            Files.deleteIfExists(dataFile.toPath());
+        } else {
+            KnowledgeFormat.write(pairs, dataFile);
+        }
+        for (int generation : generations) {
+            try {
+                Files.deleteIfExists(binaryFile(generation).toPath());
+            } catch (IOException e) {
+                // Still mapped (Windows will not delete it); the next write tries again
+            }
+        }
+    }
+
+    /**
+     * Read one segment. A torn last line (from a crash in the middle of a write) is ignored.
+     */
+    private void readSegment(int n, BiConsumer<String, String> consumer) throws IOException {
+        String content = new String(Files.readAllBytes(segmentFile(n).toPath()), StandardCharsets.UTF_8);
+        int end = content.lastIndexOf('\n');
+        for (String line : content.substring(0, end + 1).split("\n")) {
+            String[] pair = KnowledgeFormat.decode(line);
+            if (pair != null) {
+                consumer.accept(pair[0], pair[1]);
+            }
+        }
+    }
+
+    /**
+     * Write a full copy of the knowledge base as the snapshot, in the same format compaction
+     * uses, taking it only once any compaction in progress is done. Compaction and saving both
+     * replace the snapshot, so this keeps a save from overwriting entries whose log segments
+     * compaction has deleted.
+     */
+    public void writeSnapshot(Supplier<Map<String, String>> pairs) throws IOException {
+        synchronized (compactionLock) {
+            replaceSnapshot(pairs.get());
+        }
+    }
+
+    /**
+     * Check whether there is anything on disk to load.
+     */
+    public boolean exists() {
+        return dataFile.exists() || !binaryGenerations().isEmpty() || !segments().isEmpty();
+    }
+
+    private void commitLoop() {
+        long backoffMillis = 0;
+        while (true) {
+            ArrayList<byte[]> batch;
+            long batchEnd;
+            synchronized (this) {
+                try {
+                    while (queue.isEmpty()) {
+                        wait();
+                    }
+                    // Give concurrent writers a moment to join this batch
+                    long deadline = System.currentTimeMillis() + groupCommitMillis;
+                    long remaining = groupCommitMillis;
+                    while (queue.size() < groupCommitSize && remaining > 0) {
+                        wait(remaining);
+                        remaining = deadline - System.currentTimeMillis();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                int size = Math.min(queue.size(), groupCommitSize);
+                batch = new ArrayList<>(queue.subList(0, size));
+                queue.subList(0, size).clear();
+                batchEnd = appended - queue.size();
+            }
+
+            try {
+                write(batch);
+                backoffMillis = 0;
+                synchronized (this) {
+                    committed = batchEnd;
+                    notifyAll();
+                }
+            } catch (IOException e) {
+                abandonSegment();
+                synchronized (this) {
+                    for (long ticket = batchEnd - batch.size() + 1; ticket <= batchEnd; ticket++) {
+                        failures.put(ticket, e);
+                    }
+                    committed = batchEnd;
+                    notifyAll();
+                }
+                // Give the disk time to recover before the next batch
+                backoffMillis = Math.min(MAX_BACKOFF_MILLIS, Math.max(MIN_BACKOFF_MILLIS, backoffMillis * 2));
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Close the active segment after a failed write and move on to a new one, so a torn
+     * line stays at the end of its segment, where replay ignores it.
+     */
+    private void abandonSegment() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already failing; the next segment is opened fresh
+            }
+            channel = null;
+        }
+        segment++;
+    }
+
+    /**
+     * Write one batch to the active segment. Only called from the committer thread.
+     */
+    private void write(List<byte[]> batch) throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(segmentFile(segment).toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        ByteBuffer buffer;
+        if (batch.size() == 1) {
+            buffer = ByteBuffer.wrap(batch.get(0)); // A bulk entry can be large; do not copy it
+        } else {
+            int size = 0;
+            for (byte[] line : batch) {
+                size += line.length;
+            }
+            buffer = ByteBuffer.allocate(size);
+            for (byte[] line : batch) {
+                buffer.put(line);
+            }
+            buffer.flip();
+        }
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (syncPolicy != SyncPolicy.NEVER) {
+            channel.force(false);
+        }
+
+        if (channel.size() >= compactBytes && !compacting) {
+            // Seal the active segment; new entries go to the next one
+            channel.close();
+            channel = null;
+            int sealed = segment++;
+            compacting = true;
+            Thread compactor = new Thread(() -> compact(sealed), "knowledge-log-compactor");
+            compactor.setDaemon(true);
+            compactor.start();
+        }
+    }
+
+    /**
+     * Fold the snapshot and every segment up to and including sealed into a new snapshot,
+     * then delete those segments. A crash at any point leaves a replayable state.
+     */
+    private void compact(int sealed) {
+        try {
+            LinkedHashMap<String, String> pairs = new LinkedHashMap<>();
+            readSnapshot(pairs::put);
+            List<Integer> done = new ArrayList<>();
+            for (int n : segments()) {
+                if (n > sealed) {
+                    break;
+                }
+                readSegment(n, pairs::put);
+                done.add(n);
+            }
+            synchronized (compactionLock) {
+                replaceSnapshot(pairs);
+                for (int n : done) {
+                    Files.deleteIfExists(segmentFile(n).toPath());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Warning: Could not compact knowledge log: " + e.getMessage());
+        } finally {
+            compacting = false;
+        }
+    }
+
+    private File segmentFile(int n) {
+        return new File(dataFile.getPath() + ".log." + n);
+    }
+
+    private File binaryFile(int generation) {
+        return new File(binaryPrefix + (generation == 0 ? "" : "." + generation) + ".bin");
+    }
+
+    /**
+     * List existing binary snapshot generations in ascending order.
+     */
+    private List<Integer> binaryGenerations() {
+        ArrayList<Integer> result = new ArrayList<>();
+        File first = binaryFile(0).getAbsoluteFile();
+        File dir = first.getParentFile();
+        String prefix = new File(binaryPrefix).getName() + ".";
+        String[] names = dir == null ? null : dir.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.equals(first.getName())) {
+                    result.add(0);
+                } else if (name.startsWith(prefix) && name.endsWith(".bin")) {
+                    try {
+                        result.add(Integer.parseInt(name.substring(prefix.length(), name.length() - ".bin".length())));
+                    } catch (NumberFormatException e) {
+                        // Not a snapshot generation
+                    }
+                }
+            }
+        }
+        result.sort(null);
+        return result;
+    }
+
+    /**
+     * List existing segment numbers in ascending order.
+     */
+    private List<Integer> segments() {
+        ArrayList<Integer> result = new ArrayList<>();
+        File dir = dataFile.getAbsoluteFile().getParentFile();
+        String prefix = dataFile.getName() + ".log.";
+        String[] names = dir == null ? null : dir.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.startsWith(prefix)) {
+                    try {
+                        result.add(Integer.parseInt(name.substring(prefix.length())));
+                    } catch (NumberFormatException e) {
+                        // Not a log segment
+                    }
+                }
+            }
+        }
+        result.sort(null);
+        return result;
+    }
+}
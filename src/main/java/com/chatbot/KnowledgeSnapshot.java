@@ -0,0 +1,262 @@
+package com.chatbot;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Read-only binary knowledge base snapshot, served from a memory-mapped file.
+ * Layout (big-endian):
+ *   int magic, int version, int count,
+ *   int[count] entry offsets, sorted by key bytes,
+ *   entries: int keyLength, key bytes (UTF-8), int valueLength, value bytes (UTF-8).
+ * Lookups binary-search the offset table and compare raw bytes, so only the value
+ * that is asked for is ever decoded into a String. A KnowledgeStore serves its exact
+ * lookups straight from the mapping, so answers never have to be loaded onto the heap.
+ */
+public class KnowledgeSnapshot {
+    private static final int MAGIC = 0x43424B42; // "CBKB"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+
+    private final MappedByteBuffer buffer;
+    private final int count;
+
+    private KnowledgeSnapshot(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a knowledge base snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported snapshot version " + buffer.getInt(4));
+        }
+        this.count = buffer.getInt(8);
+    }
+
+    /**
+     * Map a snapshot file into memory.
+     */
+    public static KnowledgeSnapshot open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new KnowledgeSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Look up the answer for a key without decoding any other entry.
+     * @return The answer, or null if the key is not in the snapshot
+     */
+    public String get(String key) {
+        int index = indexOf(key);
+        return index >= 0 ? value(index) : null;
+    }
+
+    /**
+     * Check whether a key is present without decoding its answer.
+     */
+    public boolean containsKey(String key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Binary-search the entries for a key.
+     * @return The entry's index in key order, or -1 if the key is not in the snapshot
+     */
+    private int indexOf(String key) {
+        byte[] target = key.getBytes(StandardCharsets.UTF_8);
+        int lo = 0;
+        int hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compareKey(entryOffset(mid), target);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Decode the key of the entry at an index in key order.
+     */
+    public String key(int index) {
+        return decode(entryOffset(index));
+    }
+
+    /**
+     * Decode the answer of the entry at an index in key order.
+     */
+    public String value(int index) {
+        int offset = entryOffset(index);
+        return decode(offset + 4 + buffer.getInt(offset));
+    }
+
+    /**
+     * Decode every entry, in key order.
+     */
+    public void forEach(BiConsumer<String, String> consumer) {
+        for (int i = 0; i < count; i++) {
+            consumer.accept(key(i), value(i));
+        }
+    }
+
+    private int entryOffset(int index) {
+        return buffer.getInt(HEADER_SIZE + 4 * index);
+    }
+
+    /**
+     * Compare the key stored at offset with target, as unsigned bytes.
+     */
+    private int compareKey(int offset, byte[] target) {
+        int length = buffer.getInt(offset);
+        int common = Math.min(length, target.length);
+        for (int i = 0; i < common; i++) {
+            int a = buffer.get(offset + 4 + i) & 0xFF;
+            int b = target[i] & 0xFF;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return length - target.length;
+    }
+
+    /**
+     * Decode the length-prefixed UTF-8 string stored at offset.
+     */
+    private String decode(int offset) {
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        buffer.get(offset + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write pairs as a binary snapshot, replacing the file atomically.
+     */
+    public static void write(Map<String, String> pairs, File file) throws IOException {
+        byte[][] keys = new byte[pairs.size()][];
+        byte[][] values = new byte[pairs.size()][];
+        int n = 0;
+        for (Map.Entry<String, String> entry : pairs.entrySet()) {
+            keys[n] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            values[n] = entry.getValue().getBytes(StandardCharsets.UTF_8);
+            n++;
+        }
+        int[] order = sortByKey(keys);
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(n);
+            long offset = HEADER_SIZE + 4L * n;
+            for (int i : order) {
+                if (offset > Integer.MAX_VALUE) {
+                    throw new IOException("Knowledge base too large for snapshot format");
+                }
+                out.writeInt((int) offset);
+                offset += 8L + keys[i].length + values[i].length;
+            }
+            for (int i : order) {
+                out.writeInt(keys[i].length);
+                out.write(keys[i]);
+                out.writeInt(values[i].length);
+                out.write(values[i]);
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Entry indices in order of their key bytes, compared as unsigned. A bottom-up merge sort
+     * over int arrays, so sorting allocates nothing per key.
+     */
+    private static int[] sortByKey(byte[][] keys) {
+        int n = keys.length;
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        int[] merged = new int[n];
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n - width; lo += 2 * width) {
+                int mid = lo + width;
+                int hi = Math.min(lo + 2 * width, n);
+                int i = lo;
+                int j = mid;
+                int k = lo;
+                while (i < mid && j < hi) {
+                    merged[k++] = Arrays.compareUnsigned(keys[order[i]], keys[order[j]]) <= 0 ? order[i++] : order[j++];
+                }
+                while (i < mid) {
+                    merged[k++] = order[i++];
+                }
+                while (j < hi) {
+                    merged[k++] = order[j++];
+                }
+                System.arraycopy(merged, lo, order, lo, hi - lo);
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Convert a "|||" text knowledge file into a binary snapshot.
+     */
+    public static void fromText(File textFile, File snapshotFile) throws IOException {
+        LinkedHashMap<String, String> pairs = new LinkedHashMap<>();
+        KnowledgeFormat.read(textFile, pairs::put);
+        write(pairs, snapshotFile);
+    }
+
+    /**
+     * Convert a binary snapshot back into a "|||" text knowledge file.
+     */
+    public static void toText(File snapshotFile, File textFile) throws IOException {
+        LinkedHashMap<String, String> pairs = new LinkedHashMap<>();
+        open(snapshotFile).forEach(pairs::put);
+        KnowledgeFormat.write(pairs, textFile);
+    }
+
+    /**
+     * Command-line converter:
+     *   java com.chatbot.KnowledgeSnapshot to-binary chatbot_data.txt chatbot_data.bin
+     *   java com.chatbot.KnowledgeSnapshot to-text chatbot_data.bin chatbot_data.txt
+     */
+    public static void main(String[] args) {
+        if (args.length != 3 || !(args[0].equals("to-binary") || args[0].equals("to-text"))) {
+            System.out.println("Usage: KnowledgeSnapshot to-binary|to-text <input> <output>");
+            return;
+        }
+        try {
+            if (args[0].equals("to-binary")) {
+                fromText(new File(args[1]), new File(args[2]));
+            } else {
+                toText(new File(args[1]), new File(args[2]));
+            }
+            System.out.println("Converted " + args[1] + " to " + args[2]);
+        } catch (IOException e) {
+            System.err.println("Error converting knowledge base: " + e.getMessage());
+        }
+    }
+}
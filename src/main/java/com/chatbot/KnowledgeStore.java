@@ -0,0 +1,628 @@
+package com.chatbot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Process-wide knowledge base shared by every Bot that uses the same data file.
+ * Readers work on an immutable Snapshot that is swapped atomically on every change,
+ * so lookups never lock, and saving writes one consistent point in time.
+ * The entries are split by key hash into segments, each guarded by its own lock, so a
+ * write copies only its segment and writers to different segments run concurrently.
+ * New keys reach the partial, fuzzy and retrieval indexes in batches: a writer queues the
+ * keys it adds, and whichever writer gets the index lock indexes every queued key at once,
+ * so writers never wait for each other's index updates.
+ * When the knowledge base was saved as a binary snapshot, exact lookups are served from the
+ * memory-mapped file and the segments only hold what was logged or learned since, so the
+ * answers in the snapshot are never loaded onto the heap.
+ */
+public class KnowledgeStore {
+    private static final HashMap<String, KnowledgeStore> STORES = new HashMap<>();
+    private static final int RETRIEVAL_CANDIDATES = 5;
+    private static final int MAX_INVALIDATED_KEYS = 64; // More new keys than this clear the response cache
+    private static final int SEGMENTS = 64; // A power of two
+
+    private final File indexFile; // Saved retrieval index, so it is not rebuilt at every start
+    private final KnowledgeLog log;
+    private final ResponseCache responseCache = new ResponseCache(Integer.getInteger("chatbot.cache.size", 4096));
+    private final AtomicReference<Snapshot> snapshot;
+    private final ReentrantLock[] segmentLocks = new ReentrantLock[SEGMENTS];
+    private final ReentrantLock indexLock = new ReentrantLock(); // Taken before any segment lock
+    private final ConcurrentLinkedQueue<String> unindexedKeys = new ConcurrentLinkedQueue<>(); // In the segments only
+
+    /**
+     * Immutable view of the knowledge base at one point in time.
+     */
+    public static final class Snapshot {
+        private final KnowledgeSnapshot base; // Mapped binary snapshot, or null; overridden by the segments
+        private final Map<String, String>[] segments; // Never modified once published
+        private final int size;
+        private final KeyIndex keyIndex;
+        private final Bm25Index retrievalIndex;
+
+        private Snapshot(KnowledgeSnapshot base, Map<String, String>[] segments, int size,
+                         KeyIndex keyIndex, Bm25Index retrievalIndex) {
+            this.base = base;
+            this.segments = segments;
+            this.size = size;
+            this.keyIndex = keyIndex;
+            this.retrievalIndex = retrievalIndex;
+        }
+
+        /**
+         * Get the answer for an exact key, or null.
+         */
+        public String get(String key) {
+            String answer = segments[segmentOf(key)].get(key);
+            return answer != null || base == null ? answer : base.get(key);
+        }
+
+        /**
+         * Check whether a key is present without reading its answer.
+         */
+        public boolean containsKey(String key) {
+            return segments[segmentOf(key)].containsKey(key) || (base != null && base.containsKey(key));
+        }
+
+        /**
+         * Every key, without reading any answer.
+         */
+        List<String> keys() {
+            ArrayList<String> keys = new ArrayList<>(size);
+            for (Map<String, String> segment : segments) {
+                keys.addAll(segment.keySet());
+            }
+            if (base != null) {
+                for (int i = 0; i < base.size(); i++) {
+                    String key = base.key(i);
+                    if (!segments[segmentOf(key)].containsKey(key)) {
+                        keys.add(key);
+                    }
+                }
+            }
+            return keys;
+        }
+
+        /**
+         * Whether a key would be new to this snapshot, given the segment it goes into.
+         */
+        private boolean isNew(Map<String, String> segment, String key) {
+            return !segment.containsKey(key) && (base == null || !base.containsKey(key));
+        }
+
+        /**
+         * Find the best partially matching key for the input, or null.
+         */
+        public String findPartialKey(String input) {
+            return keyIndex.findBestMatch(input);
+        }
+
+        /**
+         * Find the key closest to the input by edit distance, or null.
+         */
+        public String findFuzzyKey(String input) {
+            return keyIndex.findFuzzyMatch(input);
+        }
+
+        /**
+         * Rank keys by BM25 term overlap with the input, best first, keeping those above the confidence cutoff.
+         */
+        public List<Bm25Index.Hit> retrieve(NormalizedInput input, int limit) {
+            return retrievalIndex.search(input, limit);
+        }
+
+        /**
+         * Read-only view of every entry.
+         */
+        public Map<String, String> entries() {
+            return new SegmentedMap(this);
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Read-only map over the segments of a snapshot.
+     */
+    private static final class SegmentedMap extends AbstractMap<String, String> {
+        private final Snapshot snapshot;
+
+        SegmentedMap(Snapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public String get(Object key) {
+            return key instanceof String ? snapshot.get((String) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && snapshot.containsKey((String) key);
+        }
+
+        @Override
+        public int size() {
+            return snapshot.size;
+        }
+
+        @Override
+        public Set<Map.Entry<String, String>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return snapshot.size;
+                }
+
+                @Override
+                public Iterator<Map.Entry<String, String>> iterator() {
+                    return new Iterator<>() {
+                        private int segment;
+                        private Iterator<Map.Entry<String, String>> current = Collections.emptyIterator();
+                        private int baseIndex; // Next entry of the mapped snapshot, once the segments are done
+                        private String baseKey; // Found by hasNext and not yet returned
+
+                        @Override
+                        public boolean hasNext() {
+                            while (!current.hasNext() && segment < SEGMENTS) {
+                                current = snapshot.segments[segment++].entrySet().iterator();
+                            }
+                            if (current.hasNext()) {
+                                return true;
+                            }
+                            KnowledgeSnapshot base = snapshot.base;
+                            while (baseKey == null && base != null && baseIndex < base.size()) {
+                                String key = base.key(baseIndex++);
+                                if (!snapshot.segments[segmentOf(key)].containsKey(key)) {
+                                    baseKey = key; // Not overridden by a newer answer
+                                }
+                            }
+                            return baseKey != null;
+                        }
+
+                        @Override
+                        public Map.Entry<String, String> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            if (current.hasNext()) {
+                                return new AbstractMap.SimpleImmutableEntry<>(current.next());
+                            }
+                            String key = baseKey;
+                            baseKey = null;
+                            return new AbstractMap.SimpleImmutableEntry<>(key, snapshot.base.value(baseIndex - 1));
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    private static int segmentOf(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (SEGMENTS - 1);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Map<String, String>[] newSegments() {
+        return (Map<String, String>[]) new Map[SEGMENTS];
+    }
+
+    /**
+     * The key that answers an input and the stage that found it.
+     */
+    public static final class Match {
+        static final Match NONE = new Match(null, MatchPath.DEFAULT);
+
+        public final String key; // Null when nothing matched
+        public final MatchPath path;
+
+        Match(String key, MatchPath path) {
+            this.key = key;
+            this.path = path;
+        }
+    }
+
+    /**
+     * Get the store for a data file, loading it on first use.
+     */
+    public static synchronized KnowledgeStore forFile(String dataFile) {
+        String path = new File(dataFile).getAbsolutePath();
+        KnowledgeStore store = STORES.get(path);
+        if (store == null) {
+            store = new KnowledgeStore(new File(path), KnowledgeLog.forFile(path), true);
+            STORES.put(path, store);
+        }
+        return store;
+    }
+
+    /**
+     * Load a private store for a data file that is not shared through forFile.
+     * Meant for read-only tools such as benchmarks.
+     */
+    public static KnowledgeStore open(String dataFile) {
+        File file = new File(dataFile).getAbsoluteFile();
+        KnowledgeLog log = new KnowledgeLog(file, KnowledgeLog.SyncPolicy.GROUP, 256, 0, 1L << 20, false);
+        return new KnowledgeStore(file, log, false);
+    }
+
+    private KnowledgeStore(File dataFile, KnowledgeLog log, boolean persistIndex) {
+        this.log = log;
+        String path = dataFile.getPath();
+        this.indexFile = new File((path.endsWith(".txt") ? path.substring(0, path.length() - 4) : path) + ".idx");
+        HashMap<String, String> entries = new HashMap<>(); // Everything not served from the mapped snapshot
+        KnowledgeSnapshot base = null;
+        if (log.exists()) {
+            try {
+                base = log.loadMapped(entries::put);
+            } catch (Exception e) {
+                System.err.println("Warning: Error loading knowledge base: " + e.getMessage());
+                System.err.println("Initializing with default knowledge...");
+                entries.clear();
+            }
+        }
+        Map<String, String>[] segments = newSegments();
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new HashMap<>();
+            segmentLocks[i] = new ReentrantLock();
+        }
+        for (Map.Entry<String, String> entry : entries.entrySet()) {
+            segments[segmentOf(entry.getKey())].put(entry.getKey(), entry.getValue());
+        }
+        Snapshot loaded = new Snapshot(base, segments, 0, KeyIndex.EMPTY, Bm25Index.EMPTY);
+        HashSet<String> keys = new HashSet<>(loaded.keys());
+        this.snapshot = new AtomicReference<>(new Snapshot(base, segments, keys.size(),
+                KeyIndex.build(keys), loadRetrievalIndex(keys, persistIndex)));
+    }
+
+    /**
+     * Read the retrieval index saved next to the data file and add the keys learned since,
+     * or build it if it is missing or indexes keys that no longer exist. Writes it back
+     * when it changed, so the next start can reuse it.
+     */
+    private Bm25Index loadRetrievalIndex(Set<String> keys, boolean persist) {
+        Bm25Index index = null;
+        if (indexFile.exists()) {
+            try {
+                index = Bm25Index.read(indexFile);
+                if (!index.indexesOnly(keys)) {
+                    index = null;
+                }
+            } catch (IOException e) {
+                System.err.println("Warning: Could not read retrieval index, rebuilding it: " + e.getMessage());
+            }
+        }
+        boolean changed = index == null;
+        if (index == null) {
+            index = Bm25Index.build(keys);
+        } else {
+            for (String key : keys) {
+                if (!index.contains(key)) {
+                    index = index.with(key);
+                    changed = true;
+                }
+            }
+        }
+        if (persist && changed && !keys.isEmpty()) {
+            try {
+                index.write(indexFile);
+            } catch (IOException e) {
+                System.err.println("Warning: Could not save retrieval index: " + e.getMessage());
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Get the current snapshot. It never changes; call again to see later updates.
+     */
+    public Snapshot snapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Find the key that answers a normalized input: the input itself if it is a key,
+     * otherwise the best partial match, otherwise the closest key within a few typos,
+     * otherwise the best BM25 match above the confidence cutoff.
+     * Repeated inputs are answered from the response cache.
+     */
+    public Match match(NormalizedInput normalized) {
+        String input = normalized.text();
+        Match cached = responseCache.get(input);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = responseCache.generation(); // Before the snapshot, so a concurrent learn is not missed
+        Match match = match(snapshot.get(), normalized);
+        responseCache.put(input, match, generation);
+        return match;
+    }
+
+    private static Match match(Snapshot current, NormalizedInput normalized) {
+        String input = normalized.text();
+        if (current.get(input) != null) {
+            return new Match(input, MatchPath.EXACT);
+        }
+        if (input.length() < KeyIndex.MIN_KEY_LENGTH) { // Shorter inputs cause too many false matches
+            return Match.NONE;
+        }
+        String key = current.findPartialKey(input);
+        if (key != null) {
+            return new Match(key, MatchPath.PARTIAL);
+        }
+        key = current.findFuzzyKey(input);
+        if (key != null) {
+            return new Match(key, MatchPath.FUZZY);
+        }
+        // The best-scoring key may fall below the confidence cutoff while a runner-up does not
+        List<Bm25Index.Hit> hits = current.retrieve(normalized, RETRIEVAL_CANDIDATES);
+        return hits.isEmpty() ? Match.NONE : new Match(hits.get(0).key, MatchPath.RETRIEVAL);
+    }
+
+    public ResponseCache responseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Store a learned pair and append it to the log.
+     * Returns once the log entry has been committed. A new key can be looked up exactly as
+     * soon as it is stored, and is partially matched once its batch has been indexed.
+     */
+    public void learn(String key, String value) throws IOException {
+        int segment = segmentOf(key);
+        ReentrantLock segmentLock = segmentLocks[segment];
+        boolean added;
+        long ticket;
+        segmentLock.lock();
+        try {
+            Snapshot before = snapshot.get();
+            HashMap<String, String> entries = new HashMap<>(before.segments[segment]);
+            added = before.isNew(entries, key);
+            entries.put(key, value);
+            swapSegment(segment, entries, added ? 1 : 0);
+            if (added) {
+                unindexedKeys.add(key); // Under the segment lock, so publish sees every stored key
+            }
+            ticket = log.enqueue(key, value); // Queued under the segment lock so the log keeps per-key order
+        } finally {
+            segmentLock.unlock();
+        }
+        if (added) {
+            indexQueuedKeys();
+        }
+        log.awaitCommit(ticket);
+    }
+
+    /**
+     * Publish a copy of one segment, retrying if a writer to another segment swapped first.
+     * The caller holds the segment's lock.
+     */
+    private void swapSegment(int segment, Map<String, String> entries, int added) {
+        while (true) {
+            Snapshot current = snapshot.get();
+            Map<String, String>[] segments = Arrays.copyOf(current.segments, SEGMENTS);
+            segments[segment] = entries;
+            Snapshot next = new Snapshot(current.base, segments, current.size + added,
+                    current.keyIndex, current.retrievalIndex);
+            if (snapshot.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Add every queued key to the indexes in one swap, then drop the cached matches they can
+     * change. A writer that finds another one indexing leaves its key to it: the indexing
+     * writer checks the queue again after releasing the lock, so no key is left behind.
+     */
+    private void indexQueuedKeys() {
+        while (!unindexedKeys.isEmpty() && indexLock.tryLock()) {
+            ArrayList<String> keys = new ArrayList<>();
+            try {
+                drainUnindexedKeys(keys);
+                if (keys.isEmpty()) {
+                    continue;
+                }
+                KeyIndex keyIndex = snapshot.get().keyIndex; // Only changes under the index lock, which is held
+                Bm25Index retrievalIndex = snapshot.get().retrievalIndex;
+                for (String key : keys) {
+                    keyIndex = keyIndex.with(key);
+                    retrievalIndex = retrievalIndex.with(key);
+                }
+                while (true) {
+                    Snapshot current = snapshot.get();
+                    Snapshot next = new Snapshot(current.base, current.segments, current.size, keyIndex, retrievalIndex);
+                    if (snapshot.compareAndSet(current, next)) {
+                        break;
+                    }
+                }
+            } finally {
+                indexLock.unlock();
+            }
+            invalidate(keys); // After the swap, so no stale match is cached again
+        }
+    }
+
+    private void drainUnindexedKeys(List<String> keys) {
+        String key;
+        while ((key = unindexedKeys.poll()) != null) {
+            keys.add(key);
+        }
+    }
+
+    private void invalidate(List<String> addedKeys) {
+        if (addedKeys.size() > MAX_INVALIDATED_KEYS) {
+            responseCache.clear();
+        } else {
+            for (String key : addedKeys) {
+                responseCache.invalidate(key);
+            }
+        }
+    }
+
+    /**
+     * Store many pairs at once and append them to the log as a single entry, so a bulk
+     * import costs one snapshot swap and one write. Returns once the entry has been committed.
+     */
+    public void learnAll(Map<String, String> pairs) throws IOException {
+        if (pairs.isEmpty()) {
+            return;
+        }
+        long ticket;
+        lockAll();
+        try {
+            publish(pairs);
+            ticket = log.enqueueAll(pairs);
+        } finally {
+            unlockAll();
+        }
+        log.awaitCommit(ticket);
+    }
+
+    /**
+     * Store built-in pairs in memory only, replacing any loaded values.
+     * Does nothing (and copies nothing) when every pair is already present.
+     */
+    public void putDefaults(Map<String, String> defaults) {
+        if (isPresent(defaults)) {
+            return;
+        }
+        lockAll();
+        try {
+            HashMap<String, String> changed = new HashMap<>();
+            for (Map.Entry<String, String> entry : defaults.entrySet()) {
+                if (!entry.getValue().equals(snapshot.get().get(entry.getKey()))) {
+                    changed.put(entry.getKey(), entry.getValue());
+                }
+            }
+            if (!changed.isEmpty()) {
+                publish(changed);
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    private boolean isPresent(Map<String, String> pairs) {
+        Snapshot current = snapshot.get();
+        for (Map.Entry<String, String> entry : pairs.entrySet()) {
+            if (!entry.getValue().equals(current.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Store a built-in pair in memory only, unless the key is already present.
+     */
+    public void putDefaultIfAbsent(String key, String value) {
+        if (snapshot.get().get(key) != null) {
+            return;
+        }
+        lockAll();
+        try {
+            if (snapshot.get().get(key) == null) {
+                publish(Collections.singletonMap(key, value));
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Take the index lock and every segment lock, in that order, for changes spanning segments.
+     */
+    private void lockAll() {
+        indexLock.lock();
+        for (ReentrantLock lock : segmentLocks) {
+            lock.lock();
+        }
+    }
+
+    /**
+     * Release every lock, then index any key a writer queued while the index lock was held.
+     */
+    private void unlockAll() {
+        for (int i = SEGMENTS - 1; i >= 0; i--) {
+            segmentLocks[i].unlock();
+        }
+        indexLock.unlock();
+        indexQueuedKeys();
+    }
+
+    /**
+     * Copy the segments the changes touch, apply the changes and swap in the new snapshot
+     * with every new key indexed, including keys learned but not yet indexed, then drop
+     * cached matches that the new keys can change. Caller must hold every lock.
+     */
+    private void publish(Map<String, String> changes) {
+        Snapshot current = snapshot.get();
+        Map<String, String>[] segments = Arrays.copyOf(current.segments, SEGMENTS);
+        boolean[] copied = new boolean[SEGMENTS];
+        ArrayList<String> addedKeys = new ArrayList<>();
+        drainUnindexedKeys(addedKeys); // Already in the segments and counted in the size
+        int queued = addedKeys.size();
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            int segment = segmentOf(change.getKey());
+            if (!copied[segment]) {
+                segments[segment] = new HashMap<>(segments[segment]);
+                copied[segment] = true;
+            }
+            if (current.isNew(segments[segment], change.getKey())) {
+                addedKeys.add(change.getKey());
+            }
+            segments[segment].put(change.getKey(), change.getValue());
+        }
+        int size = current.size + addedKeys.size() - queued;
+        KeyIndex keyIndex = current.keyIndex;
+        Bm25Index retrievalIndex = current.retrievalIndex;
+        if (addedKeys.size() * 4L > size) {
+            // Adding a large share of the keys one at a time costs more than building from scratch
+            List<String> keys = new Snapshot(current.base, segments, size, keyIndex, retrievalIndex).keys();
+            CompletableFuture<Bm25Index> retrieval = CompletableFuture.supplyAsync(() -> Bm25Index.build(keys));
+            keyIndex = KeyIndex.build(keys);
+            retrievalIndex = retrieval.join();
+        } else {
+            for (String key : addedKeys) {
+                keyIndex = keyIndex.with(key);
+                retrievalIndex = retrievalIndex.with(key);
+            }
+        }
+        snapshot.set(new Snapshot(current.base, segments, size, keyIndex, retrievalIndex));
+        invalidate(addedKeys); // After the swap, so no stale match is cached again
+    }
+
+    /**
+     * Write the whole current snapshot to the data file (or the binary snapshot, with
+     * chatbot.snapshot=binary), and its retrieval index next to it.
+     */
+    public void save() throws IOException {
+        synchronized (indexFile) { // Saves share temporary file names, so run one at a time
+            Snapshot[] saved = new Snapshot[1];
+            log.writeSnapshot(() -> {
+                saved[0] = snapshot.get(); // Taken under the log's lock, so it includes every compacted entry
+                return saved[0].entries();
+            });
+            saved[0].retrievalIndex.write(indexFile);
+        }
+    }
+}
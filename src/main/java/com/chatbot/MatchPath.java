@@ -0,0 +1,13 @@
+package com.chatbot;
+
+/**
+ * Which stage of the response pipeline produced a bot's reply.
+ */
+public enum MatchPath {
+    EXACT,       // The input is a knowledge base key
+    PARTIAL,     // A knowledge base key was found inside the input, or the input inside a key
+    FUZZY,       // A knowledge base key was within a few typos of the input
+    RETRIEVAL,   // A knowledge base key shared enough weighted terms with the input (BM25)
+    PERSONALITY, // A personality's own keyword handler answered
+    DEFAULT      // Nothing matched; the fallback reply was used
+}
@@ -1,18 +1,36 @@
 package com.chatbot;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
 /**
  * Message class to represent a single message in the chat history.
- * Stores the user's input and the bot's response.
+ * Stores the user's input, the bot's response and the time as epoch nanoseconds.
+ * Chat histories keep their messages in columnar form and create Message objects
+ * only when they are displayed or saved.
  */
 public class Message {
-    private String userInput;
-    private String botResponse;
-    private String timestamp;
+    private final String userInput;
+    private final String botResponse;
+    private final long epochNanos;
 
     public Message(String userInput, String botResponse) {
+        this(userInput, botResponse, nowEpochNanos());
+    }
+
+    Message(String userInput, String botResponse, long epochNanos) {
         this.userInput = userInput;
         this.botResponse = botResponse;
-        this.timestamp = java.time.LocalDateTime.now().toString();
+        this.epochNanos = epochNanos;
+    }
+
+    /**
+     * Current time as nanoseconds since the epoch.
+     */
+    static long nowEpochNanos() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000_000L + now.getNano();
     }
 
     public String getUserInput() {
@@ -23,13 +41,21 @@ public class Message {
         return botResponse;
     }
 
+    public long getEpochNanos() {
+        return epochNanos;
+    }
+
+    /**
+     * Get the local date and time of the message, formatted on demand.
+     */
     public String getTimestamp() {
-        return timestamp;
+        Instant instant = Instant.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+                Math.floorMod(epochNanos, 1_000_000_000L));
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault()).toString();
     }
 
     @Override
     public String toString() {
-        return "[" + timestamp + "] User: " + userInput + "\nBot: " + botResponse;
+        return "[" + getTimestamp() + "] User: " + userInput + "\nBot: " + botResponse;
     }
 }
-
@@ -0,0 +1,154 @@
+package com.chatbot;
+
+/**
+ * User input normalized once per turn and passed through the whole dispatch chain:
+ * the raw text, a trimmed view, a trimmed lowercase view, and the boundaries and hash ids of its tokens
+ * (runs of letters and digits). The lowercase view reuses the raw String when it is
+ * already normalized, and token Strings are only created if a matcher asks for them.
+ */
+public final class NormalizedInput {
+    private static final NormalizedInput EMPTY = new NormalizedInput("", "", "");
+    private static final int FNV_OFFSET = 0x811C9DC5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    private final String raw;
+    private final String trimmed;
+    private final String text;
+    private final int[] tokenStarts;
+    private final int[] tokenEnds;
+    private final int[] tokenIds;
+    private String[] tokens; // Created on first use
+
+    private NormalizedInput(String raw, String trimmed, String text) {
+        this.raw = raw;
+        this.trimmed = trimmed;
+        this.text = text;
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (isTokenChar(text.charAt(i)) && (i == 0 || !isTokenChar(text.charAt(i - 1)))) {
+                count++;
+            }
+        }
+        this.tokenStarts = new int[count];
+        this.tokenEnds = new int[count];
+        this.tokenIds = new int[count];
+        int token = 0;
+        int hash = FNV_OFFSET;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inToken = i < text.length() && isTokenChar(text.charAt(i));
+            if (inToken) {
+                if (i == 0 || !isTokenChar(text.charAt(i - 1))) {
+                    tokenStarts[token] = i;
+                    hash = FNV_OFFSET;
+                }
+                hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+            } else if (i > 0 && isTokenChar(text.charAt(i - 1))) {
+                tokenEnds[token] = i;
+                tokenIds[token++] = hash;
+            }
+        }
+    }
+
+    /**
+     * Normalize raw user input. Null is treated as empty input.
+     */
+    public static NormalizedInput of(String raw) {
+        if (raw == null || raw.isEmpty()) {
+            return EMPTY;
+        }
+        String trimmed = raw.trim();
+        String lower = trimmed.toLowerCase(); // Returns the same String when nothing changes
+        return new NormalizedInput(raw, trimmed, lower);
+    }
+
+    private static boolean isTokenChar(char c) {
+        return Character.isLetterOrDigit(c);
+    }
+
+    /**
+     * The input exactly as the user typed it.
+     */
+    public String raw() {
+        return raw;
+    }
+
+    /**
+     * The input as typed, without surrounding whitespace.
+     */
+    public String trimmed() {
+        return trimmed;
+    }
+
+    /**
+     * The trimmed, lowercase input.
+     */
+    public String text() {
+        return text;
+    }
+
+    public boolean isEmpty() {
+        return text.isEmpty();
+    }
+
+    public int tokenCount() {
+        return tokenIds.length;
+    }
+
+    public int tokenStart(int index) {
+        return tokenStarts[index];
+    }
+
+    public int tokenEnd(int index) {
+        return tokenEnds[index];
+    }
+
+    /**
+     * Hash id of a token, equal to tokenId(token) for the same characters.
+     */
+    public int tokenId(int index) {
+        return tokenIds[index];
+    }
+
+    /**
+     * Check whether any token has the given id. Ids are hashes, so confirm with token() if a collision matters.
+     */
+    public boolean hasToken(int id) {
+        for (int tokenId : tokenIds) {
+            if (tokenId == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The tokens as Strings, created on first use and shared afterwards; do not modify.
+     */
+    public String[] tokens() {
+        String[] result = tokens;
+        if (result == null) {
+            result = new String[tokenIds.length];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = text.substring(tokenStarts[i], tokenEnds[i]);
+            }
+            tokens = result;
+        }
+        return result;
+    }
+
+    /**
+     * Hash id of a lowercase token, for matchers that compare token ids instead of Strings.
+     */
+    public static int tokenId(CharSequence token) {
+        int hash = FNV_OFFSET;
+        for (int i = 0; i < token.length(); i++) {
+            hash = (hash ^ token.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
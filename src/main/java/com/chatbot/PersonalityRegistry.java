@@ -0,0 +1,141 @@
+package com.chatbot;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.function.Supplier;
+
+/**
+ * The bot personalities the user can switch between, keyed by lowercase name (the class
+ * name, such as "jokebot"). Personalities are found with ServiceLoader, so a new one only
+ * needs a public no-argument constructor and a line in META-INF/services/com.chatbot.Respondable.
+ * Each is created on first use and reused after that, so switching back keeps its history
+ * and any game in progress.
+ */
+public class PersonalityRegistry {
+    /**
+     * One personality: how to create it, and the shared instance once created.
+     */
+    private static final class Personality {
+        final String name;
+        final Supplier<? extends Respondable> factory;
+        Respondable instance; // Guarded by this
+
+        Personality(String name, Supplier<? extends Respondable> factory) {
+            this.name = name;
+            this.factory = factory;
+        }
+
+        /**
+         * Create an instance, recording on a Bot the name it was created under.
+         */
+        Respondable create() {
+            Respondable personality = factory.get();
+            if (personality instanceof Bot) {
+                ((Bot) personality).setType(name);
+            }
+            return personality;
+        }
+
+        synchronized Respondable instance() {
+            if (instance == null) {
+                instance = create();
+            }
+            return instance;
+        }
+    }
+
+    private static final class Holder {
+        static final PersonalityRegistry SHARED = discover();
+    }
+
+    private final LinkedHashMap<String, Personality> personalities = new LinkedHashMap<>();
+
+    /**
+     * The registry discovered when first asked for; used where fresh bots are created by type.
+     */
+    public static PersonalityRegistry shared() {
+        return Holder.SHARED;
+    }
+
+    /**
+     * Build a registry of ChatBot plus every Respondable listed for ServiceLoader, in classpath order.
+     */
+    public static PersonalityRegistry discover() {
+        PersonalityRegistry registry = new PersonalityRegistry();
+        registry.register("chatbot", () -> {
+            Bot bot = new Bot("ChatBot");
+            bot.initializeDefaultKnowledge();
+            return bot;
+        });
+        try {
+            for (ServiceLoader.Provider<Respondable> provider : ServiceLoader.load(Respondable.class)
+                                                                             .stream().toList()) {
+                registry.register(provider.type().getSimpleName().toLowerCase(), provider::get);
+            }
+        } catch (ServiceConfigurationError e) {
+            System.err.println("Warning: Could not load personalities: " + e.getMessage());
+        }
+        // Plain javac builds do not copy the services file, so make sure the built-in ones are there
+        registry.register("jokebot", JokeBot::new);
+        registry.register("gamebot", GameBot::new);
+        registry.register("advicebot", AdviceBot::new);
+        return registry;
+    }
+
+    /**
+     * Add a personality, unless one with the same name is already registered.
+     * @return Whether it was added
+     */
+    public synchronized boolean register(String name, Supplier<? extends Respondable> factory) {
+        return personalities.putIfAbsent(name, new Personality(name, factory)) == null;
+    }
+
+    /**
+     * Names in registration order.
+     */
+    public synchronized List<String> names() {
+        return new ArrayList<>(personalities.keySet());
+    }
+
+    public synchronized boolean contains(String name) {
+        return personalities.containsKey(name);
+    }
+
+    /**
+     * Get the shared instance of a personality, creating it on first use.
+     * @return The personality, or null if there is none by that name
+     */
+    public Respondable get(String name) {
+        Personality personality = lookup(name);
+        return personality != null ? personality.instance() : null;
+    }
+
+    /**
+     * Create a new, unshared instance of a personality, for callers that need one per
+     * session or per thread.
+     * @throws IllegalArgumentException if there is no personality by that name
+     */
+    public Respondable create(String name) {
+        Personality personality = lookup(name);
+        if (personality == null) {
+            throw new IllegalArgumentException("Unknown bot type: " + name);
+        }
+        return personality.create();
+    }
+
+    /**
+     * Create every shared instance now, so the first switch to each one is instant.
+     */
+    public void warmUp() {
+        for (String name : names()) {
+            get(name);
+        }
+    }
+
+    private synchronized Personality lookup(String name) {
+        return personalities.get(name);
+    }
+}
@@ -0,0 +1,383 @@
+package com.chatbot;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Batch mode that replays a file of utterances, one per line, through a bot and writes one
+ * response line per utterance (newlines inside a response written as "\n", as ChatServer does).
+ * The file is read in chunks that are spread over worker threads, each with its own bot over
+ * the shared knowledge base; responses are written in input order as soon as the chunks ahead
+ * of them are done, and optionally compared line by line with a golden file. Replaying only
+ * asks questions, so the knowledge base is never changed.
+ * Personalities whose replies depend on earlier turns (jokes told, games in progress) are
+ * answered by a single bot in input order, so their output does not depend on how the input
+ * is split into chunks; with a seed, each bot's random choices are derived from it, and
+ * comparing such a personality with a golden file requires one.
+ */
+public class ReplayRunner {
+    private static final int MAX_REPORTED_DIFFERENCES = 10;
+    private static final Chunk END = new Chunk(-1, new String[0]);
+
+    private final String botType;
+    private final int threads;
+    private final int chunkSize;
+    private final Long seed; // Null when bots choose at random
+
+    /**
+     * One slice of the input, answered by a single worker.
+     */
+    private static final class Chunk {
+        final long index;
+        final String[] inputs;
+        final String[] responses;
+
+        Chunk(long index, String[] inputs) {
+            this.index = index;
+            this.inputs = inputs;
+            this.responses = new String[inputs.length];
+        }
+    }
+
+    /**
+     * What a replay did: how many turns, how long, which paths answered and how many
+     * responses differed from the golden file.
+     */
+    public static final class Report {
+        public final long turns;
+        public final long elapsedNanos;
+        public final long[] pathCounts = new long[MatchPath.values().length];
+        public long differences; // Including lines missing from either side
+        public final List<String> firstDifferences = new ArrayList<>();
+
+        Report(long turns, long elapsedNanos) {
+            this.turns = turns;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public double turnsPerSecond() {
+            return elapsedNanos == 0 ? 0 : turns * 1e9 / elapsedNanos;
+        }
+    }
+
+    /**
+     * Create a runner.
+     * @param botType chatbot, jokebot, gamebot or advicebot
+     * @param threads Number of workers, each with its own bot
+     * @param chunkSize Utterances handed to a worker at a time
+     */
+    public ReplayRunner(String botType, int threads, int chunkSize) {
+        this(botType, threads, chunkSize, null);
+    }
+
+    /**
+     * Create a runner whose bots make repeatable random choices.
+     * @param seed Seed each bot's choices are derived from, or null to choose at random
+     */
+    public ReplayRunner(String botType, int threads, int chunkSize, Long seed) {
+        Bot probe = Bot.create(botType); // Fail fast on an unknown type
+        this.botType = botType;
+        this.threads = probe.remembersTurns() ? 1 : Math.max(1, threads);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.seed = seed;
+    }
+
+    /**
+     * Replay a file: java com.chatbot.ReplayRunner input.txt [--bot type] [--out responses.txt] [--golden expected.txt] [--seed n]
+     * The worker count comes from chatbot.replay.threads (default: one per core), and the seed
+     * can also be set with chatbot.replay.seed. Exits with status 1 if any response differs
+     * from the golden file.
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Usage: java com.chatbot.ReplayRunner input.txt [--bot chatbot|jokebot|gamebot|advicebot] " +
+                               "[--out responses.txt] [--golden expected.txt] [--seed n]");
+            return;
+        }
+        String botType = "chatbot";
+        File output = null;
+        File golden = null;
+        Long seed = Long.getLong("chatbot.replay.seed");
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--bot":
+                    botType = args[i + 1].toLowerCase();
+                    break;
+                case "--out":
+                    output = new File(args[i + 1]);
+                    break;
+                case "--golden":
+                    golden = new File(args[i + 1]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Warning: Ignoring unknown option " + args[i]);
+            }
+        }
+
+        try {
+            ReplayRunner runner = new ReplayRunner(botType,
+                    Integer.getInteger("chatbot.replay.threads", Runtime.getRuntime().availableProcessors()),
+                    Integer.getInteger("chatbot.replay.chunkSize", 256), seed);
+            Report report = runner.replay(new File(args[0]), output, golden);
+            printReport(report, golden != null);
+            if (report.differences > 0) {
+                System.exit(1);
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("Error replaying " + args[0] + ": " + e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Replay every line of the input.
+     * @param output Where to write the responses, or null to skip writing them
+     * @param golden Expected responses to compare with, or null to skip the comparison
+     * @throws IllegalArgumentException if comparing a personality that remembers turns without a seed
+     */
+    public Report replay(File input, File output, File golden) throws IOException {
+        if (golden != null && seed == null && Bot.create(botType).remembersTurns()) {
+            throw new IllegalArgumentException(botType + " replies at random; pass --seed to compare with a golden file");
+        }
+        BlockingQueue<Chunk> work = new ArrayBlockingQueue<>(threads * 2);
+        BlockingQueue<Chunk> done = new LinkedBlockingQueue<>();
+        Semaphore inFlight = new Semaphore(threads * 4); // Bounds memory when one chunk runs slow
+        long[][] workerCounts = new long[threads][MatchPath.values().length];
+
+        long start = System.nanoTime();
+        Thread[] workers = new Thread[threads];
+        for (int w = 0; w < threads; w++) {
+            long[] counts = workerCounts[w];
+            Bot bot = Bot.create(botType);
+            if (seed != null) {
+                bot.seed(seed + w * 0x9E3779B97F4A7C15L); // A different stream for each worker
+            }
+            workers[w] = new Thread(() -> answer(bot, work, done, counts), "replay-" + (w + 1));
+            workers[w].start();
+        }
+        Writer writer = new Writer(done, inFlight, output, golden);
+        Thread writerThread = new Thread(writer, "replay-writer");
+        writerThread.start();
+
+        long turns = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(input), StandardCharsets.UTF_8))) {
+            long index = 0;
+            ArrayList<String> lines = new ArrayList<>(chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+                turns++;
+                if (lines.size() == chunkSize) {
+                    submit(work, inFlight, new Chunk(index++, lines.toArray(new String[0])));
+                    lines.clear();
+                }
+            }
+            if (!lines.isEmpty()) {
+                submit(work, inFlight, new Chunk(index, lines.toArray(new String[0])));
+            }
+        } finally {
+            try {
+                for (int w = 0; w < threads; w++) {
+                    work.put(END);
+                }
+                for (Thread worker : workers) {
+                    worker.join();
+                }
+                done.put(END);
+                writerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while replaying", e);
+            }
+        }
+        if (writer.failure != null) {
+            throw writer.failure;
+        }
+
+        Report report = new Report(turns, System.nanoTime() - start);
+        for (long[] counts : workerCounts) {
+            for (int p = 0; p < counts.length; p++) {
+                report.pathCounts[p] += counts[p];
+            }
+        }
+        report.differences = writer.differences;
+        report.firstDifferences.addAll(writer.firstDifferences);
+        return report;
+    }
+
+    private static void submit(BlockingQueue<Chunk> work, Semaphore inFlight, Chunk chunk) throws IOException {
+        try {
+            inFlight.acquire();
+            work.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while replaying", e);
+        }
+    }
+
+    /**
+     * Worker loop: answer chunks with this worker's own bot until the end marker.
+     */
+    private static void answer(Bot bot, BlockingQueue<Chunk> work, BlockingQueue<Chunk> done, long[] pathCounts) {
+        try {
+            Chunk chunk;
+            while ((chunk = work.take()) != END) {
+                for (int i = 0; i < chunk.inputs.length; i++) {
+                    try {
+                        chunk.responses[i] = bot.respond(chunk.inputs[i]);
+                        pathCounts[bot.lastMatchPath().ordinal()]++;
+                    } catch (RuntimeException e) {
+                        chunk.responses[i] = "Error: " + e.getMessage();
+                    }
+                }
+                done.put(chunk);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Puts finished chunks back in input order, writes them and compares them with the golden file.
+     */
+    private static final class Writer implements Runnable {
+        private final BlockingQueue<Chunk> done;
+        private final Semaphore inFlight;
+        private final File output;
+        private final File golden;
+        long differences;
+        final List<String> firstDifferences = new ArrayList<>();
+        IOException failure;
+
+        Writer(BlockingQueue<Chunk> done, Semaphore inFlight, File output, File golden) {
+            this.done = done;
+            this.inFlight = inFlight;
+            this.output = output;
+            this.golden = golden;
+        }
+
+        @Override
+        public void run() {
+            HashMap<Long, Chunk> waiting = new HashMap<>();
+            long next = 0;
+            long lineNumber = 0;
+            BufferedWriter out = null;
+            BufferedReader expected = null;
+            try {
+                if (output != null) {
+                    out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8));
+                }
+                if (golden != null) {
+                    expected = new BufferedReader(new InputStreamReader(new FileInputStream(golden), StandardCharsets.UTF_8));
+                }
+                Chunk chunk;
+                while ((chunk = done.take()) != END) {
+                    waiting.put(chunk.index, chunk);
+                    while ((chunk = waiting.remove(next)) != null) {
+                        next++;
+                        for (int i = 0; i < chunk.responses.length; i++) {
+                            lineNumber++;
+                            String response = chunk.responses[i].replace("\n", "\\n");
+                            if (out != null) {
+                                out.write(response);
+                                out.newLine();
+                            }
+                            if (expected != null) {
+                                compare(lineNumber, chunk.inputs[i], expected.readLine(), response);
+                            }
+                        }
+                        inFlight.release();
+                    }
+                }
+                if (expected != null) {
+                    while (expected.readLine() != null) {
+                        compare(++lineNumber, null, "(extra golden line)", null);
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+                inFlight.release(waiting.size());
+                drain(done, inFlight);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                try {
+                    if (out != null) {
+                        out.close();
+                    }
+                    if (expected != null) {
+                        expected.close();
+                    }
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+        }
+
+        private void compare(long lineNumber, String input, String expected, String actual) {
+            if (actual != null && actual.equals(expected)) {
+                return;
+            }
+            differences++;
+            if (firstDifferences.size() < MAX_REPORTED_DIFFERENCES) {
+                firstDifferences.add("Line " + lineNumber + (input != null ? " \"" + input + "\"" : "") +
+                                     "\n  expected: " + (expected != null ? expected : "(missing)") +
+                                     "\n  actual:   " + (actual != null ? actual : "(missing)"));
+            }
+        }
+
+        /**
+         * Keep the workers and reader moving after a write failure so replay() can report it.
+         */
+        private static void drain(BlockingQueue<Chunk> done, Semaphore inFlight) {
+            try {
+                while (done.take() != END) {
+                    inFlight.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void printReport(Report report, boolean compared) {
+        System.out.printf("Replayed %d turns in %.2f s (%.0f turns/sec)%n",
+                          report.turns, report.elapsedNanos / 1e9, report.turnsPerSecond());
+        System.out.println("Match paths:");
+        for (MatchPath path : MatchPath.values()) {
+            long count = report.pathCounts[path.ordinal()];
+            System.out.printf("  %-12s %8d (%.1f%%)%n", path.name().toLowerCase(), count,
+                              report.turns == 0 ? 0.0 : count * 100.0 / report.turns);
+        }
+        if (compared) {
+            System.out.println(report.differences == 0 ? "All responses match the golden file."
+                    : report.differences + " response(s) differ from the golden file:");
+            for (String difference : report.firstDifferences) {
+                System.out.println(difference);
+            }
+            if (report.differences > report.firstDifferences.size()) {
+                System.out.println("  ... and " + (report.differences - report.firstDifferences.size()) + " more");
+            }
+        }
+    }
+}
@@ -11,11 +11,29 @@ public interface Respondable {
      * @return The bot's response
      */
     String respond(String userInput);
+
+    /**
+     * Generate a response for input that has already been normalized, so the
+     * dispatch chain does not lowercase, trim or tokenize it again.
+     * @param input The user's message, normalized once for the whole turn
+     * @return The bot's response
+     */
+    default String respond(NormalizedInput input) {
+        return respond(input.raw());
+    }
     
     /**
      * Get the bot's name/personality type.
      * @return The bot's name
      */
     String getName();
+
+    /**
+     * What the bot says when the user switches to it.
+     * @return The greeting
+     */
+    default String getGreeting() {
+        return "Switched to " + getName() + "!";
+    }
 }
 
@@ -0,0 +1,205 @@
+package com.chatbot;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache from normalized input to the knowledge base match that answers it,
+ * so repeated inputs skip the exact lookup and the partial, fuzzy and retrieval searches.
+ * Only the key is cached, never the answer text: answers are read from the current
+ * snapshot on every hit, so changed answers and per-bot answers need no invalidation.
+ * Only new keys can change which key matches an input. Each new key bumps a generation
+ * counter, and an entry from an older generation is checked against the keys added since
+ * the next time it is read: kept if none of them can change its match, dropped otherwise.
+ * Reads take no lock. When the cache is over capacity, the least recently used tenth of
+ * the entries is evicted in one pass.
+ */
+public class ResponseCache {
+    private static final int RECENT_KEYS = 256; // Entries this many new keys old are dropped
+
+    private final int capacity;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final Object invalidationLock = new Object();
+    // Key added in generation g is at (g - 1) % RECENT_KEYS; null for a clear
+    private final String[] recentKeys = new String[RECENT_KEYS];
+    private volatile long generation; // Bumped by every invalidation, written under invalidationLock
+
+    private static final class Entry {
+        final KnowledgeStore.Match match;
+        volatile long generation; // The newest generation the match is known to be valid in
+        volatile long lastUsed;
+
+        Entry(KnowledgeStore.Match match, long generation, long lastUsed) {
+            this.match = match;
+            this.generation = generation;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    /**
+     * Create a cache holding up to capacity inputs. A capacity of 0 disables caching.
+     */
+    public ResponseCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Get the generation to pass to put; read it before taking the snapshot the key is computed from.
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Get the cached match for an input, or null if it is not cached.
+     */
+    public KnowledgeStore.Match get(String input) {
+        if (capacity == 0) {
+            return null;
+        }
+        Entry entry = entries.get(input);
+        if (entry != null && !isCurrent(input, entry)) {
+            entries.remove(input, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        entry.lastUsed = System.nanoTime();
+        return entry.match;
+    }
+
+    /**
+     * Bring an entry up to the current generation if none of the keys added since it was
+     * computed can change its match.
+     */
+    private boolean isCurrent(String input, Entry entry) {
+        long current = generation;
+        long from = entry.generation;
+        if (from == current) {
+            return true;
+        }
+        if (current - from >= RECENT_KEYS) {
+            return false;
+        }
+        for (long g = from + 1; g <= current; g++) {
+            String newKey = recentKeys[(int) ((g - 1) % RECENT_KEYS)];
+            if (newKey == null || isAffected(input, entry.match.path, newKey)) {
+                return false;
+            }
+        }
+        if (generation - from >= RECENT_KEYS) {
+            return false; // The keys read may have been overwritten while checking
+        }
+        entry.generation = current;
+        return true;
+    }
+
+    /**
+     * Cache the match found for an input. The match is checked against any keys added
+     * since the given generation was read before it is returned.
+     */
+    public void put(String input, KnowledgeStore.Match match, long readGeneration) {
+        if (capacity == 0) {
+            return;
+        }
+        entries.put(input, new Entry(match, readGeneration, System.nanoTime()));
+        if (entries.size() > capacity) {
+            evict();
+        }
+    }
+
+    /**
+     * Drop the least recently used entries until the cache is a tenth below capacity,
+     * so the pass is not repeated on every put. Only one thread evicts at a time.
+     */
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long[] uses = entries.values().stream().mapToLong(entry -> entry.lastUsed).toArray();
+            int excess = uses.length - (capacity - capacity / 10);
+            if (excess <= 0) {
+                return;
+            }
+            Arrays.sort(uses);
+            long cutoff = uses[excess - 1];
+            entries.values().removeIf(entry -> entry.lastUsed <= cutoff);
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * Record that a key now exists. Cached inputs whose match it can change are dropped when
+     * next read: the key itself and, when both are long enough to be partially matched,
+     * inputs containing it (a longer contained key may now win), inputs it contains (a
+     * shorter containing key may now win), inputs without a partial match that are within
+     * fuzzy distance of it, and every input answered by retrieval or by nothing, since a
+     * new key changes the BM25 statistics.
+     */
+    public void invalidate(String newKey) {
+        advance(newKey);
+    }
+
+    /**
+     * Drop every entry, for changes that add too many keys to check one by one.
+     */
+    public void clear() {
+        advance(null);
+        entries.clear();
+    }
+
+    private void advance(String newKey) {
+        synchronized (invalidationLock) {
+            long next = generation + 1;
+            recentKeys[(int) ((next - 1) % RECENT_KEYS)] = newKey;
+            generation = next; // Publishes the key to readers of generation
+        }
+    }
+
+    private static boolean isAffected(String input, MatchPath path, String newKey) {
+        if (input.equals(newKey)) {
+            return true;
+        }
+        if (input.length() < KeyIndex.MIN_KEY_LENGTH) {
+            return false; // Short inputs only match exactly
+        }
+        if (path == MatchPath.RETRIEVAL || path == MatchPath.DEFAULT) {
+            return true;
+        }
+        if (newKey.length() < KeyIndex.MIN_KEY_LENGTH) {
+            return false; // Short keys are only matched exactly, or by retrieval
+        }
+        if (input.contains(newKey) || newKey.contains(input)) {
+            return true;
+        }
+        int maxEdits = TrigramIndex.maxEdits(input.length());
+        return path == MatchPath.FUZZY && TrigramIndex.boundedDistance(input, newKey, maxEdits) <= maxEdits;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRatio() {
+        long total = getHits() + getMisses();
+        return total == 0 ? 0 : (double) getHits() / total;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,64 @@
+package com.chatbot;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide table that gives repeated bot responses a small int id, so chat histories
+ * store canned answers (knowledge base entries, jokes, advice) once instead of per message.
+ * A response is interned the second time it is seen; one-off replies are never added.
+ * The table stops growing once it holds MAX_RESPONSES entries.
+ */
+public final class ResponseInterner {
+    public static final int NOT_INTERNED = -1;
+    private static final int MAX_RESPONSES = 65536;
+    private static final int MAX_CANDIDATES = 4096;
+
+    private static final ConcurrentHashMap<String, Integer> IDS = new ConcurrentHashMap<>();
+    private static final ArrayList<String> RESPONSES = new ArrayList<>();
+    // Responses seen once, least recently seen first
+    private static final LinkedHashMap<String, Boolean> CANDIDATES = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_CANDIDATES;
+        }
+    };
+
+    private ResponseInterner() {
+    }
+
+    /**
+     * Get the id of a response, interning it if it has been seen before.
+     * @return The id, or NOT_INTERNED if the caller should store the text itself
+     */
+    public static int intern(String response) {
+        Integer id = IDS.get(response);
+        if (id != null) {
+            return id;
+        }
+        synchronized (RESPONSES) {
+            id = IDS.get(response);
+            if (id != null) {
+                return id;
+            }
+            if (RESPONSES.size() >= MAX_RESPONSES || CANDIDATES.put(response, Boolean.TRUE) == null) {
+                return NOT_INTERNED;
+            }
+            CANDIDATES.remove(response);
+            RESPONSES.add(response);
+            IDS.put(response, RESPONSES.size() - 1);
+            return RESPONSES.size() - 1;
+        }
+    }
+
+    /**
+     * Get the response with the given id.
+     */
+    public static String get(int id) {
+        synchronized (RESPONSES) {
+            return RESPONSES.get(id);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.chatbot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps each session's bot in memory only while the session is in use. A bot idle for longer
+ * than the hibernation threshold is written to a small binary file and dropped from the heap,
+ * and read back the next time its session asks for it. When more bots are resident than the
+ * cap, the least recently used idle ones are hibernated early. Memory therefore grows with
+ * the number of active sessions rather than connected ones.
+ * A session keeps one bot per personality it has used, so switching back to a personality
+ * resumes its conversation; all of them are hibernated together.
+ */
+public class SessionManager implements AutoCloseable {
+    private static final int MAGIC = 0x43425353; // "CBSS"
+    private static final int VERSION = 2;
+
+    private final File directory;
+    private final long idleNanos;
+    private final int maxResident;
+    private final ConcurrentHashMap<Long, Entry> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicInteger resident = new AtomicInteger();
+    private final AtomicLong hibernations = new AtomicLong();
+    private final AtomicLong rehydrations = new AtomicLong();
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * One session. The bot is null while hibernated; fields are guarded by the entry itself.
+     */
+    private static final class Entry {
+        final File file;
+        Bot bot;
+        final LinkedHashMap<String, Bot> others = new LinkedHashMap<>(); // Earlier personalities, by type
+        boolean inUse;
+        volatile long lastUsed = System.nanoTime();
+
+        Entry(File file, Bot bot) {
+            this.file = file;
+            this.bot = bot;
+        }
+    }
+
+    /**
+     * Create a manager with settings from chatbot.server.hibernateSeconds (default 60),
+     * chatbot.server.maxResidentSessions (default 1000) and chatbot.server.spillDir
+     * (default a new temporary directory).
+     */
+    public static SessionManager fromSystemProperties() throws IOException {
+        String spillDir = System.getProperty("chatbot.server.spillDir");
+        File directory = spillDir != null ? new File(spillDir)
+                : Files.createTempDirectory("chatbot-sessions").toFile();
+        return new SessionManager(directory, Long.getLong("chatbot.server.hibernateSeconds", 60L) * 1000,
+                Integer.getInteger("chatbot.server.maxResidentSessions", 1000));
+    }
+
+    public SessionManager(File directory, long idleMillis, int maxResident) throws IOException {
+        Files.createDirectories(directory.toPath());
+        this.directory = directory;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        this.maxResident = Math.max(1, maxResident);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(100, idleMillis / 2);
+        sweeper.scheduleWithFixedDelay(this::hibernateIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Register a new session with its first bot.
+     * @return The session id to pass to acquire, release and close
+     */
+    public long open(Bot bot) {
+        long id = nextId.incrementAndGet();
+        sessions.put(id, new Entry(new File(directory, id + ".session"), bot));
+        resident.incrementAndGet();
+        enforceCap();
+        return id;
+    }
+
+    /**
+     * Get a session's bot for one message, reading it back from disk if it was hibernated.
+     * The bot is not hibernated until release is called.
+     */
+    public Bot acquire(long id) throws IOException {
+        Entry entry = entry(id);
+        boolean rehydrated = false;
+        Bot bot;
+        synchronized (entry) {
+            if (entry.bot == null) {
+                read(entry);
+                Files.deleteIfExists(entry.file.toPath());
+                resident.incrementAndGet();
+                rehydrations.incrementAndGet();
+                rehydrated = true;
+            }
+            entry.inUse = true;
+            entry.lastUsed = System.nanoTime();
+            bot = entry.bot;
+        }
+        if (rehydrated) {
+            enforceCap();
+        }
+        return bot;
+    }
+
+    /**
+     * Get the bot a session used before for a personality, to switch back to it.
+     * Only valid between acquire and release.
+     * @return The session's bot of that type, or null if the session has not used it yet
+     */
+    public Bot personality(long id, String type) {
+        Entry entry = entry(id);
+        synchronized (entry) {
+            return entry.bot != null && type(entry.bot).equals(type) ? entry.bot : entry.others.get(type);
+        }
+    }
+
+    /**
+     * Finish a message. The session's bot may have been replaced, for example by switching
+     * personality; the previous one is kept for switching back.
+     */
+    public void release(long id, Bot bot) {
+        Entry entry = entry(id);
+        synchronized (entry) {
+            if (entry.bot != null && entry.bot != bot) {
+                entry.others.put(type(entry.bot), entry.bot);
+                entry.others.remove(type(bot));
+            }
+            entry.bot = bot;
+            entry.inUse = false;
+            entry.lastUsed = System.nanoTime();
+        }
+    }
+
+    /**
+     * End a session and delete anything it left on disk.
+     */
+    public void close(long id) {
+        Entry entry = sessions.remove(id);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            if (entry.bot != null) {
+                resident.decrementAndGet();
+                entry.bot = null;
+                entry.others.clear();
+            }
+            try {
+                Files.deleteIfExists(entry.file.toPath());
+            } catch (IOException e) {
+                System.err.println("Warning: Could not delete session file: " + e.getMessage());
+            }
+        }
+    }
+
+    private Entry entry(long id) {
+        Entry entry = sessions.get(id);
+        if (entry == null) {
+            throw new IllegalArgumentException("Unknown session " + id);
+        }
+        return entry;
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public int getResidentCount() {
+        return resident.get();
+    }
+
+    public long getHibernations() {
+        return hibernations.get();
+    }
+
+    public long getRehydrations() {
+        return rehydrations.get();
+    }
+
+    /**
+     * Hibernate every session idle for longer than the threshold. Runs on the sweeper thread.
+     */
+    void hibernateIdle() {
+        long now = System.nanoTime();
+        for (Entry entry : sessions.values()) {
+            if (now - entry.lastUsed >= idleNanos) {
+                hibernate(entry);
+            }
+        }
+    }
+
+    /**
+     * Hibernate the least recently used idle sessions while more than the cap are resident.
+     * Goes a tenth below the cap, so the scan is not repeated on every new session.
+     */
+    private void enforceCap() {
+        if (resident.get() <= maxResident) {
+            return;
+        }
+        ArrayList<Entry> candidates = new ArrayList<>();
+        for (Entry entry : sessions.values()) {
+            candidates.add(entry);
+        }
+        candidates.sort(Comparator.comparingLong(entry -> entry.lastUsed));
+        int target = maxResident - maxResident / 10;
+        for (Entry entry : candidates) {
+            if (resident.get() <= target) {
+                break;
+            }
+            hibernate(entry);
+        }
+    }
+
+    private void hibernate(Entry entry) {
+        synchronized (entry) {
+            if (entry.bot == null || entry.inUse) {
+                return;
+            }
+            try {
+                write(entry);
+            } catch (IOException e) {
+                System.err.println("Warning: Could not hibernate session: " + e.getMessage());
+                return; // Stays in memory
+            }
+            entry.bot = null;
+            entry.others.clear();
+            resident.decrementAndGet();
+            hibernations.incrementAndGet();
+        }
+    }
+
+    /**
+     * The personality type of a bot, as Bot.create takes it.
+     */
+    private static String type(Bot bot) {
+        return bot.getType();
+    }
+
+    /**
+     * Write the session's current bot followed by the others it has used.
+     */
+    private static void write(Entry entry) throws IOException {
+        File temp = new File(entry.file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(1 + entry.others.size());
+            writeBot(entry.bot, out);
+            for (Bot other : entry.others.values()) {
+                writeBot(other, out);
+            }
+        }
+        Files.move(temp.toPath(), entry.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeBot(Bot bot, DataOutputStream out) throws IOException {
+        out.writeUTF(type(bot));
+        bot.writeState(out);
+    }
+
+    private static void read(Entry entry) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entry.file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a session file: " + entry.file);
+            }
+            int count = in.readInt();
+            Bot current = readBot(in);
+            LinkedHashMap<String, Bot> others = new LinkedHashMap<>();
+            for (int i = 1; i < count; i++) {
+                Bot other = readBot(in);
+                others.put(type(other), other);
+            }
+            entry.bot = current;
+            entry.others.putAll(others);
+        }
+    }
+
+    private static Bot readBot(DataInputStream in) throws IOException {
+        Bot bot = Bot.create(in.readUTF());
+        bot.readState(in);
+        return bot;
+    }
+
+    /**
+     * Stop hibernating sessions. Hibernated sessions stay on disk until closed.
+     */
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+}
@@ -0,0 +1,267 @@
+package com.chatbot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What people are talking about right now, across every bot and session. Counts fade
+ * exponentially, so a mention an hour old (by default) weighs about a third of a new one,
+ * and only a fixed number of topics are counted at a time: when a new topic arrives and
+ * every slot is taken, it replaces the topic with the lowest count and inherits that count
+ * as its possible overestimate (the space-saving algorithm). Memory stays the same however
+ * many distinct topics come by, and any topic mentioned more than total/capacity times
+ * is guaranteed to be among those counted.
+ * Recording a mention only appends it to one of several small buffers, picked by thread,
+ * so replies never wait on the counts. Buffers are drained into the counts in the
+ * background, when one fills up, and before the counts are read. Counters are kept in a
+ * min-heap by count, so replacing the lowest takes O(log capacity).
+ */
+public class TopicTracker {
+    private static final double MAX_EXPONENT = 300; // Rescale before weights overflow a double
+    private static final int BUFFER_SIZE = 64; // Mentions per buffer before the recording thread drains it
+    private static final long DRAIN_MILLIS = 1000;
+
+    private static volatile TopicTracker instance;
+
+    private final int capacity;
+    private final double decayPerNano;
+    private final Buffer[] buffers; // A power of two of them
+    // Counts, guarded by this
+    private final HashMap<String, Counter> counters;
+    private final Counter[] heap; // Min-heap of the counters by count
+    private int size;
+    private long landmarkNanos; // Counts are stored in units of a mention at this time
+
+    /**
+     * A topic with its decayed count.
+     */
+    public static final class Trend {
+        public final String topic;
+        public final double count;
+        public final double error; // The count is at most this much too high
+
+        Trend(String topic, double count, double error) {
+            this.topic = topic;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    private static final class Counter {
+        String topic;
+        double count;
+        double error;
+        int position; // Index in the heap
+
+        Counter(String topic) {
+            this.topic = topic;
+        }
+    }
+
+    /**
+     * Mentions recorded but not yet counted; guarded by the buffer itself.
+     */
+    private static final class Buffer {
+        String[] topics = new String[BUFFER_SIZE];
+        long[] nanos = new long[BUFFER_SIZE];
+        int size;
+    }
+
+    /**
+     * Get the shared tracker, sized by chatbot.topics.capacity (default 256) with counts fading
+     * by a factor of e every chatbot.topics.decayMinutes (default 60).
+     */
+    public static TopicTracker get() {
+        TopicTracker tracker = instance; // Read on every reply, so no lock once created
+        return tracker != null ? tracker : create();
+    }
+
+    private static synchronized TopicTracker create() {
+        if (instance == null) {
+            TopicTracker tracker = new TopicTracker(Integer.getInteger("chatbot.topics.capacity", 256),
+                    TimeUnit.MINUTES.toNanos(Long.getLong("chatbot.topics.decayMinutes", 60L)));
+            ScheduledExecutorService drainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "topic-drainer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            drainer.scheduleWithFixedDelay(tracker::drain, DRAIN_MILLIS, DRAIN_MILLIS, TimeUnit.MILLISECONDS);
+            instance = tracker;
+        }
+        return instance;
+    }
+
+    public TopicTracker(int capacity, long decayNanos) {
+        this.capacity = Math.max(1, capacity);
+        this.decayPerNano = 1.0 / Math.max(1, decayNanos);
+        this.counters = new HashMap<>(this.capacity * 4 / 3 + 1);
+        this.heap = new Counter[this.capacity];
+        this.landmarkNanos = System.nanoTime();
+        int processors = Runtime.getRuntime().availableProcessors();
+        this.buffers = new Buffer[Integer.highestOneBit(Math.max(1, processors * 2 - 1)) * 2];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new Buffer();
+        }
+    }
+
+    /**
+     * Count one mention of a topic now.
+     */
+    public void record(String topic) {
+        record(topic, System.nanoTime());
+    }
+
+    void record(String topic, long nowNanos) {
+        Buffer buffer = buffers[(int) Thread.currentThread().getId() & (buffers.length - 1)];
+        String[] fullTopics;
+        long[] fullNanos;
+        synchronized (buffer) {
+            buffer.topics[buffer.size] = topic;
+            buffer.nanos[buffer.size++] = nowNanos;
+            if (buffer.size < BUFFER_SIZE) {
+                return;
+            }
+            fullTopics = buffer.topics;
+            fullNanos = buffer.nanos;
+            buffer.topics = new String[BUFFER_SIZE];
+            buffer.nanos = new long[BUFFER_SIZE];
+            buffer.size = 0;
+        }
+        synchronized (this) {
+            count(fullTopics, fullNanos, BUFFER_SIZE);
+        }
+    }
+
+    /**
+     * Count every buffered mention.
+     */
+    void drain() {
+        for (Buffer buffer : buffers) {
+            String[] topics;
+            long[] nanos;
+            int count;
+            synchronized (buffer) {
+                if (buffer.size == 0) {
+                    continue;
+                }
+                topics = buffer.topics;
+                nanos = buffer.nanos;
+                count = buffer.size;
+                buffer.topics = new String[BUFFER_SIZE];
+                buffer.nanos = new long[BUFFER_SIZE];
+                buffer.size = 0;
+            }
+            synchronized (this) {
+                count(topics, nanos, count);
+            }
+        }
+    }
+
+    private void count(String[] topics, long[] nanos, int count) {
+        for (int i = 0; i < count; i++) {
+            count(topics[i], nanos[i]);
+        }
+    }
+
+    private void count(String topic, long nowNanos) {
+        double exponent = (nowNanos - landmarkNanos) * decayPerNano;
+        if (exponent > MAX_EXPONENT) {
+            rescale(nowNanos);
+            exponent = 0;
+        }
+        double weight = Math.exp(exponent);
+
+        Counter counter = counters.get(topic);
+        if (counter == null) {
+            if (size < capacity) {
+                counter = new Counter(topic);
+                counter.position = size;
+                heap[size++] = counter;
+                siftUp(counter.position);
+            } else {
+                // Reuse the counter with the lowest count, which the new topic starts from
+                counter = heap[0];
+                counters.remove(counter.topic);
+                counter.topic = topic;
+                counter.error = counter.count;
+            }
+            counters.put(topic, counter);
+        }
+        counter.count += weight;
+        siftDown(counter.position); // Counts only grow, so it can only move away from the root
+    }
+
+    private void siftUp(int i) {
+        Counter counter = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heap[parent].count <= counter.count) {
+                break;
+            }
+            place(heap[parent], i);
+            i = parent;
+        }
+        place(counter, i);
+    }
+
+    private void siftDown(int i) {
+        Counter counter = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                child++;
+            }
+            if (counter.count <= heap[child].count) {
+                break;
+            }
+            place(heap[child], i);
+            i = child;
+        }
+        place(counter, i);
+    }
+
+    private void place(Counter counter, int i) {
+        heap[i] = counter;
+        counter.position = i;
+    }
+
+    /**
+     * Scaling every count by the same factor keeps the heap order.
+     */
+    private void rescale(long nowNanos) {
+        double factor = Math.exp(-(nowNanos - landmarkNanos) * decayPerNano);
+        for (int i = 0; i < size; i++) {
+            heap[i].count *= factor;
+            heap[i].error *= factor;
+        }
+        landmarkNanos = nowNanos;
+    }
+
+    /**
+     * The most mentioned topics, with counts decayed to now.
+     * @param limit How many topics at most
+     */
+    public List<Trend> top(int limit) {
+        return top(limit, System.nanoTime());
+    }
+
+    List<Trend> top(int limit, long nowNanos) {
+        drain();
+        synchronized (this) {
+            double factor = Math.exp(-(nowNanos - landmarkNanos) * decayPerNano);
+            ArrayList<Trend> trends = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                trends.add(new Trend(heap[i].topic, heap[i].count * factor, heap[i].error * factor));
+            }
+            trends.sort((a, b) -> Double.compare(b.count, a.count));
+            return trends.size() > limit ? new ArrayList<>(trends.subList(0, limit)) : trends;
+        }
+    }
+}
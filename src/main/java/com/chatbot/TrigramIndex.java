@@ -0,0 +1,250 @@
+package com.chatbot;
+
+import java.util.Arrays;
+
+/**
+ * Immutable trigram inverted index over sorted keys for typo-tolerant matching.
+ * Each key is padded and split into distinct trigrams; postings are primitive int arrays
+ * of key ids. One edit destroys at most three of the input's trigrams, so a key within
+ * d edits shares all but 3d of them and must appear in the postings of at least one of
+ * the input's 3d + 1 rarest trigrams. Only those candidates are verified with a
+ * Levenshtein distance bounded to d.
+ */
+public final class TrigramIndex {
+    /**
+     * Most edits a fuzzy match may need, set with -Dchatbot.fuzzy.maxDistance (0 disables fuzzy matching).
+     */
+    public static final int MAX_DISTANCE = Integer.getInteger("chatbot.fuzzy.maxDistance", 2);
+    private static final int CHARS_PER_EDIT = 4; // An input needs this many characters per allowed edit
+    private static final char PAD = '\0';
+
+    private final String[] keys;
+    private final long[] termCodes; // Open-addressing table from trigram code to term id
+    private final int[] termIds;
+    private final int[] offsets; // Postings of term t are postings[offsets[t]] .. postings[offsets[t + 1] - 1]
+    private final int[] postings;
+
+    /**
+     * Build the index over keys, which must not change afterwards. Key ids are array indices.
+     */
+    public TrigramIndex(String[] keys) {
+        this.keys = keys;
+        long[][] grams = new long[keys.length][];
+        int total = 0;
+        for (int i = 0; i < keys.length; i++) {
+            grams[i] = trigrams(keys[i]);
+            total += grams[i].length;
+        }
+
+        int capacity = Integer.highestOneBit(Math.max(16, total)) << 1; // Load factor at most 1/2
+        long[] codes = new long[capacity];
+        int[] ids = new int[capacity];
+        Arrays.fill(ids, -1);
+        int[] counts = new int[16];
+        int terms = 0;
+        for (long[] keyGrams : grams) {
+            for (long gram : keyGrams) {
+                int slot = slot(codes, ids, gram);
+                if (ids[slot] < 0) {
+                    codes[slot] = gram;
+                    ids[slot] = terms++;
+                    if (terms > counts.length) {
+                        counts = Arrays.copyOf(counts, counts.length * 2);
+                    }
+                }
+                counts[ids[slot]]++;
+            }
+        }
+
+        int[] starts = new int[terms + 1];
+        for (int t = 0; t < terms; t++) {
+            starts[t + 1] = starts[t] + counts[t];
+        }
+        int[] postings = new int[total];
+        int[] next = Arrays.copyOf(starts, terms);
+        for (int i = 0; i < keys.length; i++) { // Ascending ids, so every postings list is sorted
+            for (long gram : grams[i]) {
+                postings[next[ids[slot(codes, ids, gram)]]++] = i;
+            }
+        }
+        this.termCodes = codes;
+        this.termIds = ids;
+        this.offsets = starts;
+        this.postings = postings;
+    }
+
+    /**
+     * Find the key closest to the input within maxEdits edits.
+     * Ties go to the lowest id, which is the alphabetically first key for sorted keys.
+     * @return The key id, or -1 if no key is close enough
+     */
+    public int closest(String input, int maxEdits) {
+        long[] grams = trigrams(input);
+        int[] lists = new int[grams.length];
+        int found = 0;
+        for (long gram : grams) {
+            int id = termIds[slot(termCodes, termIds, gram)];
+            if (id >= 0) {
+                lists[found++] = id;
+            }
+        }
+        int filterLists = 3 * maxEdits + 1;
+        if (grams.length - found >= filterLists) {
+            return -1; // Too many trigrams appear in no key at all
+        }
+        if (grams.length < filterLists) {
+            return closestByScan(input, maxEdits); // Too short for the trigram filter
+        }
+
+        // Candidates are the keys in the rarest lists; missing trigrams count as empty lists
+        int[] rarest = rarestLists(Arrays.copyOf(lists, found), filterLists - (grams.length - found));
+        int candidateCount = 0;
+        for (int term : rarest) {
+            candidateCount += offsets[term + 1] - offsets[term];
+        }
+        int[] candidates = new int[candidateCount];
+        int n = 0;
+        for (int term : rarest) {
+            System.arraycopy(postings, offsets[term], candidates, n, offsets[term + 1] - offsets[term]);
+            n += offsets[term + 1] - offsets[term];
+        }
+        Arrays.sort(candidates);
+
+        int best = -1;
+        int bestDistance = maxEdits + 1;
+        int[][] scratch = new int[2][input.length() + maxEdits + 1]; // Candidates are at most maxEdits longer
+        for (int i = 0; i < candidates.length; i++) {
+            if (i > 0 && candidates[i] == candidates[i - 1]) {
+                continue;
+            }
+            int distance = boundedDistance(input, keys[candidates[i]], bestDistance - 1, scratch);
+            if (distance < bestDistance) {
+                best = candidates[i];
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    private int closestByScan(String input, int maxEdits) {
+        int best = -1;
+        int bestDistance = maxEdits + 1;
+        for (int i = 0; i < keys.length; i++) {
+            int distance = boundedDistance(input, keys[i], bestDistance - 1);
+            if (distance < bestDistance) {
+                best = i;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Pick the count terms with the shortest postings lists.
+     */
+    private int[] rarestLists(int[] terms, int count) {
+        if (count <= 0) {
+            return new int[0];
+        }
+        long[] bySize = new long[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            bySize[i] = (long) (offsets[terms[i] + 1] - offsets[terms[i]]) << 32 | terms[i];
+        }
+        Arrays.sort(bySize);
+        int[] rarest = new int[Math.min(count, terms.length)];
+        for (int i = 0; i < rarest.length; i++) {
+            rarest[i] = (int) bySize[i];
+        }
+        return rarest;
+    }
+
+    private static int slot(long[] codes, int[] ids, long gram) {
+        int mask = codes.length - 1;
+        int slot = (int) (gram ^ gram >>> 29) * 0x9E3779B9 & mask;
+        while (ids[slot] >= 0 && codes[slot] != gram) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Distinct trigrams of the text padded with two PAD characters on each side,
+     * each packed into a long as three 16-bit chars.
+     */
+    private static long[] trigrams(String text) {
+        int n = text.length() + 2;
+        long[] grams = new long[n];
+        for (int i = 0; i < n; i++) {
+            grams[i] = (long) charAt(text, i - 2) << 32 | (long) charAt(text, i - 1) << 16 | charAt(text, i);
+        }
+        Arrays.sort(grams);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) {
+                grams[distinct++] = grams[i];
+            }
+        }
+        return Arrays.copyOf(grams, distinct);
+    }
+
+    private static char charAt(String text, int i) {
+        return i < 0 || i >= text.length() ? PAD : text.charAt(i);
+    }
+
+    /**
+     * Edits allowed for an input of the given length: one per CHARS_PER_EDIT characters, up to MAX_DISTANCE.
+     */
+    public static int maxEdits(int inputLength) {
+        return Math.min(MAX_DISTANCE, inputLength / CHARS_PER_EDIT);
+    }
+
+    /**
+     * Levenshtein distance between a and b, computed only within max edits of the diagonal.
+     * @return The distance, or max + 1 if it is larger than max
+     */
+    public static int boundedDistance(String a, String b, int max) {
+        return boundedDistance(a, b, max, null);
+    }
+
+    /**
+     * Same as boundedDistance(a, b, max), reusing rows when scratch holds two arrays long enough.
+     */
+    private static int boundedDistance(String a, String b, int max, int[][] scratch) {
+        int n = a.length();
+        int m = b.length();
+        int over = max + 1;
+        if (max < 0 || Math.abs(n - m) > max) {
+            return over;
+        }
+        boolean reuse = scratch != null && scratch[0].length > m;
+        int[] previous = reuse ? scratch[0] : new int[m + 1];
+        int[] current = reuse ? scratch[1] : new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j <= max ? j : over;
+        }
+        for (int i = 1; i <= n; i++) {
+            int from = Math.max(1, i - max);
+            int to = Math.min(m, i + max);
+            current[0] = i <= max ? i : over;
+            current[from - 1] = from == 1 ? current[0] : over;
+            int rowMin = current[from - 1];
+            char c = a.charAt(i - 1);
+            for (int j = from; j <= to; j++) {
+                int distance = previous[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+                distance = Math.min(distance, Math.min(previous[j], current[j - 1]) + 1);
+                current[j] = Math.min(distance, over);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (to < m) {
+                current[to + 1] = over;
+            }
+            if (rowMin > max) {
+                return over;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[m];
+    }
+}
@@ -0,0 +1,257 @@
+package com.chatbot;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Word list for GameBot, loaded once and shared by every game. Words are lowercase a-z and
+ * packed back to back in one byte array, shortest first, so all words of one length are a
+ * contiguous range of indexes; each word also has its letter set as a 26-bit mask
+ * (bit 0 = 'a'). Picking a word of a given difficulty is one random index into a range,
+ * and matching words against a game's progress only compares bytes and masks.
+ */
+public final class WordDictionary {
+    private static final String[] BUILT_IN = {"java", "chatbot", "programming", "computer", "algorithm",
+                                              "function", "variable", "class", "object", "interface"};
+    private static final int MIN_LENGTH = 2;
+
+    private static WordDictionary instance;
+
+    private final byte[] letters;     // Every word back to back
+    private final int[] offsets;      // Word i is letters[offsets[i] .. offsets[i + 1])
+    private final int[] masks;        // Letter set of each word
+    private final int[] lengthStarts; // Words of length n are indexes lengthStarts[n] .. lengthStarts[n + 1]
+
+    /**
+     * How hard a word is to guess, by its length.
+     */
+    public enum Difficulty {
+        EASY(MIN_LENGTH, 6), MEDIUM(7, 9), HARD(10, Integer.MAX_VALUE);
+
+        final int minLength;
+        final int maxLength;
+        final int tokenId; // The word that asks for it, as in "play hard"
+
+        Difficulty(int minLength, int maxLength) {
+            this.minLength = minLength;
+            this.maxLength = maxLength;
+            this.tokenId = NormalizedInput.tokenId(name().toLowerCase());
+        }
+
+        /**
+         * The difficulty named in the input, or null if none is.
+         */
+        public static Difficulty of(NormalizedInput input) {
+            for (Difficulty difficulty : values()) {
+                if (input.hasToken(difficulty.tokenId)) {
+                    return difficulty;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * What a hint can say about a game in progress.
+     */
+    public static final class PatternHint {
+        public final int matches;  // Words of the same length that fit the progress so far, including the answer
+        public final char letter;  // An unguessed letter of the answer that the fewest of those share, or 0
+
+        PatternHint(int matches, char letter) {
+            this.matches = matches;
+            this.letter = letter;
+        }
+    }
+
+    private WordDictionary(List<String> words) {
+        words.sort(Comparator.comparingInt(String::length).thenComparing(Comparator.naturalOrder()));
+        int maxLength = words.isEmpty() ? 0 : words.get(words.size() - 1).length();
+        int totalLetters = 0;
+        for (String word : words) {
+            totalLetters += word.length();
+        }
+        letters = new byte[totalLetters];
+        offsets = new int[words.size() + 1];
+        masks = new int[words.size()];
+        lengthStarts = new int[maxLength + 2];
+
+        int offset = 0;
+        int length = 0;
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            while (length < word.length()) {
+                lengthStarts[++length] = i;
+            }
+            offsets[i] = offset;
+            for (int j = 0; j < word.length(); j++) {
+                letters[offset++] = (byte) word.charAt(j);
+            }
+            masks[i] = maskOf(word);
+        }
+        offsets[words.size()] = offset;
+        lengthStarts[maxLength + 1] = words.size();
+    }
+
+    /**
+     * Get the shared dictionary: the file named by chatbot.game.dictionary (one word per line)
+     * if set and readable, otherwise the built-in words. Loaded on first use.
+     */
+    public static synchronized WordDictionary get() {
+        if (instance == null) {
+            String path = System.getProperty("chatbot.game.dictionary");
+            if (path != null) {
+                try {
+                    instance = load(new File(path));
+                } catch (IOException e) {
+                    System.err.println("Warning: Could not load word dictionary: " + e.getMessage());
+                }
+            }
+            if (instance == null || instance.size() == 0) {
+                instance = of(Arrays.asList(BUILT_IN));
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Load a word list, one word per line. Words are lowercased; lines that are not a single
+     * word of at least two letters a-z, and repeated words, are skipped.
+     */
+    public static WordDictionary load(File file) throws IOException {
+        ArrayList<String> words = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                words.add(line);
+            }
+        }
+        return of(words);
+    }
+
+    /**
+     * Build a dictionary from words, skipping any that load would skip.
+     */
+    public static WordDictionary of(Collection<String> words) {
+        ArrayList<String> valid = new ArrayList<>(words.size());
+        for (String word : words) {
+            String lower = word.trim().toLowerCase();
+            if (lower.length() >= MIN_LENGTH && lower.chars().allMatch(c -> c >= 'a' && c <= 'z')) {
+                valid.add(lower);
+            }
+        }
+        return new WordDictionary(new ArrayList<>(new LinkedHashSet<>(valid)));
+    }
+
+    /**
+     * Letter set of a word; characters outside a-z are ignored.
+     */
+    public static int maskOf(CharSequence word) {
+        int mask = 0;
+        for (int i = 0; i < word.length(); i++) {
+            mask |= bit(word.charAt(i));
+        }
+        return mask;
+    }
+
+    /**
+     * The mask bit of a letter, or 0 if it is not a-z.
+     */
+    public static int bit(char letter) {
+        return letter >= 'a' && letter <= 'z' ? 1 << (letter - 'a') : 0;
+    }
+
+    public int size() {
+        return masks.length;
+    }
+
+    public String word(int index) {
+        return new String(letters, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Pick a random word of the given difficulty, or of any length if difficulty is null or
+     * no word has that difficulty.
+     * @throws IllegalStateException if the dictionary is empty
+     */
+    public int randomIndex(Difficulty difficulty, Random random) {
+        if (size() == 0) {
+            throw new IllegalStateException("The word dictionary is empty");
+        }
+        if (difficulty != null) {
+            int from = lengthStarts[Math.min(difficulty.minLength, lengthStarts.length - 1)];
+            int to = lengthStarts[(int) Math.min(difficulty.maxLength + 1L, lengthStarts.length - 1)];
+            if (from < to) {
+                return from + random.nextInt(to - from);
+            }
+        }
+        return random.nextInt(size());
+    }
+
+    /**
+     * Count the words that fit a game's progress: same length, the same letters at the
+     * revealed positions, no guessed letter at a hidden position and none of the wrong
+     * guesses. Also picks the answer's unguessed letter found in the fewest of those words,
+     * which narrows them down the most.
+     * @param answer The word being guessed
+     * @param guessedMask Letters guessed so far
+     */
+    public PatternHint hint(String answer, int guessedMask) {
+        int length = answer.length();
+        int answerMask = maskOf(answer);
+        int wrongMask = guessedMask & ~answerMask;
+        int[] letterCounts = new int[26];
+        int matches = 0;
+        if (length < lengthStarts.length - 1) {
+            for (int i = lengthStarts[length], end = lengthStarts[length + 1]; i < end; i++) {
+                if ((masks[i] & wrongMask) == 0 && fits(i, answer, guessedMask)) {
+                    matches++;
+                    int candidate = masks[i] & answerMask & ~guessedMask;
+                    while (candidate != 0) {
+                        letterCounts[Integer.numberOfTrailingZeros(candidate)]++;
+                        candidate &= candidate - 1;
+                    }
+                }
+            }
+        }
+
+        char letter = 0;
+        int fewest = Integer.MAX_VALUE;
+        for (int hidden = answerMask & ~guessedMask; hidden != 0; hidden &= hidden - 1) {
+            int index = Integer.numberOfTrailingZeros(hidden);
+            if (letterCounts[index] < fewest) {
+                fewest = letterCounts[index];
+                letter = (char) ('a' + index);
+            }
+        }
+        return new PatternHint(Math.max(matches, 1), letter); // The answer may not be in this dictionary
+    }
+
+    private boolean fits(int index, String answer, int guessedMask) {
+        int offset = offsets[index];
+        for (int j = 0; j < answer.length(); j++) {
+            char expected = answer.charAt(j);
+            char actual = (char) letters[offset + j];
+            if ((guessedMask & bit(expected)) != 0) {
+                if (actual != expected) {
+                    return false;
+                }
+            } else if ((guessedMask & bit(actual)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
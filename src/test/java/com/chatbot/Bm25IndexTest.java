@@ -0,0 +1,74 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * BM25 ranking, incremental levels and the saved index format.
+ */
+class Bm25IndexTest {
+    @TempDir
+    File dir;
+
+    private static final List<String> KEYS = List.of(
+            "how do i reset my password",
+            "how do i change my email address",
+            "what are your opening hours",
+            "where is the nearest store");
+
+    @Test
+    void ranksTheKeySharingTheRarestTerms() {
+        Bm25Index index = Bm25Index.build(KEYS);
+        List<Bm25Index.Hit> hits = index.search("i forgot my password, can you reset it", 3);
+        assertFalse(hits.isEmpty());
+        assertEquals("how do i reset my password", hits.get(0).key);
+        assertTrue(hits.get(0).confidence <= 1.0);
+        assertTrue(index.search("bananas", 3).isEmpty());
+    }
+
+    @Test
+    void scoresDoNotDependOnHowKeysWereAdded() {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            keys.add("question about topic " + i + " and subject " + (i % 7));
+        }
+        Bm25Index built = Bm25Index.build(keys);
+        Bm25Index added = Bm25Index.EMPTY;
+        for (String key : keys) {
+            added = added.with(key);
+        }
+        assertEquals(built.size(), added.size());
+        List<Bm25Index.Hit> expected = built.search("topic 42 subject", 5);
+        List<Bm25Index.Hit> actual = added.search("topic 42 subject", 5);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).key, actual.get(i).key);
+            assertEquals(expected.get(i).score, actual.get(i).score, 1e-9);
+        }
+    }
+
+    @Test
+    void writeAndReadBack() throws IOException {
+        Bm25Index index = Bm25Index.build(KEYS).with("can i pay by card");
+        File file = new File(dir, "index.idx");
+        index.write(file);
+        Bm25Index read = Bm25Index.read(file);
+        assertEquals(index.size(), read.size());
+        assertTrue(read.contains("can i pay by card"));
+        assertTrue(read.indexesOnly(Set.copyOf(new ArrayList<>(List.of(
+                "how do i reset my password", "how do i change my email address", "what are your opening hours",
+                "where is the nearest store", "can i pay by card")))));
+        assertFalse(read.indexesOnly(Set.copyOf(KEYS)));
+        assertEquals("can i pay by card", read.search("pay by card", 1).get(0).key);
+    }
+}
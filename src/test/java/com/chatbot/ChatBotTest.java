@@ -0,0 +1,143 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The console driver: replies in the order they were asked, turn deadlines, and commands after a late reply.
+ */
+class ChatBotTest {
+    private static final long SLOW_MILLIS = 400;
+
+    @TempDir
+    File dir;
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private PrintStream console;
+
+    /**
+     * Answers "answer to" the input after a while when it starts with "slow", half that when it starts
+     * with "pause", and fails when it mentions "fail".
+     */
+    private final class Slow extends Bot {
+        Slow() {
+            super("Slow", new File(dir, "knowledge.txt").getPath());
+        }
+
+        @Override
+        public CompletableFuture<String> respondAsync(NormalizedInput input, Executor executor) {
+            return CompletableFuture.supplyAsync(() -> {
+                long delay = input.text().startsWith("slow") ? SLOW_MILLIS
+                        : input.text().startsWith("pause") ? SLOW_MILLIS / 2 : 0;
+                if (delay > 0) {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                if (input.text().contains("fail")) {
+                    throw new IllegalStateException("out of ideas");
+                }
+                return "answer to " + input.text();
+            }, executor);
+        }
+    }
+
+    @BeforeEach
+    void captureOutput() {
+        console = System.out;
+        System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+    }
+
+    @AfterEach
+    void restoreOutput() {
+        System.setOut(console);
+    }
+
+    @Test
+    void respondAsyncRunsRespondOnTheExecutor() {
+        Bot bot = new Bot("Plain", new File(dir, "knowledge.txt").getPath());
+        AtomicBoolean ran = new AtomicBoolean();
+        Executor executor = task -> {
+            ran.set(true);
+            task.run();
+        };
+        String answer = bot.respondAsync(NormalizedInput.of("hello"), executor).join();
+        assertTrue(ran.get());
+        assertEquals(bot.respond(NormalizedInput.of("hello")), answer);
+    }
+
+    @Test
+    void onTimeRepliesComeOutInOrder() {
+        String shown = chat(5000, "first", "second");
+        assertTrue(indexOf(shown, "Slow: answer to first") < indexOf(shown, "Slow: answer to second"), shown);
+        assertFalse(shown.contains("taking too long"), shown);
+    }
+
+    @Test
+    void lateRepliesFollowTheApologyAndTheNextTurnGetsItsOwnDeadline() {
+        // The second turn waits for the first, so it would miss a deadline counted from when it was typed
+        String shown = chat(SLOW_MILLIS * 3 / 4, "slow first", "pause second");
+
+        int apology = indexOf(shown, "Slow: Sorry, I'm taking too long");
+        int late = indexOf(shown, "Slow (late reply to \"slow first\"): answer to slow first");
+        assertTrue(apology < late, shown);
+        assertEquals(apology, shown.lastIndexOf("Slow: Sorry, I'm taking too long"), shown); // Only the first was late
+        assertTrue(late < indexOf(shown, "Slow: answer to pause second"), shown);
+    }
+
+    @Test
+    void failedTurnsAreReportedWhetherOrNotTheyWereLate() {
+        String shown = chat(SLOW_MILLIS / 4, "fail now", "slow fail", "after");
+
+        int onTime = indexOf(shown, "An error occurred: out of ideas");
+        int late = indexOf(shown, "Slow couldn't answer \"slow fail\": out of ideas");
+        assertTrue(onTime < late && late < indexOf(shown, "Slow: answer to after"), shown);
+    }
+
+    @Test
+    void commandsWaitForALateReply() {
+        String shown = chat(SLOW_MILLIS / 4, "slow question", "teach me: ping -> pong", "history");
+
+        int apology = indexOf(shown, "Slow: Sorry, I'm taking too long");
+        int late = indexOf(shown, "Slow (late reply to \"slow question\"): answer to slow question");
+        int taught = indexOf(shown, "Slow: Thanks! I've learned that.");
+        int history = indexOf(shown, "CHAT HISTORY");
+        assertTrue(apology < late && late < taught && taught < history, shown);
+        // The late reply is recorded before the taught pair, not after it or at the same time
+        int first = shown.indexOf("User: slow question", history);
+        int second = shown.indexOf("User: teach me: ping -> pong", history);
+        assertTrue(first > history && second > first, shown);
+    }
+
+    /**
+     * Run a conversation to the end of its input and return what was printed.
+     */
+    private String chat(long deadlineMillis, String... lines) {
+        byte[] input = (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8);
+        new ChatBot(new ByteArrayInputStream(input), new Slow(), deadlineMillis).run();
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private static int indexOf(String shown, String text) {
+        int index = shown.indexOf(text);
+        assertTrue(index >= 0, "Missing '" + text + "' in:\n" + shown);
+        return index;
+    }
+}
@@ -0,0 +1,136 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The columnar history ring, reading older messages back from the history log, and searching them.
+ */
+class ChatHistoryTest {
+    @TempDir
+    File dir;
+
+    private HistoryLog log;
+
+    @BeforeEach
+    void createLog() {
+        log = new HistoryLog(new File(dir, "history.log"), 1L << 20, 2);
+    }
+
+    @AfterEach
+    void flushLog() {
+        log.flush(); // Before the directory is deleted
+    }
+
+    @Test
+    void messagesReadBackAsAdded() {
+        ChatHistory history = new ChatHistory("Test", 10, log);
+        history.add("hello", "Hello! How can I help you today?");
+        history.add("tab\tand\nnewline ünïcödé", "a reply that is unlikely to be interned " + System.nanoTime());
+
+        assertEquals(2, history.size());
+        assertEquals("hello", history.get(0).getUserInput());
+        assertEquals("Hello! How can I help you today?", history.get(0).getBotResponse());
+        assertEquals("tab\tand\nnewline ünïcödé", history.get(1).getUserInput());
+        assertThrows(IndexOutOfBoundsException.class, () -> history.get(2));
+    }
+
+    @Test
+    void onlyTheNewestMessagesStayInMemory() {
+        ChatHistory history = new ChatHistory("Test", 4, log);
+        for (int i = 0; i < 10; i++) {
+            history.add("question " + i, "answer " + i + " with some length to push the arena around");
+        }
+        assertEquals(10, history.totalCount());
+        assertEquals(4, history.size());
+        assertEquals("question 6", history.get(0).getUserInput());
+        assertEquals("question 9", history.get(3).getUserInput());
+    }
+
+    @Test
+    void ringGrowsUpToItsCapacity() {
+        ChatHistory history = new ChatHistory("Test", 40, log);
+        for (int i = 0; i < 100; i++) {
+            history.add("question " + i, "answer " + i);
+            assertEquals(Math.min(i + 1, 40), history.size());
+            assertEquals("question " + Math.max(0, i - 39), history.get(0).getUserInput());
+            assertEquals("answer " + i, history.get(history.size() - 1).getBotResponse());
+        }
+    }
+
+    @Test
+    void olderMessagesAreReadFromTheLog() {
+        ChatHistory history = new ChatHistory("Test", 3, log);
+        for (int i = 0; i < 8; i++) {
+            history.add("question " + i, "answer " + i);
+        }
+        List<Message> all = history.range(0, 8);
+        assertEquals(8, all.size());
+        for (int i = 0; i < 8; i++) {
+            assertEquals("question " + i, all.get(i).getUserInput());
+            assertEquals("answer " + i, all.get(i).getBotResponse());
+        }
+    }
+
+    @Test
+    void largeMessagesGrowTheArena() {
+        ChatHistory history = new ChatHistory("Test", 3, log);
+        String large = "x".repeat(10_000);
+        history.add(large, "ok");
+        history.add("small", large + "y");
+        assertEquals(large, history.get(0).getUserInput());
+        assertEquals(large + "y", history.get(1).getBotResponse());
+    }
+
+    @Test
+    void indexKeepsOnlyTheNewestWindows() {
+        HistoryIndex index = new HistoryIndex(4);
+        for (int i = 0; i < 10; i++) {
+            index.add(i, 1 + i, "question " + i, "answer");
+        }
+        assertEquals(4, index.first()); // Blocks of 4..7 and 8..9
+        HistoryIndex.Result result = index.search(HistoryIndex.Query.parse("answer"), 3);
+        assertEquals(6, result.matches);
+        assertArrayEquals(new long[] {9, 8, 7}, result.numbers);
+        assertArrayEquals(new long[] {6, 5, 4}, index.search(HistoryIndex.Query.parse("answer page:2"), 3).numbers);
+    }
+
+    @Test
+    void searchFallsBackToTheLogForOlderMessages() {
+        ChatHistory history = new ChatHistory("Test", 3, log);
+        for (int i = 0; i < 20; i++) {
+            history.add("question " + i + (i % 5 == 0 ? " about cats" : ""), "answer " + i);
+        }
+        HistoryIndex.Result result = history.search(HistoryIndex.Query.parse("cats"), 2);
+        assertEquals(4, result.matches);
+        assertArrayEquals(new long[] {15, 10}, result.numbers);
+        assertArrayEquals(new long[] {5, 0}, history.search(HistoryIndex.Query.parse("cats page:2"), 2).numbers);
+        assertEquals("question 0 about cats", history.messages(new long[] {0}).get(0).getUserInput());
+    }
+
+    @Test
+    void continuedHistoriesPickUpWhereTheLogLeftOff() {
+        ChatHistory earlier = ChatHistory.continued("console-Test", 3, log);
+        for (int i = 0; i < 5; i++) {
+            earlier.add("question " + i + (i == 1 ? " about cats" : ""), "answer " + i);
+        }
+
+        ChatHistory history = ChatHistory.continued("console-Test", 3, log);
+        assertEquals(5, history.totalCount());
+        assertEquals(0, history.size());
+        history.add("question 5", "answer 5");
+        assertEquals("question 1 about cats", history.range(0, 6).get(1).getUserInput());
+        assertEquals("question 5", history.range(0, 6).get(5).getUserInput());
+        assertArrayEquals(new long[] {1}, history.search(HistoryIndex.Query.parse("cats"), 10).numbers);
+        assertEquals(0, ChatHistory.continued("console-Other", 3, log).totalCount());
+    }
+}
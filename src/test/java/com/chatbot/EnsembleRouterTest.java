@@ -0,0 +1,82 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Routing a turn to every personality and keeping the best reply within the budget.
+ */
+class EnsembleRouterTest {
+    /**
+     * Answers after a delay, or not at all when the reply is null.
+     */
+    private static final class Fixed implements Respondable {
+        private final String name;
+        private final String reply;
+        private final long delayMillis;
+
+        Fixed(String name, String reply, long delayMillis) {
+            this.name = name;
+            this.reply = reply;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public String respond(String userInput) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return reply;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+
+    @Test
+    void pathsScoreFromPersonalityDownToDefault() {
+        double previous = Double.MAX_VALUE;
+        for (MatchPath path : List.of(MatchPath.PERSONALITY, MatchPath.EXACT, MatchPath.PARTIAL,
+                                      MatchPath.FUZZY, MatchPath.RETRIEVAL, MatchPath.DEFAULT)) {
+            double score = EnsembleRouter.score(path);
+            assertTrue(score < previous, path + " should score below the path before it");
+            previous = score;
+        }
+    }
+
+    @Test
+    void tiesGoToTheEarlierPersonality() {
+        try (EnsembleRouter router = new EnsembleRouter(List.of(
+                new Fixed("First", "one", 0), new Fixed("Second", "two", 0)), 2, 2000)) {
+            EnsembleRouter.Candidate best = router.route(NormalizedInput.of("hi"));
+            assertEquals("First", best.name);
+            assertEquals("one", best.response);
+            assertEquals(1L, router.getWins().get("First"));
+        }
+    }
+
+    @Test
+    void repliesPastTheBudgetAreDropped() {
+        try (EnsembleRouter router = new EnsembleRouter(List.of(
+                new Fixed("Slow", "late", 2000), new Fixed("Quiet", null, 0), new Fixed("Fast", "quick", 0)), 3, 200)) {
+            EnsembleRouter.Candidate best = router.route(NormalizedInput.of("hi"));
+            assertEquals("Fast", best.name);
+        }
+    }
+
+    @Test
+    void nobodyAnswersInTime() {
+        try (EnsembleRouter router = new EnsembleRouter(List.of(new Fixed("Slow", "late", 2000)), 1, 50)) {
+            assertNull(router.route(NormalizedInput.of("hi")));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Keyword intent routing: every clause must match, and higher priority rules win.
+ */
+class IntentRouterTest {
+    private enum Intent { GREET, FAREWELL, HELP_WITH_CODE }
+
+    private final IntentRouter<Intent> router = new IntentRouter.Builder<Intent>()
+            .rule(Intent.GREET, 1, IntentRouter.anyOf("hello", "hi there"))
+            .rule(Intent.FAREWELL, 1, IntentRouter.anyOf("bye", "goodbye"))
+            .rule(Intent.HELP_WITH_CODE, 5, IntentRouter.anyOf("help"), IntentRouter.anyOf("code", "java"))
+            .build();
+
+    @Test
+    void routesByKeyword() {
+        assertEquals(Intent.GREET, router.route("hello friend"));
+        assertEquals(Intent.GREET, router.route("oh hi there"));
+        assertEquals(Intent.FAREWELL, router.route("ok goodbye"));
+        assertNull(router.route("nothing to see"));
+    }
+
+    @Test
+    void everyClauseMustMatch() {
+        assertNull(router.route("help me"));
+        assertEquals(Intent.HELP_WITH_CODE, router.route("help me with java"));
+    }
+
+    @Test
+    void higherPriorityWins() {
+        assertEquals(Intent.HELP_WITH_CODE, router.route("hello, help with my code"));
+    }
+
+    @Test
+    void equalPrioritiesGoToTheFirstDeclared() {
+        assertEquals(Intent.GREET, router.route("hello and goodbye"));
+    }
+
+    @Test
+    void rulesNeedKeywords() {
+        IntentRouter.Builder<Intent> builder = new IntentRouter.Builder<>();
+        assertThrows(IllegalArgumentException.class, () -> builder.rule(Intent.GREET, 1));
+        assertThrows(IllegalArgumentException.class, () -> builder.rule(Intent.GREET, 1, IntentRouter.anyOf()));
+        assertThrows(IllegalArgumentException.class, () -> builder.rule(Intent.GREET, 1, IntentRouter.anyOf("")));
+    }
+}
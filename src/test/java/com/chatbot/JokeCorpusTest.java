@@ -0,0 +1,80 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The packed joke corpus, its topic index and the non-repeating shuffle.
+ */
+class JokeCorpusTest {
+    private final JokeCorpus corpus = JokeCorpus.of(List.of(
+            "Why did the cat sit on the computer? To keep an eye on the mouse!",
+            "What do you call a dog magician? A labracadabrador!",
+            "Why are cats bad storytellers? They only have one tale.",
+            "   ",
+            "Naïve café jokes are très bien."));
+
+    @Test
+    void storesJokesAndSkipsBlankLines() {
+        assertEquals(4, corpus.size());
+        assertEquals("Naïve café jokes are très bien.", corpus.joke(3));
+    }
+
+    @Test
+    void indexesTopicWordsAndPlurals() {
+        assertArrayEquals(new int[] {0, 2}, corpus.jokesAbout("cat"));
+        assertArrayEquals(new int[] {0, 2}, corpus.jokesAbout("cats"));
+        assertArrayEquals(new int[0], corpus.jokesAbout("the"));
+        assertEquals("dog", corpus.topicOf(NormalizedInput.of("tell me a joke about dogs")));
+        assertNull(corpus.topicOf(NormalizedInput.of("tell me a joke")));
+    }
+
+    @Test
+    void everyIndexOnceBeforeAnyRepeats() {
+        for (int size : new int[] {1, 2, 3, 17, 1000, 4097}) {
+            JokeCorpus.ShuffleBag bag = new JokeCorpus.ShuffleBag(size * 31L);
+            for (int round = 0; round < 2; round++) {
+                Set<Integer> seen = new HashSet<>();
+                for (int i = 0; i < size; i++) {
+                    int index = bag.next(size);
+                    assertTrue(index >= 0 && index < size);
+                    assertTrue(seen.add(index), "repeated " + index + " of " + size);
+                }
+            }
+        }
+    }
+
+    @Test
+    void restoredBagContinuesTheSameOrder() {
+        JokeCorpus.ShuffleBag bag = new JokeCorpus.ShuffleBag(7);
+        for (int i = 0; i < 40; i++) {
+            bag.next(100);
+        }
+        JokeCorpus.ShuffleBag copy = new JokeCorpus.ShuffleBag(0);
+        copy.restore(bag.getSeed(), bag.getDrawn(), bag.getCycleSize());
+        List<Integer> expected = new ArrayList<>();
+        List<Integer> actual = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            expected.add(bag.next(100));
+            actual.add(copy.next(100));
+        }
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void jokeBotTellsTopicJokes() {
+        JokeBot bot = new JokeBot(corpus);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(bot.respond("tell me a joke about cats").toLowerCase().contains("cat"));
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Partial and fuzzy matching over knowledge base keys, across levels and pending keys.
+ */
+class KeyIndexTest {
+    @Test
+    void longestContainedKeyWins() {
+        KeyIndex index = KeyIndex.build(List.of("java", "what is java", "python"));
+        assertEquals("what is java", index.findBestMatch("so what is java anyway"));
+        assertEquals("python", index.findBestMatch("i like python"));
+    }
+
+    @Test
+    void shortestContainingKeyWinsWhenNoKeyIsContained() {
+        KeyIndex index = KeyIndex.build(List.of("tell me about java streams", "java streams"));
+        assertEquals("java streams", index.findBestMatch("streams"));
+    }
+
+    @Test
+    void tiesGoToTheAlphabeticallyFirstKey() {
+        KeyIndex index = KeyIndex.build(List.of("bcd", "abc"));
+        assertEquals("abc", index.findBestMatch("abcd"));
+    }
+
+    @Test
+    void nothingMatches() {
+        KeyIndex index = KeyIndex.build(List.of("hello there"));
+        assertNull(index.findBestMatch("goodbye"));
+    }
+
+    @Test
+    void addedKeysAreFoundInPendingAndMergedLevels() {
+        KeyIndex index = KeyIndex.EMPTY;
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            keys.add("question number " + i);
+            index = index.with("question number " + i);
+        }
+        for (String key : keys) {
+            assertEquals(key, index.findBestMatch("tell me " + key + " please"));
+        }
+    }
+
+    @Test
+    void fuzzyMatchAllowsAFewTypos() {
+        KeyIndex index = KeyIndex.build(List.of("hello there", "how are you"));
+        assertEquals("hello there", index.findFuzzyMatch("helo there"));
+        assertEquals("how are you", index.with("what is new").findFuzzyMatch("hw are you"));
+        assertNull(index.findFuzzyMatch("something else entirely"));
+    }
+
+    @Test
+    void suffixArrayFindsTheSameKeyAsALinearScan() {
+        Random random = new Random(7);
+        String[] keys = new String[500];
+        for (int k = 0; k < keys.length; k++) {
+            StringBuilder key = new StringBuilder();
+            for (int i = 1 + random.nextInt(12); i > 0; i--) {
+                key.append((char) ('a' + random.nextInt(4))); // Few letters, so substrings repeat a lot
+            }
+            keys[k] = key.toString();
+        }
+        KeySuffixArray suffixArray = new KeySuffixArray(keys);
+        for (int q = 0; q < 2000; q++) {
+            String query = keys[random.nextInt(keys.length)];
+            int from = random.nextInt(query.length());
+            query = query.substring(from, from + 1 + random.nextInt(query.length() - from));
+            int expected = -1;
+            for (int k = 0; k < keys.length; k++) {
+                if (keys[k].contains(query) && (expected < 0 || keys[k].length() < keys[expected].length())) {
+                    expected = k;
+                }
+            }
+            assertEquals(expected, suffixArray.shortestKeyContaining(query), query);
+        }
+        assertEquals(-1, suffixArray.shortestKeyContaining("e"));
+        assertEquals(-1, new KeySuffixArray(new String[0]).shortestKeyContaining("a"));
+    }
+}
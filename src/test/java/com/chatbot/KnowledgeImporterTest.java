@@ -0,0 +1,79 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Parsing CSV and JSON Lines records, and importing a file into a store.
+ */
+class KnowledgeImporterTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void parsesJsonStrings() {
+        assertArrayEquals(new String[] {"hi", "Hello \"there\"\n"},
+                KnowledgeImporter.parseJson("{\"question\": \"hi\", \"answer\": \"Hello \\\"there\\\"\\n\", \"source\": \"faq\"}"));
+        assertArrayEquals(new String[] {"caf\u00e9", "ok"},
+                KnowledgeImporter.parseJson("{\"answer\":\"ok\",\"question\":\"caf\\u00e9\"}"));
+    }
+
+    @Test
+    void numbersAndBooleansBecomeText() {
+        assertArrayEquals(new String[] {"what is six times seven", "42"},
+                KnowledgeImporter.parseJson("{\"question\": \"what is six times seven\", \"answer\": 42}"));
+        assertArrayEquals(new String[] {"pi", "-3.14e0"},
+                KnowledgeImporter.parseJson("{\"question\": \"pi\", \"answer\": -3.14e0, \"id\": 7}"));
+        assertArrayEquals(new String[] {"is water wet", "true"},
+                KnowledgeImporter.parseJson("{\"question\": \"is water wet\", \"answer\": true, \"reviewed\": false}"));
+        assertArrayEquals(new String[] {"a", ""},
+                KnowledgeImporter.parseJson("{\"question\": \"a\", \"answer\": null}"));
+    }
+
+    @Test
+    void rejectsOtherJson() {
+        assertNull(KnowledgeImporter.parseJson("{\"question\": \"a\"}"));
+        assertNull(KnowledgeImporter.parseJson("{\"question\": \"a\", \"answer\": 01}"));
+        assertNull(KnowledgeImporter.parseJson("{\"question\": \"a\", \"answer\": 1.}"));
+        assertNull(KnowledgeImporter.parseJson("{\"question\": \"a\", \"answer\": truth}"));
+        assertNull(KnowledgeImporter.parseJson("{\"question\": \"a\", \"answer\": [1, 2]}"));
+        assertNull(KnowledgeImporter.parseJson("[\"a\", \"b\"]"));
+    }
+
+    @Test
+    void parsesCsv() {
+        assertArrayEquals(new String[] {"hi", "Hello, \"you\""}, KnowledgeImporter.parseCsv("hi,\"Hello, \"\"you\"\"\""));
+        assertNull(KnowledgeImporter.parseCsv("one,two,three"));
+        assertNull(KnowledgeImporter.parseCsv("\"unterminated,answer"));
+    }
+
+    @Test
+    void importsJsonLines() throws IOException {
+        File file = new File(dir, "pairs.jsonl");
+        Files.write(file.toPath(), List.of(
+                "{\"question\": \"What is six times seven\", \"answer\": 42}",
+                "{\"question\": \"is water wet\", \"answer\": true}",
+                "{\"question\": \"nothing\", \"answer\": null}",
+                "not json",
+                "{\"question\": \"is water wet\", \"answer\": \"Very\"}"));
+        KnowledgeStore store = KnowledgeStore.open(new File(dir, "knowledge.txt").getPath());
+
+        KnowledgeImporter.Result result = new KnowledgeImporter().importFile(file, store);
+        assertEquals(5, result.records);
+        assertEquals(2, result.added);
+        assertEquals(1, result.duplicates);
+        assertEquals(1, result.invalid);
+        assertEquals(1, result.malformed);
+        assertEquals("42", store.snapshot().get("what is six times seven"));
+        assertEquals("Very", store.snapshot().get("is water wet"));
+    }
+}
@@ -0,0 +1,89 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The write-ahead log: replay in order, torn lines, and recovering from failed writes.
+ */
+class KnowledgeLogTest {
+    @TempDir
+    File dir;
+
+    private KnowledgeLog newLog(File dataFile) {
+        return new KnowledgeLog(dataFile, KnowledgeLog.SyncPolicy.GROUP, 256, 0, 1L << 20, false);
+    }
+
+    private static Map<String, String> load(KnowledgeLog log) throws IOException {
+        LinkedHashMap<String, String> pairs = new LinkedHashMap<>();
+        log.load(pairs::put);
+        return pairs;
+    }
+
+    @Test
+    void replaysAppendsOnTopOfTheDataFile() throws IOException {
+        File dataFile = new File(dir, "data.txt");
+        KnowledgeFormat.write(Map.of("hello", "Hi!"), dataFile);
+        KnowledgeLog log = newLog(dataFile);
+        log.append("hello", "Hello again!");
+        log.append("multi|||line", "first\nsecond");
+
+        Map<String, String> pairs = load(newLog(dataFile));
+        assertEquals("Hello again!", pairs.get("hello"));
+        assertEquals("first\nsecond", pairs.get("multi|||line"));
+    }
+
+    @Test
+    void tornLastLineIsIgnored() throws IOException {
+        File dataFile = new File(dir, "data.txt");
+        newLog(dataFile).append("complete", "yes");
+        Files.write(new File(dir, "data.txt.log.0").toPath(), "torn|||ha".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        Map<String, String> pairs = load(newLog(dataFile));
+        assertEquals(Map.of("complete", "yes"), pairs);
+    }
+
+    @Test
+    void failedWriteFailsOnlyItsBatch() throws IOException {
+        File dataFile = new File(dir, "data.txt");
+        KnowledgeLog log = newLog(dataFile);
+        // A directory where the next two segments go makes writing them fail
+        File blocked = new File(dir, "data.txt.log.0");
+        File alsoBlocked = new File(dir, "data.txt.log.1");
+        blocked.mkdir();
+        alsoBlocked.mkdir();
+
+        assertThrows(IOException.class, () -> log.append("lost", "first"));
+        assertThrows(IOException.class, () -> log.append("lost again", "second"));
+        blocked.delete();
+        alsoBlocked.delete();
+        log.append("kept", "third");
+
+        Map<String, String> pairs = load(newLog(dataFile));
+        assertEquals(Map.of("kept", "third"), pairs);
+    }
+
+    @Test
+    void bulkEntriesAreOneWrite() throws IOException {
+        File dataFile = new File(dir, "data.txt");
+        KnowledgeLog log = newLog(dataFile);
+        LinkedHashMap<String, String> pairs = new LinkedHashMap<>();
+        for (int i = 0; i < 100; i++) {
+            pairs.put("question " + i, "answer " + i);
+        }
+        log.awaitCommit(log.enqueueAll(pairs));
+        assertEquals(pairs, load(newLog(dataFile)));
+    }
+}
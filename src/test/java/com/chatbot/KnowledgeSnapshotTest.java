@@ -0,0 +1,177 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The memory-mapped binary snapshot, and a knowledge store served from it.
+ */
+class KnowledgeSnapshotTest {
+    @TempDir
+    File dir;
+
+    private static Map<String, String> samplePairs() {
+        LinkedHashMap<String, String> pairs = new LinkedHashMap<>();
+        pairs.put("hello", "Hi!");
+        pairs.put("zebra", "A striped animal");
+        pairs.put("été", "Summer, with accents");
+        pairs.put("apple", "A fruit\nwith two lines");
+        return pairs;
+    }
+
+    @Test
+    void looksUpKeysInTheMappedFile() throws IOException {
+        File file = new File(dir, "data.bin");
+        KnowledgeSnapshot.write(samplePairs(), file);
+        KnowledgeSnapshot snapshot = KnowledgeSnapshot.open(file);
+
+        assertEquals(4, snapshot.size());
+        assertEquals("Summer, with accents", snapshot.get("été"));
+        assertEquals("A fruit\nwith two lines", snapshot.get("apple"));
+        assertTrue(snapshot.containsKey("zebra"));
+        assertFalse(snapshot.containsKey("zebr"));
+        assertNull(snapshot.get("missing"));
+        assertEquals("apple", snapshot.key(0)); // Sorted by UTF-8 bytes, so "été" comes last
+        assertEquals("été", snapshot.key(3));
+    }
+
+    @Test
+    void convertsToTextAndBack() throws IOException {
+        File text = new File(dir, "data.txt");
+        File binary = new File(dir, "data.bin");
+        File back = new File(dir, "back.txt");
+        KnowledgeFormat.write(samplePairs(), text);
+        KnowledgeSnapshot.fromText(text, binary);
+        KnowledgeSnapshot.toText(binary, back);
+
+        HashMap<String, String> pairs = new HashMap<>();
+        KnowledgeFormat.read(back, pairs::put);
+        assertEquals(samplePairs(), pairs);
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        File file = new File(dir, "not-a-snapshot.bin");
+        Files.writeString(file.toPath(), "hello|||world\n");
+        assertThrows(IOException.class, () -> KnowledgeSnapshot.open(file));
+    }
+
+    @Test
+    void saveWritesTheBinarySnapshotWhenConfigured() throws IOException {
+        String dataFile = new File(dir, "knowledge.txt").getPath();
+        System.setProperty("chatbot.snapshot", "binary");
+        try {
+            KnowledgeStore store = KnowledgeStore.forFile(dataFile);
+            store.learnAll(samplePairs());
+            store.save();
+        } finally {
+            System.clearProperty("chatbot.snapshot");
+        }
+        assertFalse(new File(dataFile).exists(), "a binary save should not write the text file");
+        KnowledgeSnapshot saved = KnowledgeSnapshot.open(new File(dir, "knowledge.bin"));
+        assertEquals(4, saved.size());
+        assertEquals("A striped animal", saved.get("zebra"));
+    }
+
+    @Test
+    void storeServesTheMappedSnapshotWithNewerAnswersOnTop() throws IOException {
+        String dataFile = new File(dir, "knowledge.txt").getPath();
+        KnowledgeSnapshot.write(samplePairs(), new File(dir, "knowledge.bin"));
+
+        KnowledgeStore store = KnowledgeStore.open(dataFile);
+        KnowledgeStore.Snapshot snapshot = store.snapshot();
+        assertEquals(4, snapshot.size());
+        assertEquals("A striped animal", snapshot.get("zebra"));
+        assertTrue(snapshot.containsKey("été"));
+        assertEquals(MatchPath.PARTIAL, store.match(NormalizedInput.of("tell me about the zebra")).path);
+
+        store.learn("zebra", "A horse in pyjamas");
+        store.learn("new question", "new answer");
+        snapshot = store.snapshot();
+        assertEquals(5, snapshot.size());
+        assertEquals("A horse in pyjamas", snapshot.get("zebra"));
+        Map<String, String> expected = new HashMap<>(samplePairs());
+        expected.put("zebra", "A horse in pyjamas");
+        expected.put("new question", "new answer");
+        assertEquals(expected, new HashMap<>(snapshot.entries()));
+        assertEquals(5, snapshot.entries().entrySet().stream().count());
+
+        // The newer answer survives a reload, replayed from the log on top of the mapped file
+        assertEquals("A horse in pyjamas", KnowledgeStore.open(dataFile).snapshot().get("zebra"));
+    }
+
+    @Test
+    void entriesAreWrittenInKeyByteOrder() throws IOException {
+        LinkedHashMap<String, String> pairs = new LinkedHashMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 1000; i++) {
+            pairs.put(Integer.toString(random.nextInt(), 36) + (i % 7 == 0 ? "é" : ""), "answer " + i);
+        }
+        File file = new File(dir, "many.bin");
+        KnowledgeSnapshot.write(pairs, file);
+
+        KnowledgeSnapshot snapshot = KnowledgeSnapshot.open(file);
+        assertEquals(pairs.size(), snapshot.size());
+        for (int i = 1; i < snapshot.size(); i++) {
+            assertTrue(Arrays.compareUnsigned(snapshot.key(i - 1).getBytes(StandardCharsets.UTF_8),
+                    snapshot.key(i).getBytes(StandardCharsets.UTF_8)) < 0);
+        }
+        pairs.forEach((key, value) -> assertEquals(value, snapshot.get(key)));
+    }
+
+    @Test
+    void eachSaveLeavesOneSnapshotFile() throws IOException {
+        File dataFile = new File(dir, "knowledge.txt");
+        KnowledgeFormat.write(Map.of("old", "text answer"), dataFile);
+
+        log(dataFile, true).writeSnapshot(KnowledgeSnapshotTest::samplePairs);
+        assertFalse(dataFile.exists());
+        assertTrue(new File(dir, "knowledge.bin").exists());
+
+        // Never written over the previous generation, which a store may still have mapped
+        log(dataFile, true).writeSnapshot(() -> Map.of("zebra", "A horse in pyjamas"));
+        assertFalse(new File(dir, "knowledge.bin").exists());
+        assertEquals("A horse in pyjamas", load(log(dataFile, true)).get("zebra"));
+
+        log(dataFile, false).writeSnapshot(() -> Map.of("zebra", "Back to text"));
+        assertTrue(dataFile.exists());
+        assertEquals(0, dir.list((parent, name) -> name.endsWith(".bin")).length);
+    }
+
+    @Test
+    void theConfiguredFormatWinsWhenBothExist() throws IOException {
+        File dataFile = new File(dir, "knowledge.txt");
+        KnowledgeSnapshot.write(Map.of("zebra", "binary answer"), new File(dir, "knowledge.bin"));
+        KnowledgeFormat.write(Map.of("zebra", "text answer"), dataFile);
+        new File(dir, "knowledge.bin").setLastModified(dataFile.lastModified() + 60_000); // Newer, but not chosen for it
+
+        assertEquals("text answer", load(log(dataFile, false)).get("zebra"));
+        assertEquals("binary answer", load(log(dataFile, true)).get("zebra"));
+    }
+
+    private static KnowledgeLog log(File dataFile, boolean binary) {
+        return new KnowledgeLog(dataFile, KnowledgeLog.SyncPolicy.GROUP, 256, 0, 1L << 20, binary);
+    }
+
+    private static Map<String, String> load(KnowledgeLog log) throws IOException {
+        HashMap<String, String> pairs = new HashMap<>();
+        log.load(pairs::put);
+        return pairs;
+    }
+}
@@ -0,0 +1,154 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The knowledge store under concurrent teachers, readers and saves: no lost updates, readers
+ * see every key already learned, and every save is one point in time.
+ */
+class KnowledgeStoreConcurrencyTest {
+    private static final int TEACHERS = 8;
+    private static final int KEYS_PER_TEACHER = 300;
+    private static final int SHARED_KEYS = 16;
+    private static final int READERS = 4;
+
+    @TempDir
+    File dir;
+
+    @Test
+    void concurrentTeachersReadersAndSaves() throws Exception {
+        File dataFile = new File(dir, "knowledge.txt");
+        KnowledgeStore store = KnowledgeStore.open(dataFile.getPath());
+        AtomicIntegerArray learned = new AtomicIntegerArray(TEACHERS); // Keys each teacher has finished
+        ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+        AtomicBoolean teaching = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> teachers = new ArrayList<>();
+        for (int t = 0; t < TEACHERS; t++) {
+            int teacher = t;
+            teachers.add(new Thread(() -> {
+                await(start);
+                for (int i = 0; i < KEYS_PER_TEACHER; i++) {
+                    try {
+                        store.learn(key(teacher, i), value(teacher, i));
+                        store.learn("shared question " + (i % SHARED_KEYS), value(teacher, i));
+                    } catch (IOException e) {
+                        failures.add("Teacher " + teacher + " could not learn: " + e.getMessage());
+                        return;
+                    }
+                    learned.set(teacher, i + 1);
+                }
+            }, "teacher-" + t));
+        }
+        List<Thread> background = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            background.add(new Thread(() -> {
+                await(start);
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (teaching.get()) {
+                    int teacher = random.nextInt(TEACHERS);
+                    int done = learned.get(teacher);
+                    if (done == 0) {
+                        continue;
+                    }
+                    int i = random.nextInt(done);
+                    KnowledgeStore.Match match = store.match(NormalizedInput.of(key(teacher, i)));
+                    String answer = store.snapshot().get(key(teacher, i));
+                    if (!key(teacher, i).equals(match.key) || !value(teacher, i).equals(answer)) {
+                        failures.add("Reader missed " + key(teacher, i) + " after it was learned");
+                    }
+                }
+            }, "reader-" + r));
+        }
+        background.add(new Thread(() -> {
+            await(start);
+            while (teaching.get()) {
+                try {
+                    store.save();
+                    checkPointInTime(dataFile, failures);
+                } catch (IOException e) {
+                    failures.add("Save failed: " + e.getMessage());
+                }
+            }
+        }, "saver"));
+
+        teachers.forEach(Thread::start);
+        background.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : teachers) {
+            thread.join();
+        }
+        teaching.set(false);
+        for (Thread thread : background) {
+            thread.join();
+        }
+        assertTrue(failures.isEmpty(), failures.size() + " failure(s), first: " + failures.peek());
+
+        KnowledgeStore.Snapshot snapshot = store.snapshot();
+        for (int t = 0; t < TEACHERS; t++) {
+            for (int i = 0; i < KEYS_PER_TEACHER; i++) {
+                assertEquals(value(t, i), snapshot.get(key(t, i)), "lost update");
+                // Every key reached the partial match index, whichever teacher indexed its batch
+                KnowledgeStore.Match partial = store.match(NormalizedInput.of(key(t, i) + " please"));
+                assertEquals(MatchPath.PARTIAL, partial.path);
+                assertEquals(key(t, i), partial.key);
+            }
+        }
+        assertEquals(TEACHERS * KEYS_PER_TEACHER + SHARED_KEYS, snapshot.size());
+        Map<String, String> reloaded = KnowledgeStore.open(dataFile.getPath()).snapshot().entries();
+        assertEquals(new HashMap<>(snapshot.entries()), new HashMap<>(reloaded));
+    }
+
+    /**
+     * Every teacher learns its keys in order, so a consistent save holds a prefix of each teacher's keys.
+     */
+    private static void checkPointInTime(File dataFile, ConcurrentLinkedQueue<String> failures) throws IOException {
+        HashMap<String, String> saved = new HashMap<>();
+        KnowledgeFormat.read(dataFile, saved::put);
+        for (int t = 0; t < TEACHERS; t++) {
+            int prefix = 0;
+            while (saved.containsKey(key(t, prefix))) {
+                prefix++;
+            }
+            for (int i = prefix + 1; i < KEYS_PER_TEACHER; i++) {
+                if (saved.containsKey(key(t, i))) {
+                    failures.add("Saved file has a gap in teacher " + t + "'s keys at " + prefix);
+                    break;
+                }
+            }
+        }
+    }
+
+    private static String key(int teacher, int i) {
+        return "teacher " + teacher + " question " + i;
+    }
+
+    private static String value(int teacher, int i) {
+        return "answer " + i + " from teacher " + teacher;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
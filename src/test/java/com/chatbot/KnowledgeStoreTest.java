@@ -0,0 +1,77 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The shared knowledge store: one instance per data file, immutable snapshots, and the
+ * matching stages in order.
+ */
+class KnowledgeStoreTest {
+    @TempDir
+    File dir;
+
+    private String dataFile() {
+        return new File(dir, "knowledge.txt").getPath();
+    }
+
+    @Test
+    void botsOnTheSameFileShareOneStore() {
+        Bot first = new Bot("First", dataFile());
+        Bot second = new Bot("Second", dataFile());
+        assertSame(KnowledgeStore.forFile(dataFile()), KnowledgeStore.forFile(new File(dataFile()).getAbsolutePath()));
+
+        first.learn("What is the capital of France", "Paris");
+        assertEquals("Paris", second.respond("what is the capital of france"));
+    }
+
+    @Test
+    void snapshotsDoNotChangeAfterLearning() throws IOException {
+        KnowledgeStore store = KnowledgeStore.forFile(dataFile());
+        KnowledgeStore.Snapshot before = store.snapshot();
+        store.learn("favourite colour", "green");
+        assertNull(before.get("favourite colour"));
+        assertEquals("green", store.snapshot().get("favourite colour"));
+        assertEquals(before.size() + 1, store.snapshot().size());
+    }
+
+    @Test
+    void matchesExactThenPartialThenFuzzy() throws IOException {
+        KnowledgeStore store = KnowledgeStore.forFile(dataFile());
+        store.learn("what is java", "A programming language");
+        store.learn("tell me a story", "Once upon a time");
+
+        assertEquals(MatchPath.EXACT, store.match(NormalizedInput.of("what is java")).path);
+        KnowledgeStore.Match partial = store.match(NormalizedInput.of("so what is java then"));
+        assertEquals(MatchPath.PARTIAL, partial.path);
+        assertEquals("what is java", partial.key);
+        KnowledgeStore.Match fuzzy = store.match(NormalizedInput.of("tell me a stroy"));
+        assertEquals(MatchPath.FUZZY, fuzzy.path);
+        assertEquals("tell me a story", fuzzy.key);
+        assertNull(store.match(NormalizedInput.of("zz")).key);
+    }
+
+    @Test
+    void learnedPairsSurviveAReload() throws IOException {
+        KnowledgeStore store = KnowledgeStore.forFile(dataFile());
+        Map<String, String> pairs = new LinkedHashMap<>();
+        pairs.put("first question", "first answer");
+        pairs.put("second question", "second answer");
+        store.learnAll(pairs);
+        store.learn("third question", "third answer");
+        store.save();
+
+        KnowledgeStore reloaded = KnowledgeStore.open(dataFile());
+        assertEquals("first answer", reloaded.snapshot().get("first question"));
+        assertEquals("third answer", reloaded.snapshot().get("third question"));
+    }
+}
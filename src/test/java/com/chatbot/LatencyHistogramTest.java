@@ -0,0 +1,58 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.ObjectName;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Percentile precision of the latency histogram, and the per-bot metrics built on it.
+ */
+class LatencyHistogramTest {
+    @Test
+    void percentilesStayWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000_000, histogram.getMax());
+        assertEquals(50_000_500, histogram.getMean(), 1);
+        assertNear(50_000_000, histogram.getPercentile(0.5));
+        assertNear(99_000_000, histogram.getPercentile(0.99));
+        assertEquals(histogram.getMax(), histogram.getPercentile(1.0));
+    }
+
+    @Test
+    void emptyAndNegativeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(0.99));
+        histogram.record(-5);
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(0.5));
+    }
+
+    @Test
+    void botMetricsCountMatchPathsAndRegisterWithJmx() throws Exception {
+        BotMetrics metrics = BotMetrics.forBot("MetricsTestBot");
+        metrics.recordRespond(MatchPath.EXACT, 1000);
+        metrics.recordRespond(MatchPath.EXACT, 2000);
+        metrics.recordRespond(MatchPath.DEFAULT, 3000);
+
+        Map<String, Long> counts = metrics.getMatchPathCounts();
+        assertEquals(2L, counts.get("EXACT"));
+        assertEquals(1L, counts.get("DEFAULT"));
+        assertEquals(3, metrics.getResponses());
+        ObjectName name = new ObjectName("com.chatbot:type=BotMetrics,name=" + ObjectName.quote("MetricsTestBot"));
+        assertEquals(3L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Responses"));
+    }
+
+    private static void assertNear(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 16, "expected about " + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,51 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Normalizing input once: the lowercase view, token boundaries and token ids.
+ */
+class NormalizedInputTest {
+    @Test
+    void lowercasesAndTrimsButKeepsTheRawText() {
+        NormalizedInput input = NormalizedInput.of("  Tell me a JOKE!  ");
+        assertEquals("tell me a joke!", input.text());
+        assertEquals("  Tell me a JOKE!  ", input.raw());
+        assertEquals("Tell me a JOKE!", input.trimmed());
+    }
+
+    @Test
+    void reusesTheRawStringWhenAlreadyNormalized() {
+        String raw = "already normal";
+        assertSame(raw, NormalizedInput.of(raw).text());
+    }
+
+    @Test
+    void splitsTokensOnNonLetters() {
+        NormalizedInput input = NormalizedInput.of("what's 2+2, java-bot?");
+        assertArrayEquals(new String[] {"what", "s", "2", "2", "java", "bot"}, input.tokens());
+        assertEquals(6, input.tokenCount());
+        assertEquals("java", input.text().substring(input.tokenStart(4), input.tokenEnd(4)));
+    }
+
+    @Test
+    void tokenIdsMatchTheStaticHash() {
+        NormalizedInput input = NormalizedInput.of("Play HARD please");
+        assertEquals(NormalizedInput.tokenId("hard"), input.tokenId(1));
+        assertTrue(input.hasToken(NormalizedInput.tokenId("please")));
+        assertFalse(input.hasToken(NormalizedInput.tokenId("easy")));
+    }
+
+    @Test
+    void nullAndBlankAreEmpty() {
+        assertTrue(NormalizedInput.of(null).isEmpty());
+        assertTrue(NormalizedInput.of("   ").isEmpty());
+        assertEquals(0, NormalizedInput.of("?!").tokenCount());
+    }
+}
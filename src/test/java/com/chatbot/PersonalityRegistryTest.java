@@ -0,0 +1,59 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Discovering personalities, reusing shared instances and creating fresh ones.
+ */
+class PersonalityRegistryTest {
+    @Test
+    void discoversTheBuiltInPersonalities() {
+        List<String> names = PersonalityRegistry.discover().names();
+        assertEquals("chatbot", names.get(0));
+        assertTrue(names.containsAll(List.of("jokebot", "gamebot", "advicebot")));
+        assertEquals(names.size(), names.stream().distinct().count());
+    }
+
+    @Test
+    void sharedInstancesAreCreatedOnceAndReused() {
+        PersonalityRegistry registry = new PersonalityRegistry();
+        AtomicInteger created = new AtomicInteger();
+        registry.register("counted", () -> {
+            created.incrementAndGet();
+            return new Bot("Counted");
+        });
+        assertEquals(0, created.get());
+        Respondable first = registry.get("counted");
+        assertSame(first, registry.get("counted"));
+        assertEquals(1, created.get());
+        assertNotSame(first, registry.create("counted"));
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    void firstRegistrationWins() {
+        PersonalityRegistry registry = new PersonalityRegistry();
+        assertTrue(registry.register("bot", () -> new Bot("One")));
+        assertFalse(registry.register("bot", () -> new Bot("Two")));
+        assertEquals("One", registry.get("bot").getName());
+    }
+
+    @Test
+    void unknownNames() {
+        PersonalityRegistry registry = new PersonalityRegistry();
+        assertNull(registry.get("nobody"));
+        assertThrows(IllegalArgumentException.class, () -> registry.create("nobody"));
+        assertThrows(IllegalArgumentException.class, () -> Bot.create("nobody"));
+    }
+}
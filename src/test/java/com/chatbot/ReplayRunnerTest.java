@@ -0,0 +1,80 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Replaying utterances in chunks, and seeded replays of personalities that reply at random.
+ */
+class ReplayRunnerTest {
+    @TempDir
+    File dir;
+
+    private File input(List<String> lines) throws IOException {
+        File input = new File(dir, "input.txt");
+        Files.write(input.toPath(), lines);
+        return input;
+    }
+
+    private List<String> replay(ReplayRunner runner, File input, File golden) throws IOException {
+        File output = new File(dir, "output.txt");
+        ReplayRunner.Report report = runner.replay(input, output, golden);
+        if (golden != null) {
+            assertEquals(0, report.differences, String.join("\n", report.firstDifferences));
+        }
+        return Files.readAllLines(output.toPath());
+    }
+
+    @Test
+    void responsesComeBackInInputOrder() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            lines.add(i % 2 == 0 ? "hello" : "bye");
+        }
+        List<String> responses = replay(new ReplayRunner("chatbot", 4, 3), input(lines), null);
+        assertEquals(50, responses.size());
+        assertEquals("Hello! How can I help you today?", responses.get(0));
+        assertEquals("Goodbye! It was nice chatting with you!", responses.get(49));
+    }
+
+    @Test
+    void seededRepliesDoNotDependOnChunks() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            lines.add(i % 3 == 0 ? "play a game" : i % 3 == 1 ? "hint" : "e");
+        }
+        File input = input(lines);
+        List<String> expected = replay(new ReplayRunner("gamebot", 1, 1000, 42L), input, null);
+        File golden = new File(dir, "golden.txt");
+        Files.write(golden.toPath(), expected);
+
+        replay(new ReplayRunner("gamebot", 8, 1, 42L), input, golden);
+        replay(new ReplayRunner("gamebot", 3, 7, 42L), input, golden);
+        assertNotEquals(expected, replay(new ReplayRunner("gamebot", 1, 1000, 7L), input, null));
+    }
+
+    @Test
+    void seededJokesRepeat() throws IOException {
+        File input = input(List.of("tell me a joke", "tell me a joke", "tell me a joke about cats", "tell me a joke"));
+        List<String> expected = replay(new ReplayRunner("jokebot", 2, 1, 5L), input, null);
+        assertEquals(expected, replay(new ReplayRunner("jokebot", 2, 3, 5L), input, null));
+    }
+
+    @Test
+    void goldenRunsOfRandomPersonalitiesNeedASeed() throws IOException {
+        File input = input(List.of("play"));
+        File golden = new File(dir, "golden.txt");
+        Files.write(golden.toPath(), List.of("anything"));
+        assertThrows(IllegalArgumentException.class, () -> new ReplayRunner("gamebot", 1, 1).replay(input, null, golden));
+    }
+}
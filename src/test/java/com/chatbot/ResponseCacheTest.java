@@ -0,0 +1,69 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Cached matches: invalidating only what a new key can change, and bounded size.
+ */
+class ResponseCacheTest {
+    private static final KnowledgeStore.Match WEATHER =
+            new KnowledgeStore.Match("what is the weather", MatchPath.PARTIAL);
+
+    @Test
+    void newKeysDropOnlyTheMatchesTheyCanChange() {
+        ResponseCache cache = new ResponseCache(100);
+        cache.put("what is the weather like", WEATHER, cache.generation());
+        cache.put("tell me something", KnowledgeStore.Match.NONE, cache.generation());
+
+        cache.invalidate("favourite colour");
+        assertSame(WEATHER, cache.get("what is the weather like"));
+        assertNull(cache.get("tell me something")); // Unanswered inputs may now be answered by retrieval
+
+        cache.invalidate("weather like");
+        assertNull(cache.get("what is the weather like"));
+    }
+
+    @Test
+    void matchesComputedBeforeANewKeyAreChecked() {
+        ResponseCache cache = new ResponseCache(100);
+        long generation = cache.generation();
+        cache.invalidate("the weather like"); // Learned while the match was being computed
+        cache.put("what is the weather like", WEATHER, generation);
+        assertNull(cache.get("what is the weather like"));
+
+        generation = cache.generation();
+        cache.invalidate("favourite colour");
+        cache.put("what is the weather like", WEATHER, generation);
+        assertNotNull(cache.get("what is the weather like"));
+    }
+
+    @Test
+    void clearDropsEverything() {
+        ResponseCache cache = new ResponseCache(100);
+        long generation = cache.generation();
+        cache.put("what is the weather like", WEATHER, generation);
+        cache.clear();
+        assertEquals(0, cache.size());
+        cache.put("what is the weather like", WEATHER, generation); // Computed before the clear
+        assertNull(cache.get("what is the weather like"));
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsed() {
+        ResponseCache cache = new ResponseCache(100);
+        cache.put("kept", WEATHER, cache.generation());
+        for (int i = 0; i < 1000; i++) {
+            cache.put("input " + i, WEATHER, cache.generation());
+            cache.get("kept");
+            assertTrue(cache.size() <= 100);
+        }
+        assertSame(WEATHER, cache.get("kept"));
+        assertNull(cache.get("input 0"));
+    }
+}
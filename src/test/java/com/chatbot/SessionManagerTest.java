@@ -0,0 +1,135 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Hibernating idle sessions to disk and restoring them with their conversation intact.
+ */
+class SessionManagerTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void hibernatedGameContinuesAfterRestore() throws IOException {
+        try (SessionManager manager = new SessionManager(dir, 0, 100)) {
+            GameBot game = new GameBot(WordDictionary.of(List.of("java")));
+            long id = manager.open(game);
+            Bot bot = manager.acquire(id);
+            bot.addToHistory("play", bot.respond("play"));
+            manager.release(id, bot);
+
+            manager.hibernateIdle();
+            assertEquals(0, manager.getResidentCount());
+            assertTrue(new File(dir, id + ".session").exists());
+
+            Bot restored = manager.acquire(id);
+            assertNotSame(game, restored);
+            assertTrue(manager.getRehydrations() >= 1); // The sweeper may also have hibernated it earlier
+            assertTrue(restored.respond("j").startsWith("Good guess!"));
+            assertEquals(1, restored.getChatHistory().totalCount());
+            assertEquals("play", restored.getChatHistory().range(0, 1).get(0).getUserInput());
+            manager.release(id, restored);
+
+            manager.close(id);
+            assertEquals(0, manager.getSessionCount());
+            assertFalse(new File(dir, id + ".session").exists());
+        }
+    }
+
+    @Test
+    void switchingBackResumesTheEarlierPersonality() throws IOException {
+        try (SessionManager manager = new SessionManager(dir, 3_600_000, 100)) {
+            Bot chat = Bot.create("chatbot");
+            long id = manager.open(chat);
+            Bot bot = manager.acquire(id);
+            bot.addToHistory("hello", bot.respond("hello"));
+            assertSame(chat, manager.personality(id, "chatbot"));
+            assertNull(manager.personality(id, "jokebot"));
+            manager.release(id, Bot.create("jokebot"));
+
+            manager.acquire(id);
+            assertSame(chat, manager.personality(id, "chatbot"));
+            manager.release(id, chat);
+            manager.close(id);
+        }
+        try (SessionManager manager = new SessionManager(dir, 0, 100)) {
+            long id = manager.open(Bot.create("chatbot"));
+            Bot chat = manager.acquire(id);
+            chat.addToHistory("hello", chat.respond("hello"));
+            Bot joke = Bot.create("jokebot");
+            manager.release(id, joke);
+
+            manager.hibernateIdle();
+            Bot restored = manager.acquire(id);
+            assertEquals("JokeBot", restored.getName());
+            Bot restoredChat = manager.personality(id, "chatbot");
+            assertEquals(1, restoredChat.getChatHistory().totalCount());
+            assertEquals("hello", restoredChat.getChatHistory().range(0, 1).get(0).getUserInput());
+            manager.release(id, restored);
+            manager.close(id);
+        }
+    }
+
+    @Test
+    void personalitiesNamedDifferentlyFromTheirTypeAreRestored() throws IOException {
+        PersonalityRegistry.shared().register("parrotbot", () -> new Bot("Polly"));
+        try (SessionManager manager = new SessionManager(dir, 0, 100)) {
+            long id = manager.open(Bot.create("chatbot"));
+            manager.acquire(id);
+            Bot parrot = Bot.create("parrotbot");
+            assertEquals("parrotbot", parrot.getType());
+            manager.release(id, parrot);
+
+            manager.hibernateIdle();
+            Bot restored = manager.acquire(id);
+            assertEquals("Polly", restored.getName());
+            assertSame(restored, manager.personality(id, "parrotbot"));
+            assertEquals("chatbot", manager.personality(id, "chatbot").getType());
+            manager.release(id, restored);
+            manager.close(id);
+        }
+    }
+
+    @Test
+    void sessionsInUseAreNotHibernated() throws IOException {
+        try (SessionManager manager = new SessionManager(dir, 0, 100)) {
+            long id = manager.open(Bot.create("chatbot"));
+            Bot bot = manager.acquire(id);
+            manager.hibernateIdle();
+            assertEquals(1, manager.getResidentCount());
+            manager.release(id, bot);
+        }
+    }
+
+    @Test
+    void residentCapHibernatesTheLeastRecentlyUsed() throws IOException {
+        try (SessionManager manager = new SessionManager(dir, 3_600_000, 10)) {
+            for (int i = 0; i < 11; i++) {
+                manager.open(Bot.create("chatbot"));
+            }
+            assertEquals(9, manager.getResidentCount());
+            assertEquals(2, manager.getHibernations());
+            assertEquals(11, manager.getSessionCount());
+        }
+    }
+
+    @Test
+    void unknownSessionsAreRejected() throws IOException {
+        try (SessionManager manager = new SessionManager(dir, 3_600_000, 10)) {
+            assertThrows(IllegalArgumentException.class, () -> manager.acquire(42));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Decayed, space-saving topic counts, recorded from many threads at once.
+ */
+class TopicTrackerTest {
+    private static final long HOUR = TimeUnit.HOURS.toNanos(1);
+
+    @Test
+    void olderMentionsWeighLess() {
+        TopicTracker tracker = new TopicTracker(10, HOUR);
+        long now = System.nanoTime();
+        tracker.record("old news", now);
+        tracker.record("old news", now);
+        tracker.record("fresh", now + 2 * HOUR);
+
+        List<TopicTracker.Trend> trends = tracker.top(10, now + 2 * HOUR);
+        assertEquals("fresh", trends.get(0).topic);
+        assertEquals(1.0, trends.get(0).count, 1e-9);
+        assertEquals(2 * Math.exp(-2), trends.get(1).count, 1e-9);
+    }
+
+    @Test
+    void newTopicsReplaceTheLowestCount() {
+        TopicTracker tracker = new TopicTracker(2, Long.MAX_VALUE);
+        long now = System.nanoTime();
+        for (String topic : new String[] {"a", "a", "a", "a", "b", "b", "c"}) {
+            tracker.record(topic, now);
+        }
+        List<TopicTracker.Trend> trends = tracker.top(5, now);
+        assertEquals(2, trends.size());
+        assertEquals("a", trends.get(0).topic);
+        assertEquals("c", trends.get(1).topic);
+        assertEquals(3.0, trends.get(1).count, 1e-9); // Inherits b's two mentions as its error
+        assertEquals(2.0, trends.get(1).error, 1e-9);
+    }
+
+    @Test
+    void frequentTopicsSurviveManyRareOnes() {
+        TopicTracker tracker = new TopicTracker(8, Long.MAX_VALUE);
+        long now = System.nanoTime();
+        for (int i = 0; i < 5000; i++) {
+            tracker.record(i % 3 == 0 ? "popular" : "rare " + i, now);
+        }
+        TopicTracker.Trend top = tracker.top(1, now).get(0);
+        assertEquals("popular", top.topic);
+    }
+
+    @Test
+    void mentionsFromEveryThreadAreCounted() throws InterruptedException {
+        TopicTracker tracker = new TopicTracker(16, Long.MAX_VALUE);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            String topic = "topic " + t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 1001; i++) {
+                    tracker.record(topic);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        List<TopicTracker.Trend> trends = tracker.top(16);
+        assertEquals(8, trends.size());
+        for (TopicTracker.Trend trend : trends) {
+            assertEquals(1001, trend.count, 1e-6);
+        }
+    }
+}
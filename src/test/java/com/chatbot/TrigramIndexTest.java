@@ -0,0 +1,44 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Bounded edit distance and the trigram-filtered closest-key search.
+ */
+class TrigramIndexTest {
+    @Test
+    void boundedDistanceStopsPastTheBound() {
+        assertEquals(0, TrigramIndex.boundedDistance("kitten", "kitten", 2));
+        assertEquals(1, TrigramIndex.boundedDistance("kitten", "sitten", 2));
+        assertEquals(2, TrigramIndex.boundedDistance("abcd", "acbd", 2));
+        assertEquals(3, TrigramIndex.boundedDistance("kitten", "sitting", 2));
+        assertEquals(3, TrigramIndex.boundedDistance("a", "abcdef", 2));
+    }
+
+    @Test
+    void editsAllowedGrowWithLength() {
+        assertEquals(0, TrigramIndex.maxEdits(3));
+        assertEquals(1, TrigramIndex.maxEdits(4));
+        assertEquals(2, TrigramIndex.maxEdits(8));
+        assertEquals(2, TrigramIndex.maxEdits(100));
+    }
+
+    @Test
+    void closestKeyWithinTheBound() {
+        String[] keys = {"how are you", "how old are you", "what is your name", "where do you live"};
+        TrigramIndex index = new TrigramIndex(keys);
+        assertEquals(0, index.closest("how are yuo", 2));
+        assertEquals(2, index.closest("what is yor name", 2));
+        assertEquals(3, index.closest("were do you live", 2));
+        assertEquals(-1, index.closest("completely different", 2));
+    }
+
+    @Test
+    void shortInputsAreScanned() {
+        TrigramIndex index = new TrigramIndex(new String[] {"cat", "dog", "hello"});
+        assertEquals(1, index.closest("dgo", 2));
+        assertEquals(2, index.closest("helo", 1));
+    }
+}
@@ -0,0 +1,50 @@
+package com.chatbot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The packed word dictionary: picking words by difficulty, hints, and empty dictionaries.
+ */
+class WordDictionaryTest {
+    @Test
+    void skipsWordsThatCannotBeGuessed() {
+        WordDictionary dictionary = WordDictionary.of(List.of("Java", "a", "two words", "naïve", "java", "kotlin"));
+        assertEquals(2, dictionary.size());
+        assertEquals("java", dictionary.word(0)); // Shortest first
+        assertEquals("kotlin", dictionary.word(1));
+    }
+
+    @Test
+    void picksFromTheDifficultyOrFallsBackToAnyWord() {
+        WordDictionary dictionary = WordDictionary.of(List.of("java", "python", "typescript"));
+        Random random = new Random(1);
+        for (int i = 0; i < 20; i++) {
+            assertEquals("typescript", dictionary.word(dictionary.randomIndex(WordDictionary.Difficulty.HARD, random)));
+            int index = dictionary.randomIndex(WordDictionary.Difficulty.MEDIUM, random); // No word that long
+            assertTrue(index >= 0 && index < dictionary.size());
+        }
+    }
+
+    @Test
+    void hintsCountTheWordsThatStillFit() {
+        WordDictionary dictionary = WordDictionary.of(List.of("cat", "cot", "cut", "dog"));
+        WordDictionary.PatternHint hint = dictionary.hint("cat", WordDictionary.maskOf("c"));
+        assertEquals(3, hint.matches);
+        assertTrue(hint.letter == 'a' || hint.letter == 't');
+    }
+
+    @Test
+    void emptyDictionariesAreRejected() {
+        WordDictionary empty = WordDictionary.of(List.of("", "1234"));
+        assertEquals(0, empty.size());
+        assertThrows(IllegalStateException.class, () -> empty.randomIndex(null, new Random()));
+        assertThrows(IllegalArgumentException.class, () -> new GameBot(empty));
+    }
+}